@@ -4,7 +4,7 @@ import os
 import cv2
 import numpy as np
 from ultralytics import YOLO
-from typing import Dict, Tuple
+from typing import Dict, List, Tuple
 import json
 
 # --- S3 Configuration ---
@@ -105,6 +105,55 @@ def analyze_bee_image(
         print(f"Error during model prediction: {e}")
         raise RuntimeError(f"Model prediction failed: {e}")
 
+    return summarize_prediction(pred, img_np, skip_normal)
+
+
+def analyze_bee_images(
+    model: YOLO, img_nps: List[np.ndarray], skip_normal: bool = True
+) -> List[Tuple[Dict[str, Dict[str, int]], np.ndarray]]:
+    """
+    Batched variant of analyze_bee_image: runs a single model invocation for all images,
+    which is considerably cheaper per image on a GPU.
+
+    Args:
+        model (YOLO): The loaded YOLO model.
+        img_nps (List[np.ndarray]): The input images as NumPy arrays (in BGR format).
+
+    Returns:
+        List[Tuple[Dict[str, Dict[str, int]], np.ndarray]]:
+            The diagnosis counts and annotated image of each input image, in input order.
+    """
+    if not img_nps:
+        return []
+    if any(img_np is None for img_np in img_nps):
+        raise ValueError("Input images cannot contain None.")
+
+    try:
+        predictions = model(img_nps, verbose=False)
+    except Exception as e:
+        print(f"Error during batch model prediction: {e}")
+        raise RuntimeError(f"Model prediction failed: {e}")
+
+    if not predictions or len(predictions) != len(img_nps):
+        print("Warning: Model returned no predictions or unexpected format for batch.")
+        return [(get_empty_diagnosis(), img_np.copy()) for img_np in img_nps]
+
+    return [
+        summarize_prediction(pred, img_np, skip_normal)
+        for pred, img_np in zip(predictions, img_nps)
+    ]
+
+
+def summarize_prediction(
+    pred, img_np: np.ndarray, skip_normal: bool = True
+) -> Tuple[Dict[str, Dict[str, int]], np.ndarray]:
+    """
+    Counts the detections of a single YOLO result and draws them on a copy of the image.
+    """
+    if not hasattr(pred, "boxes"):
+        print("Warning: Model returned a prediction in an unexpected format.")
+        return get_empty_diagnosis(), img_np.copy()
+
     diagnosis = get_empty_diagnosis()
     annotated_img = img_np.copy()  # Work on a copy to keep the original intact
     height, width = annotated_img.shape[:2]
@@ -0,0 +1,98 @@
+# grpc_server.py
+# gRPC transport of the diagnosis API (proto/ai_diagnosis.proto).
+# Runs the same pipeline as the HTTP endpoints; the stubs ai_diagnosis_pb2*.py are generated at image build time.
+
+import os
+from concurrent import futures
+from typing import Callable, Iterable, List, Optional
+
+import grpc
+from fastapi import HTTPException
+
+import ai_diagnosis_pb2 as pb
+import ai_diagnosis_pb2_grpc as pb_grpc
+
+GRPC_WORKERS = int(os.environ.get("GRPC_WORKERS", "8"))
+
+# HTTP status of the shared pipeline -> gRPC status, so the backend classifies both transports alike
+STATUS_CODES = {
+    400: grpc.StatusCode.INVALID_ARGUMENT,
+    403: grpc.StatusCode.PERMISSION_DENIED,
+    404: grpc.StatusCode.NOT_FOUND,
+    413: grpc.StatusCode.OUT_OF_RANGE,
+    415: grpc.StatusCode.INVALID_ARGUMENT,
+    503: grpc.StatusCode.UNAVAILABLE,
+}
+
+
+def to_proto_diagnosis(diagnosis: Optional[dict]) -> Optional[pb.Diagnosis]:
+    if diagnosis is None:
+        return None
+    larva = diagnosis.get("larva", {})
+    imago = diagnosis.get("imago", {})
+    return pb.Diagnosis(
+        larva=pb.LarvaCounts(
+            normal_count=larva.get("normalCount"),
+            varroa_count=larva.get("varroaCount"),
+            foul_brood_count=larva.get("foulBroodCount"),
+            chalk_brood_count=larva.get("chalkBroodCount"),
+        ),
+        imago=pb.ImagoCounts(
+            normal_count=imago.get("normalCount"),
+            varroa_count=imago.get("varroaCount"),
+            dwv_count=imago.get("dwvCount"),
+        ),
+    )
+
+
+class AiDiagnosisServicer(pb_grpc.AiDiagnosisServicer):
+    def __init__(self, diagnose_single: Callable, run_batch_diagnosis: Callable, max_batch_size: int):
+        self._diagnose_single = diagnose_single
+        self._run_batch_diagnosis = run_batch_diagnosis
+        self._max_batch_size = max_batch_size
+
+    def Diagnose(self, request, context):
+        try:
+            response = self._diagnose_single(request.s3_key)
+        except HTTPException as e:
+            context.abort(STATUS_CODES.get(e.status_code, grpc.StatusCode.INTERNAL), str(e.detail))
+        return pb.DiagnoseResponse(
+            s3_key=request.s3_key,
+            diagnosis=to_proto_diagnosis(response.diagnosis),
+            annotated_image_s3_key=response.annotatedImageS3Key,
+        )
+
+    def DiagnoseStream(self, request_iterator, context):
+        """
+        Collects the incoming keys into batches of up to max_batch_size and runs each as one model
+        invocation, streaming its results back before the next batch is read.
+        """
+        chunk: List[str] = []
+        for request in request_iterator:
+            chunk.append(request.s3_key)
+            if len(chunk) >= self._max_batch_size:
+                yield from self._run_chunk(chunk, context)
+                chunk = []
+        if chunk:
+            yield from self._run_chunk(chunk, context)
+
+    def _run_chunk(self, s3_keys: List[str], context) -> Iterable[pb.DiagnoseResponse]:
+        try:
+            results = self._run_batch_diagnosis(s3_keys)
+        except HTTPException as e:
+            context.abort(STATUS_CODES.get(e.status_code, grpc.StatusCode.INTERNAL), str(e.detail))
+        for result in results:
+            yield pb.DiagnoseResponse(
+                s3_key=result.s3Key,
+                diagnosis=to_proto_diagnosis(result.diagnosis),
+                annotated_image_s3_key=result.annotatedImageS3Key or "",
+                error=result.error or "",
+            )
+
+
+def serve(port: int, servicer: AiDiagnosisServicer) -> grpc.Server:
+    server = grpc.server(futures.ThreadPoolExecutor(max_workers=GRPC_WORKERS))
+    pb_grpc.add_AiDiagnosisServicer_to_server(servicer, server)
+    server.add_insecure_port(f"[::]:{port}")
+    server.start()
+    return server
@@ -6,14 +6,17 @@
 import os
 import uvicorn
 import uuid
+from concurrent.futures import ThreadPoolExecutor
+from typing import List, Optional
 
 import cv2
 import numpy as np
-from fastapi import FastAPI, Body, HTTPException
+from fastapi import FastAPI, Body, HTTPException, Request
+from fastapi.responses import StreamingResponse
 from pydantic import BaseModel
 
 # Import from the bee_analyzer module
-from bee_analyzer import load_model, analyze_bee_image
+from bee_analyzer import load_model, analyze_bee_image, analyze_bee_images
 from s3_handler import (
     get_s3_object_bytes,
     put_s3_object_bytes,
@@ -41,30 +44,40 @@ class DiagnosisResponse(BaseModel):
     annotatedImageS3Key: str  # S3 key for the annotated image
 
 
+class BatchDiagnosisRequest(BaseModel):
+    s3Keys: List[str]  # S3 keys for the original images
+
+
+class BatchDiagnosisResult(BaseModel):
+    s3Key: str
+    diagnosis: Optional[dict] = None
+    annotatedImageS3Key: Optional[str] = None
+    error: Optional[str] = None  # set when only this image failed
+
+
+class BatchDiagnosisResponse(BaseModel):
+    results: List[BatchDiagnosisResult]
+
+
 # --- Configuration for Annotated Images ---
 ANNOTATED_IMAGE_S3_PREFIX = "BEEHIVE/ANNOTATED/"  # Define a prefix for annotated images
 ENCODE_PARAM = [int(cv2.IMWRITE_JPEG_QUALITY), 90]
 
+# --- Configuration for Batch Diagnosis ---
+MAX_BATCH_SIZE = int(os.environ.get("MAX_BATCH_SIZE", "32"))
+BATCH_IO_WORKERS = int(os.environ.get("BATCH_IO_WORKERS", "8"))
+NDJSON_MEDIA_TYPE = "application/x-ndjson"
 
-# --- API Endpoints ---
-@app.post("/beehives/diagnosis", response_model=DiagnosisResponse)
-async def diagnose_beehive(body: DiagnosisRequest = Body(...)):
+
+# --- Pipeline Steps ---
+def load_original_image(original_s3_key: str) -> np.ndarray:
     """
-    Receives an S3 key for an original image, downloads it, performs bee disease diagnosis,
-    uploads the annotated image to S3, and returns the diagnosis results along with
-    the S3 key of the annotated image.
+    Downloads the original image from S3 and decodes it.
+    Raises HTTPException describing the failure.
     """
-    if MODEL is None:
-        # This check is still important as model loading is a direct responsibility of main.py
-        raise HTTPException(
-            status_code=503, detail="Model not loaded. Service unavailable."
-        )
-
-    original_s3_key = body.s3Key
-
     # 1. Download the original image from S3
     try:
-        print(f"Received request to diagnose image with S3 key: {original_s3_key}")
+        print(f"Downloading image with S3 key: {original_s3_key}")
         img_bytes = get_s3_object_bytes(original_s3_key)
     except FileNotFoundError:
         print(f"FileNotFoundError for key '{original_s3_key}'.")
@@ -107,21 +120,14 @@ async def diagnose_beehive(body: DiagnosisRequest = Body(...)):
             status_code=415, detail=f"Could not decode image from S3: {e}"
         )
 
-    # 3. Perform analysis using the bee_analyzer module
-    try:
-        diagnosis_result, annotated_img_np = analyze_bee_image(MODEL, img_np)
-    except RuntimeError as e:
-        print(f"Model inference error for image (key: {original_s3_key}): {e}")
-        raise HTTPException(status_code=500, detail=f"Model inference error: {e}")
-    except ValueError as e:
-        print(f"Image processing error for image (key: {original_s3_key}): {e}")
-        raise HTTPException(status_code=400, detail=f"Image processing error: {e}")
-    except Exception as e:
-        print(f"Unexpected error during image analysis (key: {original_s3_key}): {e}")
-        raise HTTPException(
-            status_code=500, detail="An internal error occurred during image analysis."
-        )
+    return img_np
 
+
+def upload_annotated_image(original_s3_key: str, annotated_img_np: np.ndarray) -> str:
+    """
+    Encodes the annotated image, uploads it to S3 and returns its S3 key.
+    Raises HTTPException describing the failure.
+    """
     # 4. Encode the annotated image to JPEG bytes
     ok, annotated_img_buf = cv2.imencode(".jpg", annotated_img_np, ENCODE_PARAM)
     if not ok:
@@ -183,6 +189,72 @@ async def diagnose_beehive(body: DiagnosisRequest = Body(...)):
             detail="Failed to upload annotated image to S3: An unexpected error occurred.",
         )
 
+    return annotated_s3_key
+
+
+# --- API Endpoints ---
+@app.post("/beehives/diagnosis", response_model=DiagnosisResponse)
+async def diagnose_beehive(body: DiagnosisRequest = Body(...)):
+    """
+    Receives an S3 key for an original image, downloads it, performs bee disease diagnosis,
+    uploads the annotated image to S3, and returns the diagnosis results along with
+    the S3 key of the annotated image.
+    """
+    return diagnose_single(body.s3Key)
+
+
+@app.post("/beehives/diagnosis/batch", response_model=BatchDiagnosisResponse)
+def diagnose_beehive_batch(request: Request, body: BatchDiagnosisRequest = Body(...)):
+    """
+    Diagnoses several images with a single model invocation.
+    Downloads and uploads run concurrently; a failure of one image is reported in its own
+    result instead of failing the whole batch.
+    Clients that accept application/x-ndjson get one result per line instead of a single document.
+    """
+    if len(body.s3Keys) > MAX_BATCH_SIZE:
+        raise HTTPException(
+            status_code=413,
+            detail=f"Batch too large: {len(body.s3Keys)} images (limit: {MAX_BATCH_SIZE}).",
+        )
+    return batch_response(request, run_batch_diagnosis(body.s3Keys))
+
+
+# --- Diagnosis shared by the HTTP and gRPC transports ---
+def require_model():
+    if MODEL is None:
+        # This check is still important as model loading is a direct responsibility of main.py
+        raise HTTPException(
+            status_code=503, detail="Model not loaded. Service unavailable."
+        )
+
+
+def diagnose_single(original_s3_key: str) -> DiagnosisResponse:
+    """
+    Diagnoses one image. Raises HTTPException describing the failure.
+    """
+    require_model()
+
+    # 1-2. Download and decode the original image
+    img_np = load_original_image(original_s3_key)
+
+    # 3. Perform analysis using the bee_analyzer module
+    try:
+        diagnosis_result, annotated_img_np = analyze_bee_image(MODEL, img_np)
+    except RuntimeError as e:
+        print(f"Model inference error for image (key: {original_s3_key}): {e}")
+        raise HTTPException(status_code=500, detail=f"Model inference error: {e}")
+    except ValueError as e:
+        print(f"Image processing error for image (key: {original_s3_key}): {e}")
+        raise HTTPException(status_code=400, detail=f"Image processing error: {e}")
+    except Exception as e:
+        print(f"Unexpected error during image analysis (key: {original_s3_key}): {e}")
+        raise HTTPException(
+            status_code=500, detail="An internal error occurred during image analysis."
+        )
+
+    # 4-5. Encode the annotated image and upload it to S3
+    annotated_s3_key = upload_annotated_image(original_s3_key, annotated_img_np)
+
     # 6. Return diagnosis and S3 key of the annotated image
     return DiagnosisResponse(
         diagnosis=diagnosis_result,
@@ -190,6 +262,95 @@ async def diagnose_beehive(body: DiagnosisRequest = Body(...)):
     )
 
 
+def run_batch_diagnosis(s3_keys: List[str]) -> List[BatchDiagnosisResult]:
+    """
+    Diagnoses the images with a single model invocation and returns their results in request order.
+    Results are tracked by position, one per requested key.
+    Raises HTTPException when the model is not loaded or a key is requested more than once.
+    """
+    require_model()
+
+    duplicates = sorted({key for key in s3_keys if s3_keys.count(key) > 1})
+    if duplicates:
+        raise HTTPException(status_code=400, detail=f"Duplicate S3 keys in batch: {', '.join(duplicates)}")
+
+    print(f"Received request to diagnose batch of {len(s3_keys)} images.")
+    results = [BatchDiagnosisResult(s3Key=key) for key in s3_keys]
+
+    def try_load(index: int):
+        try:
+            return load_original_image(s3_keys[index])
+        except HTTPException as e:
+            results[index].error = str(e.detail)
+            return None
+
+    # 1-2. Download and decode all images concurrently
+    with ThreadPoolExecutor(max_workers=max(1, min(BATCH_IO_WORKERS, len(s3_keys)))) as pool:
+        images = list(pool.map(try_load, range(len(s3_keys))))
+
+    loaded = [(index, img) for index, img in enumerate(images) if img is not None]
+    if not loaded:
+        return results
+
+    # 3. Batched inference
+    try:
+        analyses = analyze_bee_images(MODEL, [img for _, img in loaded])
+    except Exception as e:
+        print(f"Batch analysis failed: {e}")
+        for index, _ in loaded:
+            results[index].error = f"Model inference error: {e}"
+        return results
+
+    def try_upload(item):
+        (index, _), (diagnosis_result, annotated_img_np) = item
+        try:
+            results[index].annotatedImageS3Key = upload_annotated_image(s3_keys[index], annotated_img_np)
+            results[index].diagnosis = diagnosis_result
+        except HTTPException as e:
+            results[index].error = str(e.detail)
+
+    # 4-5. Encode and upload the annotated images concurrently
+    with ThreadPoolExecutor(max_workers=max(1, min(BATCH_IO_WORKERS, len(loaded)))) as pool:
+        list(pool.map(try_upload, zip(loaded, analyses)))
+
+    # 6. Return per-image results in request order
+    return results
+
+
+def batch_response(request: Request, results: List[BatchDiagnosisResult]):
+    if NDJSON_MEDIA_TYPE in request.headers.get("accept", ""):
+        return StreamingResponse(
+            (result.json() + "\n" for result in results), media_type=NDJSON_MEDIA_TYPE
+        )
+    return BatchDiagnosisResponse(results=results)
+
+
+# --- gRPC Transport ---
+# Served next to the HTTP endpoints when GRPC_PORT is set (backend: ai-server.transport=GRPC).
+GRPC_PORT = os.environ.get("GRPC_PORT")
+grpc_server = None
+
+
+@app.on_event("startup")
+def start_grpc_server():
+    global grpc_server
+    if not GRPC_PORT:
+        return
+    from grpc_server import AiDiagnosisServicer, serve
+
+    grpc_server = serve(
+        int(GRPC_PORT),
+        AiDiagnosisServicer(diagnose_single, run_batch_diagnosis, MAX_BATCH_SIZE),
+    )
+    print(f"Serving Beehive-Diagnosis gRPC API on port {GRPC_PORT}")
+
+
+@app.on_event("shutdown")
+def stop_grpc_server():
+    if grpc_server is not None:
+        grpc_server.stop(grace=10).wait()
+
+
 # --- Main Execution ---
 if __name__ == "__main__":
     try:
@@ -209,4 +370,4 @@ if __name__ == "__main__":
         )
     else:
         print(f"Starting Beehive-Diagnosis API on http://0.0.0.0:8001")
-        uvicorn.run(app, host="0.0.0.0", port=8001, reload=False)
+        uvicorn.run(app, host="0.0.0.0", port=8001, reload=False, timeout_keep_alive=75)
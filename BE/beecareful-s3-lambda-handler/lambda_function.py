@@ -6,9 +6,52 @@ import urllib3 # Using urllib3 which is available in AWS Lambda environment
 API_HOST = os.environ.get('API_HOST')
 API_PATH = os.environ.get('API_PATH')
 API_KEY = os.environ.get('API_KEY')
+API_BATCH_PATH = os.environ.get('API_BATCH_PATH') # Optional, e.g. /api/v1/s3/batch
 
 http = urllib3.PoolManager()
 
+
+def post_to_api(endpoint, body):
+    """
+    POSTs a JSON body to the backend API with the API key header.
+    Raises on network failures and retryable responses so that Lambda can retry the invocation.
+    """
+    headers = {
+        'Content-Type': 'application/json',
+        'X-API-Key': API_KEY
+    }
+
+    encoded_payload = json.dumps(body).encode('utf-8')
+
+    try:
+        response = http.request(
+            'POST',
+            endpoint,
+            body=encoded_payload,
+            headers=headers,
+            retries=urllib3.Retry(total=3, backoff_factor=0.2) # Basic retry mechanism
+        )
+
+        print(f"API Response Status: {response.status}")
+        print(f"API Response Data: {response.data.decode('utf-8')}")
+
+        if response.status >= 400:
+            # Handle API errors
+            print(f"Error calling API: Status {response.status}, Response: {response.data.decode('utf-8')}")
+            # You might want to implement more robust error handling here,
+            # like sending to a Dead Letter Queue (DLQ)
+            if response.status == 409 or response.status >= 500:
+                # 409: an earlier delivery of the event is still being processed, retry once it has finished
+                raise RuntimeError(f"Retryable API response: Status {response.status}")
+    except urllib3.exceptions.MaxRetryError as e:
+        print(f"Error sending data to API after multiple retries: {str(e)}")
+        # Handle persistent network issues
+        raise e # This will cause Lambda to retry if configured, or go to DLQ
+    except Exception as e:
+        print(f"An unexpected error occurred while sending data to API: {str(e)}")
+        raise e
+
+
 def lambda_handler(event, context):
     """
     Handles S3 PutObject events and relays them to an external API.
@@ -43,12 +86,15 @@ def lambda_handler(event, context):
 
     try:
         # Extract relevant information from the S3 event
+        payloads = []
         for record in event.get('Records', []):
             s3_event = record.get('s3', {})
             bucket_name = s3_event.get('bucket', {}).get('name')
             s3_object_info = s3_event.get('object', {})
             object_key = s3_object_info.get('key')
             object_size = s3_object_info.get('size') # Get the object size
+            e_tag = s3_object_info.get('eTag')
+            sequencer = s3_object_info.get('sequencer') # Unique per object event, used for deduplication
 
             event_time = record.get('eventTime')
             aws_region = record.get('awsRegion')
@@ -66,41 +112,21 @@ def lambda_handler(event, context):
                 'eventTime': event_time,
                 'eventName': event_name,
                 'awsRegion': aws_region,
+                'eTag': e_tag,
+                'sequencer': sequencer,
             }
 
-            print(f"Sending payload to API: {json.dumps(payload)}")
-
-            headers = {
-                'Content-Type': 'application/json',
-                'X-API-Key': API_KEY
-            }
+            payloads.append(payload)
 
-            encoded_payload = json.dumps(payload).encode('utf-8')
-
-            try:
-                response = http.request(
-                    'POST',
-                    api_endpoint, # Use the constructed endpoint
-                    body=encoded_payload,
-                    headers=headers,
-                    retries=urllib3.Retry(total=3, backoff_factor=0.2) # Basic retry mechanism
-                )
-
-                print(f"API Response Status: {response.status}")
-                print(f"API Response Data: {response.data.decode('utf-8')}")
-
-                if response.status >= 400:
-                    # Handle API errors
-                    print(f"Error calling API: Status {response.status}, Response: {response.data.decode('utf-8')}")
-                    # You might want to implement more robust error handling here,
-                    # like sending to a Dead Letter Queue (DLQ)
-            except urllib3.exceptions.MaxRetryError as e:
-                print(f"Error sending data to API after multiple retries: {str(e)}")
-                # Handle persistent network issues
-                raise e # This will cause Lambda to retry if configured, or go to DLQ
-            except Exception as e:
-                print(f"An unexpected error occurred while sending data to API: {str(e)}")
-                raise e
+        # One request for the whole notification when the batch endpoint is configured
+        if API_BATCH_PATH and len(payloads) > 1:
+            batch_endpoint = API_HOST.rstrip('/') + '/' + API_BATCH_PATH.lstrip('/')
+            print(f"Sending batch of {len(payloads)} payloads to API: {batch_endpoint}")
+            post_to_api(batch_endpoint, payloads)
+        else:
+            for payload in payloads:
+                print(f"Sending payload to API: {json.dumps(payload)}")
+                post_to_api(api_endpoint, payload)
 
         return {
             'statusCode': 200,
@@ -109,11 +135,8 @@ def lambda_handler(event, context):
 
     except Exception as e:
         print(f"Error processing S3 event: {str(e)}")
-        # Consider sending to DLQ or logging more detailed error information
-        return {
-            'statusCode': 500,
-            'body': json.dumps({'error': str(e)})
-        }
+        # Re-raise so that the asynchronous invocation is retried and finally sent to the DLQ
+        raise
 
 # Example S3 Put Event (for testing locally, not part of Lambda deployment)
 if __name__ == '__main__':
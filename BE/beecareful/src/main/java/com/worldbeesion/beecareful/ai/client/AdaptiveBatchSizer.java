@@ -0,0 +1,64 @@
+package com.worldbeesion.beecareful.ai.client;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Chooses how many photos go into one AI batch request.
+ * Additive increase while batches finish within the target latency, multiplicative decrease
+ * when a batch is slow or fails, so the batch size settles at what the AI server can absorb.
+ */
+@Component
+@Slf4j
+public class AdaptiveBatchSizer {
+
+    private final int minSize;
+    private final int maxSize;
+    private final Duration targetLatency;
+
+    private final AtomicInteger currentSize;
+
+    public AdaptiveBatchSizer(
+        @Value("${ai-server.batch.min-size:1}") int minSize,
+        @Value("${ai-server.batch.max-size:16}") int maxSize,
+        @Value("${ai-server.batch.initial-size:4}") int initialSize,
+        @Value("${ai-server.batch.target-latency:20s}") Duration targetLatency) {
+        Assert.isTrue(minSize >= 1 && minSize <= maxSize, "ai-server.batch.min-size must be between 1 and max-size");
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.targetLatency = targetLatency;
+        this.currentSize = new AtomicInteger(Math.max(minSize, Math.min(maxSize, initialSize)));
+    }
+
+    public int currentSize() {
+        return currentSize.get();
+    }
+
+    public void onSuccess(int batchSize, Duration latency) {
+        if (latency.compareTo(targetLatency) > 0) {
+            decrease();
+            log.debug("Batch of {} took {} ms (> target {} ms), batch size decreased to {}",
+                batchSize, latency.toMillis(), targetLatency.toMillis(), currentSize.get());
+            return;
+        }
+        // only grow when the batch was actually full, otherwise the latency says nothing about a larger size
+        if (batchSize >= currentSize.get()) {
+            currentSize.updateAndGet(size -> Math.min(maxSize, size + 1));
+        }
+    }
+
+    public void onFailure() {
+        decrease();
+        log.debug("Batch request failed, batch size decreased to {}", currentSize.get());
+    }
+
+    private void decrease() {
+        currentSize.updateAndGet(size -> Math.max(minSize, size / 2));
+    }
+}
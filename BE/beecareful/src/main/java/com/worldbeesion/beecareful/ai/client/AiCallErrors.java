@@ -0,0 +1,62 @@
+package com.worldbeesion.beecareful.ai.client;
+
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Classifies failed AI calls the same way for both transports, HTTP and gRPC.
+ */
+final class AiCallErrors {
+
+    private static final Set<Status.Code> CLIENT_ERROR_CODES = EnumSet.of(
+        Status.Code.INVALID_ARGUMENT, Status.Code.NOT_FOUND, Status.Code.PERMISSION_DENIED,
+        Status.Code.FAILED_PRECONDITION, Status.Code.OUT_OF_RANGE);
+
+    private static final Set<Status.Code> TRANSIENT_CODES = EnumSet.of(
+        Status.Code.UNAVAILABLE, Status.Code.DEADLINE_EXCEEDED, Status.Code.RESOURCE_EXHAUSTED, Status.Code.ABORTED);
+
+    private AiCallErrors() {
+    }
+
+    /**
+     * A 4xx response or its gRPC equivalent: the request was at fault, not the instance.
+     */
+    static boolean isClientError(Throwable error) {
+        if (error instanceof WebClientResponseException e) {
+            return e.getStatusCode().is4xxClientError();
+        }
+        return error instanceof StatusRuntimeException e && CLIENT_ERROR_CODES.contains(e.getStatus().getCode());
+    }
+
+    /**
+     * Connection errors, timeouts, 5xx and 429 responses and their gRPC equivalents, looking through the causes
+     * and the suppressed errors a hedged call attaches.
+     */
+    static boolean isTransient(Throwable error) {
+        if (error instanceof AiCallRejectedException) {
+            return false;
+        }
+        if (error instanceof WebClientResponseException e) {
+            return e.getStatusCode().is5xxServerError() || e.getStatusCode().value() == 429;
+        }
+        if (error instanceof StatusRuntimeException e) {
+            return TRANSIENT_CODES.contains(e.getStatus().getCode());
+        }
+        if (error instanceof WebClientRequestException || error instanceof TimeoutException) {
+            return true;
+        }
+        for (Throwable suppressed : error.getSuppressed()) {
+            if (isTransient(suppressed)) {
+                return true;
+            }
+        }
+        return error.getCause() != null && error.getCause() != error && isTransient(error.getCause());
+    }
+}
@@ -0,0 +1,11 @@
+package com.worldbeesion.beecareful.ai.client;
+
+/**
+ * An AI call that was never sent because the limiter queue was full or the call waited in it for too long.
+ */
+public class AiCallRejectedException extends RuntimeException {
+
+    public AiCallRejectedException(String message) {
+        super(message);
+    }
+}
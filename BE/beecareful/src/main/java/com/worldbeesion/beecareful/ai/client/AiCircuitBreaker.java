@@ -0,0 +1,170 @@
+package com.worldbeesion.beecareful.ai.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+
+/**
+ * Circuit breaker in front of the AI server.
+ * Trips OPEN when the failure rate of the last windowSize calls reaches the threshold; while OPEN no call is
+ * permitted, so callers wait in the {@link AiConcurrencyLimiter} queue instead of piling onto a struggling server.
+ * After openDuration it lets halfOpenCalls trial calls through: if all succeed it closes, otherwise it opens again.
+ */
+@Component
+@Slf4j
+public class AiCircuitBreaker {
+
+    public enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final Duration openDuration;
+    private final int halfOpenCalls;
+    private final MeterRegistry meterRegistry;
+
+    // outcome ring buffer of the last windowSize calls in CLOSED state
+    private final boolean[] window;
+    private int windowPosition;
+    private int windowCount;
+    private int windowFailures;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int halfOpenPermitted;
+    private int halfOpenSucceeded;
+
+    public AiCircuitBreaker(
+        @Value("${ai-server.circuit-breaker.window-size:20}") int windowSize,
+        @Value("${ai-server.circuit-breaker.minimum-calls:10}") int minimumCalls,
+        @Value("${ai-server.circuit-breaker.failure-rate-threshold:50}") double failureRateThreshold,
+        @Value("${ai-server.circuit-breaker.open-duration:30s}") Duration openDuration,
+        @Value("${ai-server.circuit-breaker.half-open-calls:3}") int halfOpenCalls,
+        MeterRegistry meterRegistry) {
+        Assert.isTrue(minimumCalls >= 1 && minimumCalls <= windowSize, "ai-server.circuit-breaker.minimum-calls must be between 1 and window-size");
+        Assert.isTrue(halfOpenCalls >= 1, "ai-server.circuit-breaker.half-open-calls must be positive");
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDuration = openDuration;
+        this.halfOpenCalls = halfOpenCalls;
+        this.meterRegistry = meterRegistry;
+        this.window = new boolean[windowSize];
+
+        Gauge.builder("ai.circuit-breaker.state", this, breaker -> breaker.getState().ordinal())
+            .description("State of the AI server circuit breaker: 0 closed, 1 half-open, 2 open")
+            .register(meterRegistry);
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openDuration.toNanos()) {
+            transitionTo(State.HALF_OPEN);
+        }
+        return state;
+    }
+
+    /**
+     * Takes a permission for one call. A caller that got one must report the call with onSuccess or onFailure.
+     */
+    public synchronized boolean tryAcquirePermission() {
+        return switch (getState()) {
+            case CLOSED -> true;
+            case HALF_OPEN -> {
+                if (halfOpenPermitted < halfOpenCalls) {
+                    halfOpenPermitted++;
+                    yield true;
+                }
+                yield false;
+            }
+            case OPEN -> false;
+        };
+    }
+
+    /**
+     * How long until an OPEN breaker lets trial calls through; zero otherwise.
+     */
+    public synchronized Duration remainingOpenDuration() {
+        if (getState() != State.OPEN) {
+            return Duration.ZERO;
+        }
+        return openDuration.minusNanos(System.nanoTime() - openedAt);
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++halfOpenSucceeded >= halfOpenCalls) {
+                transitionTo(State.CLOSED);
+            }
+            return;
+        }
+        record(false);
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            transitionTo(State.OPEN);
+            return;
+        }
+        record(true);
+    }
+
+    /**
+     * Returns the permission of a call that ended without an outcome, e.g. because it was cancelled.
+     */
+    public synchronized void releasePermission() {
+        if (state == State.HALF_OPEN && halfOpenPermitted > halfOpenSucceeded) {
+            halfOpenPermitted--;
+        }
+    }
+
+    private void record(boolean failed) {
+        if (state != State.CLOSED) {
+            return;
+        }
+        if (windowCount == windowSize && window[windowPosition]) {
+            windowFailures--;
+        }
+        window[windowPosition] = failed;
+        if (failed) {
+            windowFailures++;
+        }
+        windowPosition = (windowPosition + 1) % windowSize;
+        windowCount = Math.min(windowCount + 1, windowSize);
+
+        if (windowCount >= minimumCalls && windowFailures * 100.0 / windowCount >= failureRateThreshold) {
+            transitionTo(State.OPEN);
+        }
+    }
+
+    private void transitionTo(State newState) {
+        log.warn("AI server circuit breaker {} -> {}", state, newState);
+        state = newState;
+        switch (newState) {
+            case OPEN -> openedAt = System.nanoTime();
+            case HALF_OPEN -> {
+                halfOpenPermitted = 0;
+                halfOpenSucceeded = 0;
+            }
+            case CLOSED -> {
+                windowPosition = 0;
+                windowCount = 0;
+                windowFailures = 0;
+            }
+        }
+        Counter.builder("ai.circuit-breaker.transitions")
+            .description("State changes of the AI server circuit breaker")
+            .tag("state", newState.name())
+            .register(meterRegistry)
+            .increment();
+    }
+}
@@ -0,0 +1,290 @@
+package com.worldbeesion.beecareful.ai.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Caps the number of in-flight AI requests with an AIMD limit driven by the observed latency.
+ * The limit grows by about one per limit's worth of calls that finish within the target latency while the limiter
+ * is in full use, and shrinks by backoffRatio on every slow or failed call.
+ * Calls over the limit, or made while the {@link AiCircuitBreaker} is open, wait in a bounded FIFO queue;
+ * a call that finds the queue full or waits longer than maxQueueWait fails with {@link AiCallRejectedException}.
+ * <p>
+ * 4xx responses and their gRPC equivalents are the caller's fault and count neither towards the limit
+ * nor the breaker.
+ */
+@Component
+@Slf4j
+public class AiConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final Duration targetLatency;
+    private final double backoffRatio;
+    private final int queueCapacity;
+    private final Duration maxQueueWait;
+    private final AiCircuitBreaker circuitBreaker;
+
+    private final Deque<PendingCall<?>> queue = new ArrayDeque<>();
+    private final Counter queueFullRejections;
+    private final Counter queueTimeoutRejections;
+
+    private double limit;
+    private int inFlight;
+    private boolean drainScheduled;
+
+    public AiConcurrencyLimiter(
+        @Value("${ai-server.limiter.min-limit:1}") int minLimit,
+        @Value("${ai-server.limiter.max-limit:64}") int maxLimit,
+        @Value("${ai-server.limiter.initial-limit:8}") int initialLimit,
+        @Value("${ai-server.limiter.target-latency:10s}") Duration targetLatency,
+        @Value("${ai-server.limiter.backoff-ratio:0.9}") double backoffRatio,
+        @Value("${ai-server.limiter.queue-capacity:1000}") int queueCapacity,
+        @Value("${ai-server.limiter.max-queue-wait:60s}") Duration maxQueueWait,
+        AiCircuitBreaker circuitBreaker,
+        MeterRegistry meterRegistry) {
+        Assert.isTrue(minLimit >= 1 && minLimit <= maxLimit, "ai-server.limiter.min-limit must be between 1 and max-limit");
+        Assert.isTrue(backoffRatio > 0 && backoffRatio < 1, "ai-server.limiter.backoff-ratio must be in (0, 1)");
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetLatency = targetLatency;
+        this.backoffRatio = backoffRatio;
+        this.queueCapacity = queueCapacity;
+        this.maxQueueWait = maxQueueWait;
+        this.circuitBreaker = circuitBreaker;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+
+        Gauge.builder("ai.limiter.limit", this, AiConcurrencyLimiter::getLimit)
+            .description("Current limit of in-flight AI requests")
+            .register(meterRegistry);
+        Gauge.builder("ai.limiter.in-flight", this, AiConcurrencyLimiter::getInFlight)
+            .description("AI requests currently in flight")
+            .register(meterRegistry);
+        Gauge.builder("ai.limiter.queue.size", this, AiConcurrencyLimiter::getQueueSize)
+            .description("AI requests waiting for a permit")
+            .register(meterRegistry);
+        this.queueFullRejections = Counter.builder("ai.limiter.rejections")
+            .description("AI requests rejected without being sent")
+            .tag("reason", "queue-full")
+            .register(meterRegistry);
+        this.queueTimeoutRejections = Counter.builder("ai.limiter.rejections")
+            .description("AI requests rejected without being sent")
+            .tag("reason", "queue-timeout")
+            .register(meterRegistry);
+    }
+
+    public synchronized int getLimit() {
+        return (int)limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * Runs the call once a permit is free and the breaker allows it. The call is created lazily, so nothing is
+     * sent while it waits.
+     */
+    public <T> Mono<T> execute(Supplier<Mono<T>> call) {
+        return execute(call, targetLatency);
+    }
+
+    /**
+     * Same as {@link #execute(Supplier)} for calls that are expected to take longer, such as batch requests.
+     */
+    public <T> Mono<T> execute(Supplier<Mono<T>> call, Duration callTargetLatency) {
+        return Mono.create(sink -> {
+            PendingCall<T> pending = new PendingCall<>(call, callTargetLatency, sink);
+            synchronized (this) {
+                if (queue.size() >= queueCapacity) {
+                    queueFullRejections.increment();
+                    sink.error(new AiCallRejectedException("AI request queue is full"));
+                    return;
+                }
+                queue.addLast(pending);
+            }
+            Disposable timeout = Schedulers.parallel().schedule(() -> expire(pending), maxQueueWait.toMillis(), TimeUnit.MILLISECONDS);
+            sink.onDispose(() -> {
+                timeout.dispose();
+                cancel(pending);
+            });
+            drain();
+        });
+    }
+
+    private void expire(PendingCall<?> pending) {
+        boolean removed;
+        synchronized (this) {
+            removed = queue.remove(pending);
+        }
+        if (removed) {
+            queueTimeoutRejections.increment();
+            pending.sink().error(new AiCallRejectedException("AI request waited longer than " + maxQueueWait));
+        }
+    }
+
+    private void cancel(PendingCall<?> pending) {
+        synchronized (this) {
+            queue.remove(pending);
+        }
+        Disposable subscription = pending.subscription;
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            PendingCall<?> next;
+            synchronized (this) {
+                if (queue.isEmpty() || inFlight >= (int)limit) {
+                    return;
+                }
+                if (!circuitBreaker.tryAcquirePermission()) {
+                    scheduleDrain(circuitBreaker.remainingOpenDuration());
+                    return;
+                }
+                next = queue.pollFirst();
+                inFlight++;
+            }
+            start(next);
+        }
+    }
+
+    // retries the drain when the breaker is due to half-open, or shortly while its trial calls are taken
+    private void scheduleDrain(Duration delay) {
+        if (drainScheduled) {
+            return;
+        }
+        drainScheduled = true;
+        long delayMillis = Math.max(delay.toMillis(), 100);
+        Schedulers.parallel().schedule(() -> {
+            synchronized (this) {
+                drainScheduled = false;
+            }
+            drain();
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private <T> void start(PendingCall<T> pending) {
+        long startedAt = System.nanoTime();
+        Mono<T> call;
+        try {
+            call = pending.call().get();
+        } catch (RuntimeException e) {
+            call = Mono.error(e);
+        }
+        pending.subscription = call
+            .doOnCancel(() -> {
+                if (pending.settle()) {
+                    onCancel();
+                }
+            })
+            .subscribe(
+                value -> {
+                    if (pending.settle()) {
+                        onComplete(pending, startedAt, null);
+                    }
+                    pending.sink().success(value);
+                },
+                error -> {
+                    if (pending.settle()) {
+                        onComplete(pending, startedAt, error);
+                    }
+                    pending.sink().error(error);
+                },
+                () -> {
+                    if (pending.settle()) {
+                        onComplete(pending, startedAt, null);
+                    }
+                    pending.sink().success();
+                });
+    }
+
+    private void onComplete(PendingCall<?> pending, long startedAt, Throwable error) {
+        Duration latency = Duration.ofNanos(System.nanoTime() - startedAt);
+        boolean clientError = AiCallErrors.isClientError(error);
+
+        synchronized (this) {
+            if ((error != null && !clientError) || latency.compareTo(pending.targetLatency()) > 0) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+            } else if (error == null && inFlight >= (int)limit) {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+            inFlight--;
+        }
+
+        if (clientError) {
+            circuitBreaker.releasePermission();
+        } else if (error != null) {
+            circuitBreaker.onFailure();
+        } else {
+            circuitBreaker.onSuccess();
+        }
+        drain();
+    }
+
+    // the caller gave up, e.g. on its own timeout; the call says nothing about the server
+    private void onCancel() {
+        synchronized (this) {
+            inFlight--;
+        }
+        circuitBreaker.releasePermission();
+        drain();
+    }
+
+    private static final class PendingCall<T> {
+
+        private final Supplier<Mono<T>> call;
+        private final Duration targetLatency;
+        private final MonoSink<T> sink;
+        private final AtomicBoolean settled = new AtomicBoolean();
+        private volatile Disposable subscription;
+
+        private PendingCall(Supplier<Mono<T>> call, Duration targetLatency, MonoSink<T> sink) {
+            this.call = call;
+            this.targetLatency = targetLatency;
+            this.sink = sink;
+        }
+
+        Supplier<Mono<T>> call() {
+            return call;
+        }
+
+        Duration targetLatency() {
+            return targetLatency;
+        }
+
+        MonoSink<T> sink() {
+            return sink;
+        }
+
+        // true for the first of completion and cancellation, so the permit is returned exactly once
+        boolean settle() {
+            return settled.compareAndSet(false, true);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.worldbeesion.beecareful.ai.client;
+
+import com.worldbeesion.beecareful.ai.config.AiWebClientConfig;
+import com.worldbeesion.beecareful.beehive.model.dto.DiagnosisApiResponse;
+import com.worldbeesion.beecareful.beehive.model.dto.DiagnosisBatchApiResponse;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JSON over HTTP client of the AI diagnosis server.
+ * Supports the single-photo endpoint and the batch endpoint, which runs one model invocation for several photos.
+ * Every request goes through the {@link AiConcurrencyLimiter}, which also consults the {@link AiCircuitBreaker},
+ * and is sent to the instance picked by the {@link AiEndpointPool}, both by way of the {@link AiRequestHedger}.
+ * Transient failures are retried as the {@link AiRetryPolicy} allows before the response is validated.
+ */
+@Component
+@ConditionalOnProperty(name = "ai-server.transport", havingValue = "HTTP", matchIfMissing = true)
+@Slf4j
+public class AiDiagnosisClient implements AiDiagnosisTransport {
+
+    private static final String SINGLE_OPERATION = "single";
+    private static final String BATCH_OPERATION = "batch";
+
+    private final String diagnosisPath;
+    private final String batchDiagnosisPath;
+
+    private final WebClient webClient;
+    private final AdaptiveBatchSizer adaptiveBatchSizer;
+    private final AiRequestHedger aiRequestHedger;
+    private final Retry singleRetry;
+    private final Retry batchRetry;
+    private final Duration batchTargetLatency;
+
+    public AiDiagnosisClient(
+        @Value("${ai-server.diagnosis-path}") String diagnosisPath,
+        @Value("${ai-server.batch.path:/beehives/diagnosis/batch}") String batchDiagnosisPath,
+        @Value("${ai-server.batch.target-latency:20s}") Duration batchTargetLatency,
+        AdaptiveBatchSizer adaptiveBatchSizer,
+        @Qualifier(AiWebClientConfig.AI_WEB_CLIENT) WebClient webClient,
+        AiRequestHedger aiRequestHedger,
+        AiRetryPolicy aiRetryPolicy) {
+        this.diagnosisPath = diagnosisPath;
+        this.batchDiagnosisPath = batchDiagnosisPath;
+        this.batchTargetLatency = batchTargetLatency;
+        this.aiRequestHedger = aiRequestHedger;
+        this.singleRetry = aiRetryPolicy.retrySpec(SINGLE_OPERATION);
+        this.batchRetry = aiRetryPolicy.retrySpec(BATCH_OPERATION);
+        this.webClient = webClient;
+        this.adaptiveBatchSizer = adaptiveBatchSizer;
+    }
+
+    @Override
+    public Mono<DiagnosisApiResponse> analyzePhoto(String originalPhotoS3Key) {
+        log.debug("Sending S3 key {} to AI API for analysis.", originalPhotoS3Key);
+
+        return aiRequestHedger.execute(SINGLE_OPERATION, endpoint -> webClient.post()
+                .uri(endpoint.resolve(diagnosisPath))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("s3Key", originalPhotoS3Key))
+                .accept(MediaType.APPLICATION_JSON)
+                .retrieve()
+                .bodyToMono(DiagnosisApiResponse.class))
+            .retryWhen(singleRetry)
+            .flatMap(AiDiagnosisClient::validateResponse)
+            .onErrorResume(e -> {
+                log.error("Error occurred while calling AI API: {}", e.getMessage(), e);
+                return Mono.error(new RuntimeException("Failed to get diagnosis from AI API", e));
+            });
+    }
+
+    /**
+     * The observed latency feeds the {@link AdaptiveBatchSizer}.
+     */
+    @Override
+    public Mono<List<DiagnosisBatchApiResponse.Result>> analyzePhotos(List<String> originalPhotoS3Keys) {
+        if (new HashSet<>(originalPhotoS3Keys).size() < originalPhotoS3Keys.size()) {
+            return Mono.error(new IllegalArgumentException("Duplicate S3 keys in AI batch request"));
+        }
+        return Mono.defer(() -> {
+            log.debug("Sending batch of {} S3 keys to AI API for analysis.", originalPhotoS3Keys.size());
+            long startedAt = System.nanoTime();
+
+            return aiRequestHedger.execute(BATCH_OPERATION, endpoint -> webClient.post()
+                    .uri(endpoint.resolve(batchDiagnosisPath))
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(Map.of("s3Keys", originalPhotoS3Keys))
+                    .accept(MediaType.APPLICATION_NDJSON, MediaType.APPLICATION_JSON)
+                    .exchangeToMono(AiDiagnosisClient::readBatchResults), batchTargetLatency)
+                .retryWhen(batchRetry)
+                .flatMap(results -> validateBatchResults(originalPhotoS3Keys, results))
+                .doOnSuccess(results -> adaptiveBatchSizer.onSuccess(
+                    originalPhotoS3Keys.size(), Duration.ofNanos(System.nanoTime() - startedAt)))
+                .doOnError(e -> adaptiveBatchSizer.onFailure());
+        })
+        .onErrorResume(e -> {
+            log.error("Error occurred while calling AI batch API: {}", e.getMessage(), e);
+            return Mono.error(new RuntimeException("Failed to get batch diagnosis from AI API", e));
+        });
+    }
+
+    static Mono<DiagnosisApiResponse> validateResponse(DiagnosisApiResponse response) {
+        if (response == null) {
+            log.error("AI API returned null response");
+            return Mono.error(new RuntimeException("AI API returned null response"));
+        }
+
+        if (response.diagnosis() == null) {
+            log.error("AI API returned null diagnosis result");
+            return Mono.error(new RuntimeException("AI API returned null diagnosis result"));
+        }
+
+        if (response.annotatedImageS3Key() == null || response.annotatedImageS3Key().isEmpty()) {
+            log.error("AI API returned null or empty analyzed image S3 key");
+            return Mono.error(new RuntimeException("AI API returned null or empty analyzed image S3 key"));
+        }
+
+        log.debug("Received diagnosis result and analyzed image S3 key: {}", response.annotatedImageS3Key());
+        return Mono.just(response);
+    }
+
+    /**
+     * Checks that the AI server answered with exactly one result per requested key, in request order,
+     * so callers can pair results with their photos by position.
+     */
+    static Mono<List<DiagnosisBatchApiResponse.Result>> validateBatchResults(
+        List<String> originalPhotoS3Keys, List<DiagnosisBatchApiResponse.Result> results) {
+        if (results.size() != originalPhotoS3Keys.size()) {
+            log.error("AI API returned {} batch results for {} S3 keys", results.size(), originalPhotoS3Keys.size());
+            return Mono.error(new RuntimeException("AI API returned " + results.size()
+                + " batch results for " + originalPhotoS3Keys.size() + " S3 keys"));
+        }
+        for (int i = 0; i < results.size(); i++) {
+            if (!originalPhotoS3Keys.get(i).equals(results.get(i).s3Key())) {
+                log.error("AI API returned batch result {} for S3 key {}", i, results.get(i).s3Key());
+                return Mono.error(new RuntimeException("AI API returned batch results out of request order"));
+            }
+        }
+        return Mono.just(results);
+    }
+
+    /**
+     * Decodes an NDJSON batch response one result per line, so no buffer has to hold more than a single result.
+     * AI servers that answer with a single JSON document are still understood.
+     */
+    private static Mono<List<DiagnosisBatchApiResponse.Result>> readBatchResults(ClientResponse response) {
+        if (response.statusCode().isError()) {
+            return response.createError();
+        }
+        MediaType contentType = response.headers().contentType().orElse(MediaType.APPLICATION_JSON);
+        if (MediaType.APPLICATION_NDJSON.isCompatibleWith(contentType)) {
+            return response.bodyToFlux(DiagnosisBatchApiResponse.Result.class).collectList();
+        }
+        return response.bodyToMono(DiagnosisBatchApiResponse.class)
+            .flatMap(body -> {
+                if (body.results() == null) {
+                    log.error("AI API returned null batch results");
+                    return Mono.error(new RuntimeException("AI API returned null batch results"));
+                }
+                return Mono.just(body.results());
+            });
+    }
+}
@@ -0,0 +1,28 @@
+package com.worldbeesion.beecareful.ai.client;
+
+import com.worldbeesion.beecareful.beehive.model.dto.DiagnosisApiResponse;
+import com.worldbeesion.beecareful.beehive.model.dto.DiagnosisBatchApiResponse;
+
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Calls the AI diagnosis server. ai-server.transport selects the implementation: JSON over HTTP
+ * ({@link AiDiagnosisClient}, the default) or protobuf over gRPC ({@link GrpcAiDiagnosisClient}).
+ * Both go through the same limiter, endpoint pool, hedging and retry policy.
+ */
+public interface AiDiagnosisTransport {
+
+    /**
+     * Fails unless the response has a diagnosis and an annotated image S3 key.
+     */
+    Mono<DiagnosisApiResponse> analyzePhoto(String originalPhotoS3Key);
+
+    /**
+     * Sends several distinct S3 keys in one request and emits one result per key, in request order.
+     * The Mono fails only when the whole request fails;
+     * per-photo failures are reported through {@link DiagnosisBatchApiResponse.Result#error()}.
+     */
+    Mono<List<DiagnosisBatchApiResponse.Result>> analyzePhotos(List<String> originalPhotoS3Keys);
+}
@@ -0,0 +1,87 @@
+package com.worldbeesion.beecareful.ai.client;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One AI server instance of the {@link AiEndpointPool} with its passive health and latency stats.
+ */
+public class AiEndpoint {
+
+    // weight of the newest sample in the latency moving average
+    private static final double LATENCY_EWMA_ALPHA = 0.2;
+
+    private final URI baseUrl;
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    private double latencyEwmaMillis;
+    private int consecutiveFailures;
+    private int ejections;
+    private long ejectedUntil;
+
+    public AiEndpoint(URI baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    public URI getBaseUrl() {
+        return baseUrl;
+    }
+
+    public URI resolve(String path) {
+        return baseUrl.resolve(path);
+    }
+
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    public synchronized double getLatencyEwmaMillis() {
+        return latencyEwmaMillis;
+    }
+
+    public synchronized boolean isEjected(long now) {
+        return now < ejectedUntil;
+    }
+
+    synchronized long getEjectedUntil() {
+        return ejectedUntil;
+    }
+
+    void acquire() {
+        outstanding.incrementAndGet();
+    }
+
+    void release() {
+        outstanding.decrementAndGet();
+    }
+
+    synchronized void recordLatency(Duration latency) {
+        double millis = latency.toNanos() / 1_000_000.0;
+        latencyEwmaMillis = latencyEwmaMillis == 0 ? millis : LATENCY_EWMA_ALPHA * millis + (1 - LATENCY_EWMA_ALPHA) * latencyEwmaMillis;
+    }
+
+    synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        ejections = 0;
+    }
+
+    /**
+     * @return true if this failure reached the threshold and ejected the endpoint
+     */
+    synchronized boolean onFailure(int failureThreshold, Duration baseEjection, Duration maxEjection, long now) {
+        if (++consecutiveFailures < failureThreshold) {
+            return false;
+        }
+        eject(baseEjection, maxEjection, now);
+        return true;
+    }
+
+    // each ejection in a row lasts twice as long as the one before, up to maxEjection
+    synchronized void eject(Duration baseEjection, Duration maxEjection, long now) {
+        long duration = Math.min(maxEjection.toNanos(), baseEjection.toNanos() << Math.min(ejections, 16));
+        ejectedUntil = now + duration;
+        ejections++;
+        consecutiveFailures = 0;
+    }
+}
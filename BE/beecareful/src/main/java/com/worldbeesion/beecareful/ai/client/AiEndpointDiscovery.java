@@ -0,0 +1,12 @@
+package com.worldbeesion.beecareful.ai.client;
+
+import java.net.URI;
+import java.util.List;
+
+/**
+ * Source of the AI server instances balanced by the {@link AiEndpointPool}.
+ */
+public interface AiEndpointDiscovery {
+
+    List<URI> discover();
+}
@@ -0,0 +1,197 @@
+package com.worldbeesion.beecareful.ai.client;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * Client-side load balancing over the AI server instances found by the {@link AiEndpointDiscovery}.
+ * Each request goes to the healthy instance with the fewest outstanding requests, ties broken at random.
+ * An instance that fails failureThreshold times in a row, or answers slower than slowCallThreshold, is ejected
+ * for ejectionDuration, doubling with every ejection in a row. If every instance is ejected, the one that comes
+ * back first is used anyway rather than failing the request.
+ */
+@Component
+@Slf4j
+public class AiEndpointPool {
+
+    private final AiEndpointDiscovery discovery;
+    private final int failureThreshold;
+    private final Duration slowCallThreshold;
+    private final Duration ejectionDuration;
+    private final Duration maxEjectionDuration;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<URI, List<Meter>> metersByEndpoint = new LinkedHashMap<>();
+    private volatile List<AiEndpoint> endpoints = List.of();
+
+    public AiEndpointPool(
+        AiEndpointDiscovery discovery,
+        @Value("${ai-server.endpoints.failure-threshold:3}") int failureThreshold,
+        @Value("${ai-server.endpoints.slow-call-threshold:60s}") Duration slowCallThreshold,
+        @Value("${ai-server.endpoints.ejection-duration:10s}") Duration ejectionDuration,
+        @Value("${ai-server.endpoints.max-ejection-duration:5m}") Duration maxEjectionDuration,
+        MeterRegistry meterRegistry) {
+        this.discovery = discovery;
+        this.failureThreshold = failureThreshold;
+        this.slowCallThreshold = slowCallThreshold;
+        this.ejectionDuration = ejectionDuration;
+        this.maxEjectionDuration = maxEjectionDuration;
+        this.meterRegistry = meterRegistry;
+        refresh();
+    }
+
+    public List<AiEndpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * Re-reads the instances. Known instances keep their stats; an empty answer keeps the current list.
+     */
+    @Scheduled(fixedDelayString = "${ai-server.endpoints.refresh-interval-ms:30000}")
+    public synchronized void refresh() {
+        List<URI> discovered = discovery.discover();
+        if (discovered.isEmpty()) {
+            log.warn("AI endpoint discovery returned no instances, keeping {}", endpoints.size());
+            return;
+        }
+
+        Map<URI, AiEndpoint> current = new LinkedHashMap<>();
+        endpoints.forEach(endpoint -> current.put(endpoint.getBaseUrl(), endpoint));
+
+        List<AiEndpoint> refreshed = new ArrayList<>();
+        for (URI uri : discovered) {
+            AiEndpoint endpoint = current.remove(uri);
+            if (endpoint == null) {
+                endpoint = new AiEndpoint(uri);
+                registerMeters(endpoint);
+                log.info("AI endpoint added: {}", uri);
+            }
+            refreshed.add(endpoint);
+        }
+        for (URI removed : current.keySet()) {
+            metersByEndpoint.remove(removed).forEach(meterRegistry::remove);
+            log.info("AI endpoint removed: {}", removed);
+        }
+        endpoints = List.copyOf(refreshed);
+    }
+
+    /**
+     * Sends the request built by call to the chosen instance and feeds the outcome back into its health.
+     */
+    public <T> Mono<T> execute(Function<AiEndpoint, Mono<T>> call) {
+        return execute(call, null);
+    }
+
+    /**
+     * Same as {@link #execute(Function)}, but picks another instance than avoid if there is a healthy one,
+     * so a hedged request does not queue up behind the request it is meant to overtake.
+     */
+    public <T> Mono<T> execute(Function<AiEndpoint, Mono<T>> call, AiEndpoint avoid) {
+        return Mono.defer(() -> {
+            AiEndpoint endpoint = select(avoid);
+            endpoint.acquire();
+            long startedAt = System.nanoTime();
+            return call.apply(endpoint)
+                .doOnSuccess(value -> onSuccess(endpoint, Duration.ofNanos(System.nanoTime() - startedAt)))
+                .doOnError(error -> onError(endpoint, error))
+                .doFinally(signal -> endpoint.release());
+        });
+    }
+
+    AiEndpoint select(AiEndpoint avoid) {
+        List<AiEndpoint> snapshot = endpoints;
+        long now = System.nanoTime();
+
+        AiEndpoint best = null;
+        int ties = 0;
+        for (AiEndpoint endpoint : snapshot) {
+            if (endpoint.isEjected(now) || endpoint == avoid) {
+                continue;
+            }
+            if (best == null || endpoint.getOutstanding() < best.getOutstanding()) {
+                best = endpoint;
+                ties = 1;
+            } else if (endpoint.getOutstanding() == best.getOutstanding()
+                && ThreadLocalRandom.current().nextInt(++ties) == 0) {
+                best = endpoint;
+            }
+        }
+        if (best != null) {
+            return best;
+        }
+        if (avoid != null && !avoid.isEjected(now) && snapshot.contains(avoid)) {
+            return avoid;
+        }
+        // panic mode: every instance is ejected
+        return snapshot.stream()
+            .min(Comparator.comparingLong(AiEndpoint::getEjectedUntil))
+            .orElseThrow(() -> new IllegalStateException("No AI endpoints configured"));
+    }
+
+    private void onSuccess(AiEndpoint endpoint, Duration latency) {
+        endpoint.recordLatency(latency);
+        timerOf(endpoint).record(latency);
+        if (latency.compareTo(slowCallThreshold) > 0) {
+            endpoint.eject(ejectionDuration, maxEjectionDuration, System.nanoTime());
+            log.warn("AI endpoint {} ejected after a {} ms response", endpoint.getBaseUrl(), latency.toMillis());
+            return;
+        }
+        endpoint.onSuccess();
+    }
+
+    private void onError(AiEndpoint endpoint, Throwable error) {
+        // a 4xx is about the request, not the instance
+        if (AiCallErrors.isClientError(error)) {
+            return;
+        }
+        if (endpoint.onFailure(failureThreshold, ejectionDuration, maxEjectionDuration, System.nanoTime())) {
+            log.warn("AI endpoint {} ejected after {} failures in a row: {}", endpoint.getBaseUrl(), failureThreshold, error.getMessage());
+        }
+    }
+
+    private Timer timerOf(AiEndpoint endpoint) {
+        return Timer.builder("ai.endpoint.latency")
+            .description("Latency of successful requests per AI server instance")
+            .tag("instance", endpoint.getBaseUrl().toString())
+            .register(meterRegistry);
+    }
+
+    private void registerMeters(AiEndpoint endpoint) {
+        String instance = endpoint.getBaseUrl().toString();
+        metersByEndpoint.put(endpoint.getBaseUrl(), List.of(
+            timerOf(endpoint),
+            Gauge.builder("ai.endpoint.outstanding", endpoint, AiEndpoint::getOutstanding)
+                .description("Outstanding requests per AI server instance")
+                .tag("instance", instance)
+                .register(meterRegistry),
+            Gauge.builder("ai.endpoint.latency.ewma", endpoint, AiEndpoint::getLatencyEwmaMillis)
+                .description("Moving average of the latency per AI server instance in milliseconds")
+                .tag("instance", instance)
+                .register(meterRegistry),
+            Gauge.builder("ai.endpoint.ejected", endpoint, e -> e.isEjected(System.nanoTime()) ? 1 : 0)
+                .description("Whether the AI server instance is currently ejected")
+                .tag("instance", instance)
+                .register(meterRegistry)
+        ));
+    }
+}
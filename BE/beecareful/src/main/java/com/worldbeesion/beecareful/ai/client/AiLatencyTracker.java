@@ -0,0 +1,42 @@
+package com.worldbeesion.beecareful.ai.client;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Latencies of the last windowSize successful calls of one kind, to derive the hedging delay from.
+ */
+class AiLatencyTracker {
+
+    private final long[] samples;
+    private int next;
+    private int count;
+
+    AiLatencyTracker(int windowSize) {
+        this.samples = new long[windowSize];
+    }
+
+    synchronized void record(Duration latency) {
+        samples[next] = latency.toNanos();
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+    }
+
+    /**
+     * @return the latency below which the given share of the recorded calls finished, or empty while fewer than
+     * minSamples calls are recorded
+     */
+    Optional<Duration> percentile(double percentile, int minSamples) {
+        long[] sorted;
+        synchronized (this) {
+            if (count < minSamples || count == 0) {
+                return Optional.empty();
+            }
+            sorted = Arrays.copyOf(samples, count);
+        }
+        Arrays.sort(sorted);
+        int index = Math.min(sorted.length - 1, (int)Math.ceil(percentile * sorted.length) - 1);
+        return Optional.of(Duration.ofNanos(sorted[Math.max(index, 0)]));
+    }
+}
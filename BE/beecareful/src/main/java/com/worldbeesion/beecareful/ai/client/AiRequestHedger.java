@@ -0,0 +1,150 @@
+package com.worldbeesion.beecareful.ai.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Sends AI requests through the {@link AiConcurrencyLimiter} and the {@link AiEndpointPool}, and, when hedging is
+ * enabled, sends a second copy to another instance once the first has been running longer than the observed
+ * percentile latency of its operation. The first answer wins and the other request is cancelled.
+ * <p>
+ * The hedge takes a permit of the limiter like any other request, so hedging can never push the AI servers past
+ * the in-flight limit. No hedge is sent before minSamples calls of the operation are recorded, nor when only one
+ * instance is known.
+ */
+@Component
+@Slf4j
+public class AiRequestHedger {
+
+    private final boolean enabled;
+    private final double percentile;
+    private final int minSamples;
+    private final int windowSize;
+    private final Duration minDelay;
+    private final AiConcurrencyLimiter aiConcurrencyLimiter;
+    private final AiEndpointPool aiEndpointPool;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, AiLatencyTracker> trackers = new ConcurrentHashMap<>();
+
+    public AiRequestHedger(
+        @Value("${ai-server.hedging.enabled:false}") boolean enabled,
+        @Value("${ai-server.hedging.percentile:0.95}") double percentile,
+        @Value("${ai-server.hedging.min-samples:50}") int minSamples,
+        @Value("${ai-server.hedging.window-size:500}") int windowSize,
+        @Value("${ai-server.hedging.min-delay:1s}") Duration minDelay,
+        AiConcurrencyLimiter aiConcurrencyLimiter,
+        AiEndpointPool aiEndpointPool,
+        MeterRegistry meterRegistry) {
+        Assert.isTrue(percentile > 0 && percentile < 1, "ai-server.hedging.percentile must be in (0, 1)");
+        Assert.isTrue(minSamples <= windowSize, "ai-server.hedging.min-samples must not exceed window-size");
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.minSamples = minSamples;
+        this.windowSize = windowSize;
+        this.minDelay = minDelay;
+        this.aiConcurrencyLimiter = aiConcurrencyLimiter;
+        this.aiEndpointPool = aiEndpointPool;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Same as {@link #execute(String, Function, Duration)} with the default target latency of the limiter.
+     */
+    public <T> Mono<T> execute(String operation, Function<AiEndpoint, Mono<T>> request) {
+        return execute(operation, request, null);
+    }
+
+    /**
+     * @param operation     keeps the latencies of requests of different cost apart, e.g. "single" and "batch"
+     * @param request       builds the request for the chosen instance; called once per copy
+     * @param targetLatency passed on to the limiter, null for its default
+     */
+    public <T> Mono<T> execute(String operation, Function<AiEndpoint, Mono<T>> request, Duration targetLatency) {
+        return Mono.defer(() -> {
+            AiLatencyTracker tracker = trackers.computeIfAbsent(operation, key -> new AiLatencyTracker(windowSize));
+            AtomicReference<AiEndpoint> primaryEndpoint = new AtomicReference<>();
+            Sinks.One<Boolean> primaryFailed = Sinks.one();
+
+            Mono<T> primary = send(endpoint -> {
+                primaryEndpoint.set(endpoint);
+                return request.apply(endpoint);
+            }, null, targetLatency, tracker)
+                .doOnError(e -> primaryFailed.tryEmitValue(true));
+
+            Optional<Duration> hedgeDelay = hedgeDelay(tracker);
+            if (hedgeDelay.isEmpty()) {
+                return primary;
+            }
+
+            // a primary that fails before the delay is left to the retry policy instead of being hedged
+            Mono<T> hedge = Mono.delay(hedgeDelay.get())
+                .takeUntilOther(primaryFailed.asMono())
+                .flatMap(ignored -> {
+                    hedgeCounter("ai.hedge.requests", "AI requests hedged to a second instance", operation).increment();
+                    log.debug("Hedging AI {} request after {} ms", operation, hedgeDelay.get().toMillis());
+                    return send(request, primaryEndpoint.get(), targetLatency, tracker)
+                        .doOnNext(value -> hedgeCounter("ai.hedge.wins", "Hedged AI requests that answered first", operation).increment());
+                });
+
+            return Mono.firstWithValue(primary, hedge)
+                .onErrorMap(NoSuchElementException.class, AiRequestHedger::firstError);
+        });
+    }
+
+    private Optional<Duration> hedgeDelay(AiLatencyTracker tracker) {
+        if (!enabled || aiEndpointPool.getEndpoints().size() < 2) {
+            return Optional.empty();
+        }
+        return tracker.percentile(percentile, minSamples)
+            .map(latency -> latency.compareTo(minDelay) < 0 ? minDelay : latency);
+    }
+
+    private <T> Mono<T> send(Function<AiEndpoint, Mono<T>> request, AiEndpoint avoid, Duration targetLatency,
+        AiLatencyTracker tracker) {
+        Supplier<Mono<T>> call = () -> Mono.defer(() -> {
+            long startedAt = System.nanoTime();
+            return aiEndpointPool.execute(request, avoid)
+                .doOnNext(value -> tracker.record(Duration.ofNanos(System.nanoTime() - startedAt)));
+        });
+        return targetLatency == null
+            ? aiConcurrencyLimiter.execute(call)
+            : aiConcurrencyLimiter.execute(call, targetLatency);
+    }
+
+    private Counter hedgeCounter(String name, String description, String operation) {
+        return Counter.builder(name)
+            .description(description)
+            .tag("operation", operation)
+            .register(meterRegistry);
+    }
+
+    // firstWithValue reports a failure of both copies as NoSuchElementException; surface the primary's error instead
+    private static Throwable firstError(NoSuchElementException e) {
+        if (e.getCause() == null) {
+            return e;
+        }
+        List<Throwable> errors = Exceptions.unwrapMultiple(e.getCause());
+        return errors.isEmpty() ? e : errors.get(0);
+    }
+}
@@ -0,0 +1,74 @@
+package com.worldbeesion.beecareful.ai.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+
+/**
+ * Retries AI calls that failed for a transient reason with exponential backoff and jitter:
+ * connection errors, timeouts, 5xx and 429 responses, or the matching gRPC statuses. Calls rejected by the
+ * {@link AiConcurrencyLimiter} and other 4xx responses are not retried, since sending them again would only add
+ * load or fail the same way.
+ * <p>
+ * Every attempt goes through the limiter and the endpoint pool again, so a retry usually lands on another instance.
+ */
+@Component
+@Slf4j
+public class AiRetryPolicy {
+
+    private final int maxRetries;
+    private final Duration minBackoff;
+    private final Duration maxBackoff;
+    private final double jitter;
+    private final MeterRegistry meterRegistry;
+
+    public AiRetryPolicy(
+        @Value("${ai-server.retry.max-retries:2}") int maxRetries,
+        @Value("${ai-server.retry.min-backoff:500ms}") Duration minBackoff,
+        @Value("${ai-server.retry.max-backoff:5s}") Duration maxBackoff,
+        @Value("${ai-server.retry.jitter:0.5}") double jitter,
+        MeterRegistry meterRegistry) {
+        this.maxRetries = maxRetries;
+        this.minBackoff = minBackoff;
+        this.maxBackoff = maxBackoff;
+        this.jitter = jitter;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * @param operation tags the retry counter, e.g. "single" or "batch"
+     */
+    public Retry retrySpec(String operation) {
+        Counter retries = Counter.builder("ai.retry.attempts")
+            .description("AI requests sent again after a transient failure")
+            .tag("operation", operation)
+            .register(meterRegistry);
+
+        return Retry.backoff(maxRetries, minBackoff)
+            .maxBackoff(maxBackoff)
+            .jitter(jitter)
+            .filter(AiCallErrors::isTransient)
+            .doBeforeRetry(signal -> {
+                retries.increment();
+                log.warn("Retrying AI {} request (attempt {}) after: {}",
+                    operation, signal.totalRetries() + 1, signal.failure().toString());
+            })
+            .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+    }
+
+    /**
+     * Longest time a call can take with all its retries when one attempt takes at most attemptTimeout.
+     * The jittered backoff never exceeds maxBackoff.
+     */
+    public Duration maxTotalDuration(Duration attemptTimeout) {
+        return attemptTimeout.multipliedBy(maxRetries + 1L).plus(maxBackoff.multipliedBy(maxRetries));
+    }
+}
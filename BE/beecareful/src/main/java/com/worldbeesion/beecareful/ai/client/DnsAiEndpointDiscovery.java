@@ -0,0 +1,51 @@
+package com.worldbeesion.beecareful.ai.client;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Every address the host of ai-server.baseUrl resolves to, with the scheme and port of the URL.
+ * With docker compose replicas the service name resolves to one address per container.
+ */
+@Component
+@ConditionalOnProperty(name = "ai-server.endpoints.mode", havingValue = "DNS")
+@Slf4j
+public class DnsAiEndpointDiscovery implements AiEndpointDiscovery {
+
+    private final URI baseUrl;
+
+    public DnsAiEndpointDiscovery(@Value("${ai-server.baseUrl}") String baseUrl) {
+        this.baseUrl = URI.create(baseUrl);
+    }
+
+    @Override
+    public List<URI> discover() {
+        try {
+            return Arrays.stream(InetAddress.getAllByName(baseUrl.getHost()))
+                .map(address -> URI.create(baseUrl.getScheme() + "://" + hostOf(address) + portSuffix() + "/"))
+                .distinct()
+                .toList();
+        } catch (UnknownHostException e) {
+            log.warn("Could not resolve AI server host {}: {}", baseUrl.getHost(), e.getMessage());
+            return List.of();
+        }
+    }
+
+    private static String hostOf(InetAddress address) {
+        String host = address.getHostAddress();
+        return host.contains(":") ? "[" + host + "]" : host;
+    }
+
+    private String portSuffix() {
+        return baseUrl.getPort() == -1 ? "" : ":" + baseUrl.getPort();
+    }
+}
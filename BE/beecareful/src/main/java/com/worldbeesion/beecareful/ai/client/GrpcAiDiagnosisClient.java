@@ -0,0 +1,242 @@
+package com.worldbeesion.beecareful.ai.client;
+
+import com.worldbeesion.beecareful.ai.grpc.AiDiagnosisGrpc;
+import com.worldbeesion.beecareful.ai.grpc.DiagnoseRequest;
+import com.worldbeesion.beecareful.ai.grpc.DiagnoseResponse;
+import com.worldbeesion.beecareful.ai.grpc.Diagnosis;
+import com.worldbeesion.beecareful.ai.grpc.ImagoCounts;
+import com.worldbeesion.beecareful.ai.grpc.LarvaCounts;
+import com.worldbeesion.beecareful.beehive.model.dto.DiagnosisApiResponse;
+import com.worldbeesion.beecareful.beehive.model.dto.DiagnosisBatchApiResponse;
+
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.Grpc;
+import io.grpc.InsecureChannelCredentials;
+import io.grpc.ManagedChannel;
+import io.grpc.stub.ClientCalls;
+import io.grpc.stub.StreamObserver;
+
+import jakarta.annotation.PreDestroy;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Protobuf over gRPC client of the AI diagnosis server, used with ai-server.transport=GRPC.
+ * Talks to the same instances as the HTTP client, on ai-server.grpc.port instead of the HTTP port, over one
+ * long-lived HTTP/2 channel per instance. A batch is sent as a bidirectional stream: one message per photo out,
+ * one result per photo back as soon as the server has it.
+ */
+@Component
+@ConditionalOnProperty(name = "ai-server.transport", havingValue = "GRPC")
+@Slf4j
+public class GrpcAiDiagnosisClient implements AiDiagnosisTransport {
+
+    private static final String SINGLE_OPERATION = "single";
+    private static final String BATCH_OPERATION = "batch";
+
+    private final int port;
+    private final Duration deadline;
+    private final Duration keepAliveTime;
+    private final int maxInboundMessageSize;
+    private final Duration batchTargetLatency;
+    private final AdaptiveBatchSizer adaptiveBatchSizer;
+    private final AiRequestHedger aiRequestHedger;
+    private final Retry singleRetry;
+    private final Retry batchRetry;
+
+    private final Map<String, ManagedChannel> channels = new ConcurrentHashMap<>();
+
+    public GrpcAiDiagnosisClient(
+        @Value("${ai-server.grpc.port:50051}") int port,
+        @Value("${ai-server.grpc.deadline:60s}") Duration deadline,
+        @Value("${ai-server.grpc.keep-alive-time:30s}") Duration keepAliveTime,
+        @Value("${ai-server.grpc.max-inbound-message-size:256KB}") DataSize maxInboundMessageSize,
+        @Value("${ai-server.batch.target-latency:20s}") Duration batchTargetLatency,
+        AdaptiveBatchSizer adaptiveBatchSizer,
+        AiRequestHedger aiRequestHedger,
+        AiRetryPolicy aiRetryPolicy) {
+        this.port = port;
+        this.deadline = deadline;
+        this.keepAliveTime = keepAliveTime;
+        this.maxInboundMessageSize = (int)maxInboundMessageSize.toBytes();
+        this.batchTargetLatency = batchTargetLatency;
+        this.adaptiveBatchSizer = adaptiveBatchSizer;
+        this.aiRequestHedger = aiRequestHedger;
+        this.singleRetry = aiRetryPolicy.retrySpec(SINGLE_OPERATION);
+        this.batchRetry = aiRetryPolicy.retrySpec(BATCH_OPERATION);
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        channels.values().forEach(ManagedChannel::shutdown);
+        for (ManagedChannel channel : channels.values()) {
+            channel.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Override
+    public Mono<DiagnosisApiResponse> analyzePhoto(String originalPhotoS3Key) {
+        log.debug("Sending S3 key {} to AI gRPC API for analysis.", originalPhotoS3Key);
+        DiagnoseRequest request = DiagnoseRequest.newBuilder().setS3Key(originalPhotoS3Key).build();
+
+        return aiRequestHedger.execute(SINGLE_OPERATION, endpoint -> diagnose(channelFor(endpoint), request))
+            .retryWhen(singleRetry)
+            .map(response -> new DiagnosisApiResponse(
+                toDiagnosisResult(response), emptyToNull(response.getAnnotatedImageS3Key())))
+            .flatMap(AiDiagnosisClient::validateResponse)
+            .onErrorResume(e -> {
+                log.error("Error occurred while calling AI gRPC API: {}", e.getMessage(), e);
+                return Mono.error(new RuntimeException("Failed to get diagnosis from AI API", e));
+            });
+    }
+
+    /**
+     * The observed latency feeds the {@link AdaptiveBatchSizer}.
+     */
+    @Override
+    public Mono<List<DiagnosisBatchApiResponse.Result>> analyzePhotos(List<String> originalPhotoS3Keys) {
+        if (new HashSet<>(originalPhotoS3Keys).size() < originalPhotoS3Keys.size()) {
+            return Mono.error(new IllegalArgumentException("Duplicate S3 keys in AI batch request"));
+        }
+        return Mono.defer(() -> {
+            log.debug("Streaming batch of {} S3 keys to AI gRPC API for analysis.", originalPhotoS3Keys.size());
+            long startedAt = System.nanoTime();
+
+            return aiRequestHedger.execute(BATCH_OPERATION,
+                    endpoint -> diagnoseStream(channelFor(endpoint), originalPhotoS3Keys), batchTargetLatency)
+                .retryWhen(batchRetry)
+                .flatMap(results -> AiDiagnosisClient.validateBatchResults(originalPhotoS3Keys, results))
+                .doOnSuccess(results -> adaptiveBatchSizer.onSuccess(
+                    originalPhotoS3Keys.size(), Duration.ofNanos(System.nanoTime() - startedAt)))
+                .doOnError(e -> adaptiveBatchSizer.onFailure());
+        })
+        .onErrorResume(e -> {
+            log.error("Error occurred while calling AI gRPC batch API: {}", e.getMessage(), e);
+            return Mono.error(new RuntimeException("Failed to get batch diagnosis from AI API", e));
+        });
+    }
+
+    private Mono<DiagnoseResponse> diagnose(ManagedChannel channel, DiagnoseRequest request) {
+        return Mono.create(sink -> {
+            ClientCall<DiagnoseRequest, DiagnoseResponse> call =
+                channel.newCall(AiDiagnosisGrpc.getDiagnoseMethod(), callOptions());
+            sink.onCancel(() -> call.cancel("Cancelled by the caller", null));
+            ClientCalls.asyncUnaryCall(call, request, new StreamObserver<>() {
+                @Override
+                public void onNext(DiagnoseResponse response) {
+                    sink.success(response);
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    sink.error(error);
+                }
+
+                @Override
+                public void onCompleted() {
+                    sink.success();
+                }
+            });
+        });
+    }
+
+    private Mono<List<DiagnosisBatchApiResponse.Result>> diagnoseStream(ManagedChannel channel,
+        List<String> originalPhotoS3Keys) {
+        return Mono.create(sink -> {
+            List<DiagnosisBatchApiResponse.Result> results = new ArrayList<>(originalPhotoS3Keys.size());
+            ClientCall<DiagnoseRequest, DiagnoseResponse> call =
+                channel.newCall(AiDiagnosisGrpc.getDiagnoseStreamMethod(), callOptions());
+            sink.onCancel(() -> call.cancel("Cancelled by the caller", null));
+
+            // gRPC delivers the callbacks of one call one at a time, so the list needs no locking
+            StreamObserver<DiagnoseRequest> requests = ClientCalls.asyncBidiStreamingCall(call, new StreamObserver<>() {
+                @Override
+                public void onNext(DiagnoseResponse response) {
+                    results.add(toBatchResult(response));
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    sink.error(error);
+                }
+
+                @Override
+                public void onCompleted() {
+                    sink.success(results);
+                }
+            });
+            for (String s3Key : originalPhotoS3Keys) {
+                requests.onNext(DiagnoseRequest.newBuilder().setS3Key(s3Key).build());
+            }
+            requests.onCompleted();
+        });
+    }
+
+    private CallOptions callOptions() {
+        return CallOptions.DEFAULT.withDeadlineAfter(deadline.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private ManagedChannel channelFor(AiEndpoint endpoint) {
+        URI baseUrl = endpoint.getBaseUrl();
+        return channels.computeIfAbsent(baseUrl.getHost(), host -> {
+            log.info("Opening AI gRPC channel to {}:{}", host, port);
+            return Grpc.newChannelBuilderForAddress(host, port, InsecureChannelCredentials.create())
+                .keepAliveTime(keepAliveTime.toMillis(), TimeUnit.MILLISECONDS)
+                .maxInboundMessageSize(maxInboundMessageSize)
+                .build();
+        });
+    }
+
+    private static DiagnosisBatchApiResponse.Result toBatchResult(DiagnoseResponse response) {
+        return new DiagnosisBatchApiResponse.Result(
+            response.getS3Key(),
+            response.hasDiagnosis() ? toDiagnosisResult(response) : null,
+            emptyToNull(response.getAnnotatedImageS3Key()),
+            emptyToNull(response.getError())
+        );
+    }
+
+    private static DiagnosisApiResponse.DiagnosisResult toDiagnosisResult(DiagnoseResponse response) {
+        if (!response.hasDiagnosis()) {
+            return null;
+        }
+        Diagnosis diagnosis = response.getDiagnosis();
+        LarvaCounts larva = diagnosis.getLarva();
+        ImagoCounts imago = diagnosis.getImago();
+        return new DiagnosisApiResponse.DiagnosisResult(
+            new DiagnosisApiResponse.LarvaResult(
+                larva.hasNormalCount() ? larva.getNormalCount() : null,
+                larva.hasVarroaCount() ? larva.getVarroaCount() : null,
+                larva.hasFoulBroodCount() ? larva.getFoulBroodCount() : null,
+                larva.hasChalkBroodCount() ? larva.getChalkBroodCount() : null
+            ),
+            new DiagnosisApiResponse.ImagoResult(
+                imago.hasNormalCount() ? imago.getNormalCount() : null,
+                imago.hasVarroaCount() ? imago.getVarroaCount() : null,
+                imago.hasDwvCount() ? imago.getDwvCount() : null
+            )
+        );
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+}
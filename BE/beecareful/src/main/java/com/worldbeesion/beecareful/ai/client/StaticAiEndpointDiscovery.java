@@ -0,0 +1,32 @@
+package com.worldbeesion.beecareful.ai.client;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.util.List;
+
+/**
+ * A fixed list of instances; without one, the single ai-server.baseUrl.
+ */
+@Component
+@ConditionalOnProperty(name = "ai-server.endpoints.mode", havingValue = "STATIC", matchIfMissing = true)
+public class StaticAiEndpointDiscovery implements AiEndpointDiscovery {
+
+    private final List<URI> endpoints;
+
+    public StaticAiEndpointDiscovery(
+        @Value("${ai-server.baseUrl}") String baseUrl,
+        @Value("${ai-server.endpoints.urls:}") List<String> urls) {
+        List<String> configured = urls.stream().filter(url -> !url.isBlank()).toList();
+        this.endpoints = (configured.isEmpty() ? List.of(baseUrl) : configured).stream()
+            .map(URI::create)
+            .toList();
+    }
+
+    @Override
+    public List<URI> discover() {
+        return endpoints;
+    }
+}
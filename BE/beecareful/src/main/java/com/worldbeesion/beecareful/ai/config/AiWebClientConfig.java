@@ -0,0 +1,87 @@
+package com.worldbeesion.beecareful.ai.config;
+
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.WriteTimeoutHandler;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connection pool and WebClient of the AI server, kept apart from the other HTTP clients of the application.
+ * <p>
+ * The pool is sized for the in-flight limit of the AiConcurrencyLimiter, which already queues the calls, so
+ * only a short acquire queue is needed here. Idle connections are kept alive for less time than the AI server
+ * keeps them open, so a request is never sent on a connection the server is closing. Connections are also
+ * recycled after maxLifeTime so that instances added behind a DNS name get their share of connections.
+ * <p>
+ * HTTP/2 over cleartext (h2c) is used when H2C is among the configured protocols; the default is HTTP/1.1 because
+ * uvicorn does not speak HTTP/2. Pool usage is published as reactor.netty.connection.provider.* with name=ai-server.
+ */
+@Configuration
+public class AiWebClientConfig {
+
+    public static final String AI_WEB_CLIENT = "aiWebClient";
+    public static final String AI_CONNECTION_PROVIDER = "aiConnectionProvider";
+
+    @Bean(name = AI_CONNECTION_PROVIDER, destroyMethod = "dispose")
+    public ConnectionProvider aiConnectionProvider(
+        @Value("${ai-server.http.max-connections:64}") int maxConnections,
+        @Value("${ai-server.http.pending-acquire-max-count:128}") int pendingAcquireMaxCount,
+        @Value("${ai-server.http.pending-acquire-timeout:5s}") Duration pendingAcquireTimeout,
+        @Value("${ai-server.http.max-idle-time:60s}") Duration maxIdleTime,
+        @Value("${ai-server.http.max-life-time:10m}") Duration maxLifeTime,
+        @Value("${ai-server.http.evict-interval:30s}") Duration evictInterval) {
+        return ConnectionProvider.builder("ai-server")
+            .maxConnections(maxConnections)
+            .pendingAcquireMaxCount(pendingAcquireMaxCount)
+            .pendingAcquireTimeout(pendingAcquireTimeout)
+            .maxIdleTime(maxIdleTime)
+            .maxLifeTime(maxLifeTime)
+            .evictInBackground(evictInterval)
+            // reuse the most recently released connection so the others can idle out
+            .lifo()
+            .metrics(true)
+            .build();
+    }
+
+    /**
+     * The WebClient has no base URL; every request is resolved against the instance chosen by the AiEndpointPool.
+     * Responses are decoded with a small in-memory limit, since a diagnosis result is only a few hundred bytes.
+     * Built from the Spring Boot builder so the requests are also recorded as http.client.requests.
+     */
+    @Bean(name = AI_WEB_CLIENT)
+    public WebClient aiWebClient(
+        WebClient.Builder webClientBuilder,
+        ConnectionProvider aiConnectionProvider,
+        @Value("${ai-server.http.protocols:HTTP11}") HttpProtocol[] protocols,
+        @Value("${ai-server.http.connect-timeout:3s}") Duration connectTimeout,
+        @Value("${ai-server.http.response-timeout:60s}") Duration responseTimeout,
+        @Value("${ai-server.http.write-timeout:10s}") Duration writeTimeout,
+        @Value("${ai-server.http.max-in-memory-size:256KB}") DataSize maxInMemorySize) {
+        HttpClient httpClient = HttpClient.create(aiConnectionProvider)
+            .protocol(protocols)
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int)connectTimeout.toMillis())
+            .option(ChannelOption.SO_KEEPALIVE, true)
+            .option(ChannelOption.TCP_NODELAY, true)
+            .keepAlive(true)
+            .responseTimeout(responseTimeout)
+            .doOnConnected(connection -> connection.addHandlerLast(
+                new WriteTimeoutHandler(writeTimeout.toMillis(), TimeUnit.MILLISECONDS)));
+
+        return webClientBuilder
+            .clientConnector(new ReactorClientHttpConnector(httpClient))
+            .codecs(configurer -> configurer.defaultCodecs().maxInMemorySize((int)maxInMemorySize.toBytes()))
+            .build();
+    }
+}
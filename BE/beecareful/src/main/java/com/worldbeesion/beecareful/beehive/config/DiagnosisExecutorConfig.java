@@ -0,0 +1,68 @@
+package com.worldbeesion.beecareful.beehive.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Dedicated thread pool for the AI diagnosis fan-out.
+ * Keeps photo analysis off the shared ForkJoin common pool so that a few large inspections
+ * cannot starve other parallel work in the JVM.
+ */
+@Configuration
+public class DiagnosisExecutorConfig {
+
+    public static final String DIAGNOSIS_EXECUTOR = "diagnosisExecutor";
+    public static final String DIAGNOSIS_DB_SCHEDULER = "diagnosisDbScheduler";
+
+    @Bean(name = DIAGNOSIS_EXECUTOR)
+    public ThreadPoolTaskExecutor diagnosisExecutor(
+        @Value("${diagnosis.executor.core-pool-size:8}") int corePoolSize,
+        @Value("${diagnosis.executor.max-pool-size:16}") int maxPoolSize,
+        @Value("${diagnosis.executor.queue-capacity:200}") int queueCapacity,
+        MeterRegistry meterRegistry) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("diagnosis-");
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(maxPoolSize);
+        executor.setQueueCapacity(queueCapacity);
+        // When both the pool and the queue are full, the submitting thread runs the task itself,
+        // which naturally slows down new diagnoses instead of dropping photos.
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(120);
+        executor.initialize();
+
+        Gauge.builder("diagnosis.executor.queue.size", executor, e -> e.getThreadPoolExecutor().getQueue().size())
+            .description("Number of photo analysis tasks waiting for a diagnosis thread")
+            .register(meterRegistry);
+        Gauge.builder("diagnosis.executor.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+            .description("Number of photo analysis tasks currently running")
+            .register(meterRegistry);
+        Gauge.builder("diagnosis.executor.pool.size", executor, ThreadPoolTaskExecutor::getPoolSize)
+            .description("Current number of threads in the diagnosis pool")
+            .register(meterRegistry);
+
+        return executor;
+    }
+
+    /**
+     * Bounded scheduler for the blocking JPA work of the reactive diagnosis pipeline.
+     * AI calls stay on the WebClient event loop; only status updates and result inserts hop onto these threads.
+     */
+    @Bean(name = DIAGNOSIS_DB_SCHEDULER, destroyMethod = "dispose")
+    public Scheduler diagnosisDbScheduler(
+        @Value("${diagnosis.reactive.db-threads:8}") int dbThreads,
+        @Value("${diagnosis.reactive.db-queue-capacity:10000}") int dbQueueCapacity) {
+        return Schedulers.newBoundedElastic(dbThreads, dbQueueCapacity, "diagnosis-db");
+    }
+}
@@ -0,0 +1,57 @@
+package com.worldbeesion.beecareful.beehive.config;
+
+import com.worldbeesion.beecareful.beehive.service.DiagnosisJobConsumer;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.stream.StreamMessageListenerContainer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.time.Duration;
+
+/**
+ * Redis Stream based diagnosis job queue.
+ * Every backend node joins the same consumer group, so a diagnosis is picked up by whichever node has a free consumer
+ * and survives a restart of the node that received the S3 event.
+ */
+@Configuration
+@ConditionalOnProperty(name = "diagnosis.queue.enabled", havingValue = "true")
+public class DiagnosisQueueConfig {
+
+    public static final String DIAGNOSIS_JOB_EXECUTOR = "diagnosisJobExecutor";
+
+    /**
+     * One long-polling thread per consumer plus reclaimConcurrency threads for reclaimed jobs.
+     * Each consumer handles one job at a time, so the number of consumers is the number of
+     * diagnoses this node runs concurrently besides reclaimed ones.
+     */
+    @Bean(name = DIAGNOSIS_JOB_EXECUTOR)
+    public ThreadPoolTaskExecutor diagnosisJobExecutor(
+        @Value("${diagnosis.queue.concurrency:2}") int concurrency,
+        @Value("${diagnosis.queue.reclaim-concurrency:1}") int reclaimConcurrency) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("diagnosis-job-");
+        executor.setCorePoolSize(concurrency + reclaimConcurrency);
+        executor.setMaxPoolSize(concurrency + reclaimConcurrency);
+        executor.setQueueCapacity(0);
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(destroyMethod = "stop")
+    public StreamMessageListenerContainer<String, MapRecord<String, String, String>> diagnosisJobListenerContainer(
+        RedisConnectionFactory connectionFactory,
+        DiagnosisJobConsumer diagnosisJobConsumer,
+        @Qualifier(DIAGNOSIS_JOB_EXECUTOR) ThreadPoolTaskExecutor diagnosisJobExecutor,
+        @Value("${diagnosis.queue.concurrency:2}") int concurrency,
+        @Value("${diagnosis.queue.reclaim-concurrency:1}") int reclaimConcurrency,
+        @Value("${diagnosis.queue.poll-timeout:2s}") Duration pollTimeout) {
+        return diagnosisJobConsumer.start(
+            connectionFactory, diagnosisJobExecutor, concurrency, reclaimConcurrency, pollTimeout);
+    }
+}
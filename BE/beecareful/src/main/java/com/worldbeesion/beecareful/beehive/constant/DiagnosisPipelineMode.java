@@ -0,0 +1,8 @@
+package com.worldbeesion.beecareful.beehive.constant;
+
+public enum DiagnosisPipelineMode {
+    // photos are analyzed on the bounded diagnosis executor, one blocking AI call per thread
+    EXECUTOR,
+    // photos are analyzed by a non-blocking WebClient pipeline, DB work runs on the diagnosis DB scheduler
+    REACTIVE
+}
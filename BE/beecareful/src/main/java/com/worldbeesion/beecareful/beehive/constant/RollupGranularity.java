@@ -0,0 +1,35 @@
+package com.worldbeesion.beecareful.beehive.constant;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+public enum RollupGranularity {
+    // one bucket per calendar day
+    DAY,
+    // one bucket per ISO week, starting on Monday
+    WEEK,
+    // one bucket per calendar month
+    MONTH;
+
+    public LocalDate bucketStart(LocalDate date) {
+        return switch (this) {
+            case DAY -> date;
+            case WEEK -> date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH -> date.withDayOfMonth(1);
+        };
+    }
+
+    /**
+     * The coarsest granularity that still draws a useful chart for the span, keeping it to a few dozen buckets.
+     */
+    public static RollupGranularity forSpan(int months) {
+        if (months <= 1) {
+            return DAY;
+        }
+        if (months <= 6) {
+            return WEEK;
+        }
+        return MONTH;
+    }
+}
@@ -0,0 +1,34 @@
+package com.worldbeesion.beecareful.beehive.constant;
+
+import com.worldbeesion.beecareful.beehive.model.dto.DiagnosisHistoryProjection;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Metrics of the diagnosis series endpoint, keyed in the response by {@link #getKey()}.
+ */
+public enum SeriesMetric {
+    IMAGO_COUNT("imagoCount", DiagnosisHistoryProjection::getImagoCount),
+    LARVA_COUNT("larvaCount", DiagnosisHistoryProjection::getLarvaCount),
+    LARVA_VARROA_RATIO("larvaVarroaRatio", DiagnosisHistoryProjection::getLarvaVarroaRatio),
+    LARVA_FOULBROOD_RATIO("larvaFoulbroodRatio", DiagnosisHistoryProjection::getLarvaFoulbroodRatio),
+    LARVA_CHALKBROOD_RATIO("larvaChalkbroodRatio", DiagnosisHistoryProjection::getLarvaChalkbroodRatio),
+    IMAGO_VARROA_RATIO("imagoVarroaRatio", DiagnosisHistoryProjection::getImagoVarroaRatio),
+    IMAGO_DWV_RATIO("imagoDwvRatio", DiagnosisHistoryProjection::getImagoDwvRatio);
+
+    private final String key;
+    private final ToDoubleFunction<DiagnosisHistoryProjection> extractor;
+
+    SeriesMetric(String key, ToDoubleFunction<DiagnosisHistoryProjection> extractor) {
+        this.key = key;
+        this.extractor = extractor;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public double valueOf(DiagnosisHistoryProjection row) {
+        return extractor.applyAsDouble(row);
+    }
+}
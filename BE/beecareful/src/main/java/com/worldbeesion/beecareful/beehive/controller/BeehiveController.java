@@ -1,6 +1,7 @@
 package com.worldbeesion.beecareful.beehive.controller;
 
 
+import com.worldbeesion.beecareful.beehive.constant.SeriesMetric;
 import com.worldbeesion.beecareful.beehive.model.dto.*;
 import com.worldbeesion.beecareful.beehive.service.BeehiveNotificationService;
 import com.worldbeesion.beecareful.beehive.service.BeehiveService;
@@ -55,6 +56,24 @@ public class BeehiveController {
         return ResponseEntity.ok().body(responseDto);
     }
 
+    @GetMapping("/{beeHiveId}/trend")
+    public ResponseEntity<?> getBeehiveTrend(@PathVariable("beeHiveId") Long beeHiveId,
+                                             @RequestParam("month") int month,
+                                             @AuthenticationPrincipal UserDetailsImpl userDetails) {
+        BeehiveTrendResponseDto responseDto = beehiveService.getBeehiveTrend(beeHiveId, month, userDetails);
+        return ResponseEntity.ok().body(responseDto);
+    }
+
+    @GetMapping("/{beeHiveId}/series")
+    public ResponseEntity<?> getBeehiveSeries(@PathVariable("beeHiveId") Long beeHiveId,
+                                              @RequestParam("month") int month,
+                                              @RequestParam(name = "metrics", required = false) List<SeriesMetric> metrics,
+                                              @RequestParam(name = "points", required = false) Integer points,
+                                              @AuthenticationPrincipal UserDetailsImpl userDetails) {
+        BeehiveSeriesResponseDto responseDto = beehiveService.getBeehiveSeries(beeHiveId, month, metrics, points, userDetails);
+        return ResponseEntity.ok().body(responseDto);
+    }
+
     @PostMapping("/{beeHiveId}/turret")
     public ResponseEntity<?> addTurret(@PathVariable("beeHiveId") Long beeHiveId, @RequestBody TurretRequestDto turretRequestDto) {
         beehiveService.addTurret(beeHiveId, turretRequestDto);
@@ -0,0 +1,52 @@
+package com.worldbeesion.beecareful.beehive.model.dto;
+
+import java.util.Optional;
+
+/**
+ * The AI result of one original photo, flattened to what has to be written:
+ * the annotated image, the AnalyzedPhoto totals and the per-photo counts row.
+ */
+public record AnalyzedPhotoResult(
+    Long originalPhotoId,
+    Long diagnosisId,
+    String annotatedImageS3Key,
+    long larvaVarroaCount,
+    long larvaFoulbroodCount,
+    long larvaChalkbroodCount,
+    long larvaNormalCount,
+    long imagoVarroaCount,
+    long imagoDwvCount,
+    long imagoNormalCount
+) {
+
+    /**
+     * Missing counts in the AI response are stored as 0.
+     */
+    public static AnalyzedPhotoResult of(Long originalPhotoId, Long diagnosisId, String annotatedImageS3Key,
+        DiagnosisApiResponse.DiagnosisResult diagResult) {
+        return new AnalyzedPhotoResult(
+            originalPhotoId,
+            diagnosisId,
+            annotatedImageS3Key,
+            countOf(diagResult.larva().varroaCount()),
+            countOf(diagResult.larva().foulBroodCount()),
+            countOf(diagResult.larva().chalkBroodCount()),
+            countOf(diagResult.larva().normalCount()),
+            countOf(diagResult.imago().varroaCount()),
+            countOf(diagResult.imago().dwvCount()),
+            countOf(diagResult.imago().normalCount())
+        );
+    }
+
+    public long larvaCount() {
+        return larvaNormalCount + larvaVarroaCount + larvaFoulbroodCount + larvaChalkbroodCount;
+    }
+
+    public long imagoCount() {
+        return imagoNormalCount + imagoVarroaCount + imagoDwvCount;
+    }
+
+    private static long countOf(Long count) {
+        return Optional.ofNullable(count).orElse(0L);
+    }
+}
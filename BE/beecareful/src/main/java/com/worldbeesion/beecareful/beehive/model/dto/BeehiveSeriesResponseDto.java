@@ -0,0 +1,13 @@
+package com.worldbeesion.beecareful.beehive.model.dto;
+
+import java.util.Map;
+
+/**
+ * Columnar form of the diagnosis history for charts, keyed by metric.
+ * totalPoints is the number of diagnoses in the window; each metric may have been downsampled separately.
+ */
+public record BeehiveSeriesResponseDto(
+        int totalPoints,
+        Map<String, MetricSeriesDto> series
+) {
+}
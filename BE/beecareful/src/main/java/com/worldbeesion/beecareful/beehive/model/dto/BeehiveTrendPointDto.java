@@ -0,0 +1,16 @@
+package com.worldbeesion.beecareful.beehive.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.LocalDate;
+
+public record BeehiveTrendPointDto(
+        LocalDate bucketStart,
+        Long diagnosisCount,
+        Long imagoCount,
+        Long larvaCount,
+
+        @JsonProperty("result")
+        DiagnosisResultDto diagnosisResultDto
+) {
+}
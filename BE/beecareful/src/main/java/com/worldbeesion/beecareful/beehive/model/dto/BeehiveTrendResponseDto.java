@@ -0,0 +1,11 @@
+package com.worldbeesion.beecareful.beehive.model.dto;
+
+import com.worldbeesion.beecareful.beehive.constant.RollupGranularity;
+
+import java.util.List;
+
+public record BeehiveTrendResponseDto(
+        RollupGranularity granularity,
+        List<BeehiveTrendPointDto> points
+) {
+}
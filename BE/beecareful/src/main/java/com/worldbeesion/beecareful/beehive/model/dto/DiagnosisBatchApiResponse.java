@@ -0,0 +1,29 @@
+package com.worldbeesion.beecareful.beehive.model.dto;
+
+import lombok.Builder;
+
+import java.util.List;
+
+/**
+ * Response of the AI server batch endpoint. Results are keyed by the original photo S3 key;
+ * a result with a non-null error means only that photo failed.
+ */
+@Builder
+public record DiagnosisBatchApiResponse(List<Result> results) {
+
+    @Builder
+    public record Result(
+        String s3Key,
+        DiagnosisApiResponse.DiagnosisResult diagnosis,
+        String annotatedImageS3Key,
+        String error
+    ) {
+
+        public DiagnosisApiResponse toDiagnosisApiResponse() {
+            if (error != null) {
+                throw new IllegalStateException("AI analysis failed for S3 key " + s3Key + ": " + error);
+            }
+            return new DiagnosisApiResponse(diagnosis, annotatedImageS3Key);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.worldbeesion.beecareful.beehive.model.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * One diagnosis of the beehive history, read straight from its summary row.
+ */
+public interface DiagnosisHistoryProjection {
+    Long getDiagnosisId();
+    LocalDateTime getCreatedAt();
+    Long getImagoCount();
+    Long getLarvaCount();
+
+    // Larva fields
+    Long getLarvaVarroaCount();
+    Double getLarvaVarroaRatio();
+    Long getLarvaFoulbroodCount();
+    Double getLarvaFoulbroodRatio();
+    Long getLarvaChalkbroodCount();
+    Double getLarvaChalkbroodRatio();
+
+    // Imago fields
+    Long getImagoVarroaCount();
+    Double getImagoVarroaRatio();
+    Long getImagoDwvCount();
+    Double getImagoDwvRatio();
+}
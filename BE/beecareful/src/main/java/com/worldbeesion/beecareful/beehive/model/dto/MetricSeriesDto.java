@@ -0,0 +1,10 @@
+package com.worldbeesion.beecareful.beehive.model.dto;
+
+/**
+ * One metric as parallel arrays: t holds epoch milliseconds, v the value at each of them.
+ */
+public record MetricSeriesDto(
+        long[] t,
+        double[] v
+) {
+}
@@ -0,0 +1,7 @@
+package com.worldbeesion.beecareful.beehive.model.dto;
+
+public record OriginalPhotoUploadDto(
+        Long diagnosisId,
+        String s3Key
+) {
+}
@@ -1,6 +1,7 @@
 package com.worldbeesion.beecareful.beehive.model.entity;
 
 
+import com.worldbeesion.beecareful.common.constant.IdSequences;
 import com.worldbeesion.beecareful.s3.model.entity.S3FileMetadata;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
@@ -22,7 +23,15 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 public class AnalyzedPhoto {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = IdSequences.ANALYZED_PHOTOS)
+    @TableGenerator(
+        name = IdSequences.ANALYZED_PHOTOS,
+        table = IdSequences.TABLE,
+        pkColumnName = IdSequences.PK_COLUMN,
+        valueColumnName = IdSequences.VALUE_COLUMN,
+        pkColumnValue = IdSequences.ANALYZED_PHOTOS,
+        allocationSize = IdSequences.ANALYZED_PHOTOS_ALLOCATION_SIZE
+    )
     @Column(name = "analyzed_photo_id")
     private Long id;
 
@@ -0,0 +1,51 @@
+package com.worldbeesion.beecareful.beehive.model.entity;
+
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Per-photo bee counts, one row per analyzed photo with a fixed column per stage and disease.
+ * Replaces the five analyzed_photo_diseases rows per photo; that table is now a view over this one.
+ */
+@Entity
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "analyzed_photo_counts")
+public class AnalyzedPhotoCount {
+
+    @Id
+    @Column(name = "analyzed_photo_id")
+    private Long analyzedPhotoId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "diagnosis_id", nullable = false, foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    private Diagnosis diagnosis;
+
+    @Column(name = "larva_varroa_count", nullable = false)
+    private Long larvaVarroaCount;
+
+    @Column(name = "larva_foulbrood_count", nullable = false)
+    private Long larvaFoulbroodCount;
+
+    @Column(name = "larva_chalkbrood_count", nullable = false)
+    private Long larvaChalkbroodCount;
+
+    @Column(name = "larva_normal_count", nullable = false)
+    private Long larvaNormalCount;
+
+    @Column(name = "imago_varroa_count", nullable = false)
+    private Long imagoVarroaCount;
+
+    @Column(name = "imago_dwv_count", nullable = false)
+    private Long imagoDwvCount;
+
+    @Column(name = "imago_normal_count", nullable = false)
+    private Long imagoNormalCount;
+
+}
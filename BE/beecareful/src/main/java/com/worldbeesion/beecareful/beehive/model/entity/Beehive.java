@@ -57,6 +57,13 @@ public class Beehive {
     @Column(name = "isInfected", nullable = false)
     private Boolean isInfected;
 
+    // Maintained only by BeehiveRepository.updateLastDiagnosis so a stale entity can never move it back
+    @Column(name = "last_diagnosis_id", insertable = false, updatable = false)
+    private Long lastDiagnosisId;
+
+    @Column(name = "last_diagnosed_at", insertable = false, updatable = false)
+    private LocalDateTime lastDiagnosedAt;
+
     public void updateNickname(String newNickname) {
         if (newNickname != null && !newNickname.isBlank()) {
             this.nickname = newNickname;
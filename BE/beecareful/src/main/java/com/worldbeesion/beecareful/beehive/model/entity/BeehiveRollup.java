@@ -0,0 +1,65 @@
+package com.worldbeesion.beecareful.beehive.model.entity;
+
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Totals of the finalized diagnoses of a beehive within one day, week or month.
+ * Incremented once per diagnosis when it is finalized; the ratios are STORED generated columns.
+ */
+@Entity
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "beehive_rollups")
+public class BeehiveRollup {
+
+    @EmbeddedId
+    private BeehiveRollupId id;
+
+    @Column(name = "diagnosis_count", nullable = false)
+    private Long diagnosisCount;
+
+    @Column(name = "photo_count", nullable = false)
+    private Long photoCount;
+
+    @Column(name = "imago_count", nullable = false)
+    private Long imagoCount;
+
+    @Column(name = "larva_count", nullable = false)
+    private Long larvaCount;
+
+    @Column(name = "larva_varroa_count", nullable = false)
+    private Long larvaVarroaCount;
+
+    @Column(name = "larva_foulbrood_count", nullable = false)
+    private Long larvaFoulbroodCount;
+
+    @Column(name = "larva_chalkbrood_count", nullable = false)
+    private Long larvaChalkbroodCount;
+
+    @Column(name = "imago_varroa_count", nullable = false)
+    private Long imagoVarroaCount;
+
+    @Column(name = "imago_dwv_count", nullable = false)
+    private Long imagoDwvCount;
+
+    @Column(name = "larva_varroa_ratio", insertable = false, updatable = false)
+    private Double larvaVarroaRatio;
+
+    @Column(name = "larva_foulbrood_ratio", insertable = false, updatable = false)
+    private Double larvaFoulbroodRatio;
+
+    @Column(name = "larva_chalkbrood_ratio", insertable = false, updatable = false)
+    private Double larvaChalkbroodRatio;
+
+    @Column(name = "imago_varroa_ratio", insertable = false, updatable = false)
+    private Double imagoVarroaRatio;
+
+    @Column(name = "imago_dwv_ratio", insertable = false, updatable = false)
+    private Double imagoDwvRatio;
+
+}
@@ -0,0 +1,29 @@
+package com.worldbeesion.beecareful.beehive.model.entity;
+
+import com.worldbeesion.beecareful.beehive.constant.RollupGranularity;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Embeddable
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+public class BeehiveRollupId implements Serializable {
+
+    @Column(name = "beehive_id")
+    private Long beehiveId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "granularity")
+    private RollupGranularity granularity;
+
+    @Column(name = "bucket_start")
+    private LocalDate bucketStart;
+}
@@ -1,6 +1,7 @@
 package com.worldbeesion.beecareful.beehive.model.entity;
 
 
+import com.worldbeesion.beecareful.common.constant.IdSequences;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -21,7 +22,15 @@ import java.time.LocalDateTime;
 public class Diagnosis {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = IdSequences.DIAGNOSES)
+    @TableGenerator(
+        name = IdSequences.DIAGNOSES,
+        table = IdSequences.TABLE,
+        pkColumnName = IdSequences.PK_COLUMN,
+        valueColumnName = IdSequences.VALUE_COLUMN,
+        pkColumnValue = IdSequences.DIAGNOSES,
+        allocationSize = IdSequences.DIAGNOSES_ALLOCATION_SIZE
+    )
     @Column(name = "diagnosis_id")
     private Long id;
 
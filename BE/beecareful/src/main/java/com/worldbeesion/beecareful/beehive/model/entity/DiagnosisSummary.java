@@ -0,0 +1,78 @@
+package com.worldbeesion.beecareful.beehive.model.entity;
+
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Running totals of a diagnosis, one row per diagnosis.
+ * Created with zero counts when the diagnosis is registered and incremented in the same transaction that stores
+ * each batch of analyzed photos, so readers never aggregate photo rows. The ratios are STORED generated columns.
+ */
+@Entity
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "diagnosis_summaries")
+public class DiagnosisSummary {
+
+    @Id
+    @Column(name = "diagnosis_id")
+    private Long diagnosisId;
+
+    @Column(name = "beehive_id", nullable = false)
+    private Long beehiveId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "photo_count", nullable = false)
+    private Long photoCount;
+
+    @Column(name = "imago_count", nullable = false)
+    private Long imagoCount;
+
+    @Column(name = "larva_count", nullable = false)
+    private Long larvaCount;
+
+    @Column(name = "larva_varroa_count", nullable = false)
+    private Long larvaVarroaCount;
+
+    @Column(name = "larva_foulbrood_count", nullable = false)
+    private Long larvaFoulbroodCount;
+
+    @Column(name = "larva_chalkbrood_count", nullable = false)
+    private Long larvaChalkbroodCount;
+
+    @Column(name = "imago_varroa_count", nullable = false)
+    private Long imagoVarroaCount;
+
+    @Column(name = "imago_dwv_count", nullable = false)
+    private Long imagoDwvCount;
+
+    // Set once the diagnosis has been added to the beehive rollups
+    @Column(name = "rolled_up", nullable = false)
+    private Boolean rolledUp;
+
+    @Column(name = "larva_varroa_ratio", insertable = false, updatable = false)
+    private Double larvaVarroaRatio;
+
+    @Column(name = "larva_foulbrood_ratio", insertable = false, updatable = false)
+    private Double larvaFoulbroodRatio;
+
+    @Column(name = "larva_chalkbrood_ratio", insertable = false, updatable = false)
+    private Double larvaChalkbroodRatio;
+
+    @Column(name = "imago_varroa_ratio", insertable = false, updatable = false)
+    private Double imagoVarroaRatio;
+
+    @Column(name = "imago_dwv_ratio", insertable = false, updatable = false)
+    private Double imagoDwvRatio;
+
+}
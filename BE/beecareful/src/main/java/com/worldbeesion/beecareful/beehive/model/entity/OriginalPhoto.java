@@ -2,6 +2,7 @@ package com.worldbeesion.beecareful.beehive.model.entity;
 
 
 import com.worldbeesion.beecareful.beehive.constant.DiagnosisStatus;
+import com.worldbeesion.beecareful.common.constant.IdSequences;
 import com.worldbeesion.beecareful.s3.model.entity.S3FileMetadata;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
@@ -20,7 +21,15 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 public class OriginalPhoto {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = IdSequences.ORIGINAL_PHOTOS)
+    @TableGenerator(
+        name = IdSequences.ORIGINAL_PHOTOS,
+        table = IdSequences.TABLE,
+        pkColumnName = IdSequences.PK_COLUMN,
+        valueColumnName = IdSequences.VALUE_COLUMN,
+        pkColumnValue = IdSequences.ORIGINAL_PHOTOS,
+        allocationSize = IdSequences.ORIGINAL_PHOTOS_ALLOCATION_SIZE
+    )
     @Column(name = "original_photo_id")
     private Long id;
 
@@ -0,0 +1,175 @@
+package com.worldbeesion.beecareful.beehive.repository;
+
+import static com.worldbeesion.beecareful.common.util.S3Util.*;
+
+import com.worldbeesion.beecareful.beehive.constant.DiagnosisStatus;
+import com.worldbeesion.beecareful.beehive.model.dto.AnalyzedPhotoResult;
+import com.worldbeesion.beecareful.common.constant.IdSequences;
+import com.worldbeesion.beecareful.common.repository.IdSequenceRepository;
+import com.worldbeesion.beecareful.s3.constant.S3FileStatus;
+
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * JDBC batch writes for the results of analyzed photos.
+ * Persisting one photo through JPA takes several statements (metadata lookup and save, AnalyzedPhoto, counts,
+ * status saves); here IDs are reserved in blocks from the pooled id sequences and every table is written with
+ * one multi-row INSERT per batch of photos, and the status change with one UPDATE.
+ * The summary rows of the diagnoses are incremented in the same transaction.
+ */
+@Repository
+@RequiredArgsConstructor
+public class AnalysisResultBulkRepository {
+
+    private static final String ANALYZED_IMAGE_CONTENT_TYPE = "image/jpeg";
+
+    private static final String INSERT_S3_FILE_METADATA = """
+        INSERT INTO s3_file_metadatas (s3_file_metadata_id, original_filename, s3_key, content_type, status, created_at)
+        VALUES (?, ?, ?, ?, ?, ?)
+        """;
+
+    private static final String INSERT_ANALYZED_PHOTO = """
+        INSERT INTO analyzed_photos (analyzed_photo_id, original_photo_id, s3_file_metadata_id, diagnosis_id, imago_count, larva_count)
+        VALUES (?, ?, ?, ?, ?, ?)
+        """;
+
+    private static final String INSERT_ANALYZED_PHOTO_COUNT = """
+        INSERT INTO analyzed_photo_counts (
+            analyzed_photo_id, diagnosis_id,
+            larva_varroa_count, larva_foulbrood_count, larva_chalkbrood_count, larva_normal_count,
+            imago_varroa_count, imago_dwv_count, imago_normal_count
+        )
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+        """;
+
+    private static final String INCREMENT_DIAGNOSIS_SUMMARY = """
+        UPDATE diagnosis_summaries SET
+            photo_count = photo_count + ?,
+            imago_count = imago_count + ?,
+            larva_count = larva_count + ?,
+            larva_varroa_count = larva_varroa_count + ?,
+            larva_foulbrood_count = larva_foulbrood_count + ?,
+            larva_chalkbrood_count = larva_chalkbrood_count + ?,
+            imago_varroa_count = imago_varroa_count + ?,
+            imago_dwv_count = imago_dwv_count + ?
+        WHERE diagnosis_id = ?
+        """;
+
+    private static final String UPDATE_ORIGINAL_PHOTO_STATUS = """
+        UPDATE original_photos SET status = ? WHERE original_photo_id IN (%s)
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final IdSequenceRepository idSequenceRepository;
+
+    /**
+     * Inserts the annotated image metadata, the analyzed photo and the counts row of every result.
+     * Must be called inside a transaction.
+     *
+     * @param results The results to write
+     */
+    public void insertAll(List<AnalyzedPhotoResult> results) {
+        Timestamp createdAt = Timestamp.valueOf(LocalDateTime.now());
+        List<Long> metadataIds = idSequenceRepository.allocate(
+            IdSequences.S3_FILE_METADATAS, IdSequences.S3_FILE_METADATAS_ALLOCATION_SIZE, results.size());
+        List<Long> analyzedPhotoIds = idSequenceRepository.allocate(
+            IdSequences.ANALYZED_PHOTOS, IdSequences.ANALYZED_PHOTOS_ALLOCATION_SIZE, results.size());
+
+        List<Object[]> metadataRows = new ArrayList<>(results.size());
+        List<Object[]> analyzedPhotoRows = new ArrayList<>(results.size());
+        List<Object[]> countRows = new ArrayList<>(results.size());
+        for (int i = 0; i < results.size(); i++) {
+            AnalyzedPhotoResult result = results.get(i);
+            metadataRows.add(new Object[] {
+                metadataIds.get(i),
+                extractFilenameFromS3Key(result.annotatedImageS3Key()),
+                result.annotatedImageS3Key(),
+                ANALYZED_IMAGE_CONTENT_TYPE,
+                S3FileStatus.STORED.name(),
+                createdAt
+            });
+            analyzedPhotoRows.add(new Object[] {
+                analyzedPhotoIds.get(i),
+                result.originalPhotoId(),
+                metadataIds.get(i),
+                result.diagnosisId(),
+                result.imagoCount(),
+                result.larvaCount()
+            });
+            countRows.add(new Object[] {
+                analyzedPhotoIds.get(i),
+                result.diagnosisId(),
+                result.larvaVarroaCount(),
+                result.larvaFoulbroodCount(),
+                result.larvaChalkbroodCount(),
+                result.larvaNormalCount(),
+                result.imagoVarroaCount(),
+                result.imagoDwvCount(),
+                result.imagoNormalCount()
+            });
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_S3_FILE_METADATA, metadataRows);
+        jdbcTemplate.batchUpdate(INSERT_ANALYZED_PHOTO, analyzedPhotoRows);
+        jdbcTemplate.batchUpdate(INSERT_ANALYZED_PHOTO_COUNT, countRows);
+        incrementSummaries(results);
+    }
+
+    /**
+     * Adds the counts of the results to the summary rows of their diagnoses, one UPDATE per diagnosis.
+     * Rows are updated in diagnosis ID order so concurrent writers lock them in the same order.
+     * Must be called inside a transaction.
+     */
+    public void incrementSummaries(List<AnalyzedPhotoResult> results) {
+        Map<Long, long[]> totalsByDiagnosis = new TreeMap<>();
+        for (AnalyzedPhotoResult result : results) {
+            long[] totals = totalsByDiagnosis.computeIfAbsent(result.diagnosisId(), id -> new long[8]);
+            totals[0] += 1;
+            totals[1] += result.imagoCount();
+            totals[2] += result.larvaCount();
+            totals[3] += result.larvaVarroaCount();
+            totals[4] += result.larvaFoulbroodCount();
+            totals[5] += result.larvaChalkbroodCount();
+            totals[6] += result.imagoVarroaCount();
+            totals[7] += result.imagoDwvCount();
+        }
+
+        List<Object[]> summaryRows = new ArrayList<>(totalsByDiagnosis.size());
+        totalsByDiagnosis.forEach((diagnosisId, totals) -> {
+            Object[] row = new Object[totals.length + 1];
+            for (int i = 0; i < totals.length; i++) {
+                row[i] = totals[i];
+            }
+            row[totals.length] = diagnosisId;
+            summaryRows.add(row);
+        });
+        jdbcTemplate.batchUpdate(INCREMENT_DIAGNOSIS_SUMMARY, summaryRows);
+    }
+
+    /**
+     * Sets the status of several original photos with a single UPDATE.
+     *
+     * @return The number of updated rows
+     */
+    public int updateOriginalPhotoStatuses(Collection<Long> originalPhotoIds, DiagnosisStatus status) {
+        if (originalPhotoIds.isEmpty()) {
+            return 0;
+        }
+        String placeholders = String.join(", ", originalPhotoIds.stream().map(id -> "?").toList());
+        List<Object> args = new ArrayList<>(originalPhotoIds.size() + 1);
+        args.add(status.name());
+        args.addAll(originalPhotoIds);
+        return jdbcTemplate.update(UPDATE_ORIGINAL_PHOTO_STATUS.formatted(placeholders), args.toArray());
+    }
+}
@@ -0,0 +1,29 @@
+package com.worldbeesion.beecareful.beehive.repository;
+
+import com.worldbeesion.beecareful.beehive.model.dto.DiagnosisResultProjection;
+import com.worldbeesion.beecareful.beehive.model.entity.AnalyzedPhotoCount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface AnalyzedPhotoCountRepository extends JpaRepository<AnalyzedPhotoCount, Long> {
+
+    @Query("""
+    SELECT
+        c.diagnosis.id AS diagnosisId,
+        c.diagnosis.createdAt AS createdAt,
+        SUM(c.larvaVarroaCount) AS larvavarroaCount,
+        SUM(c.larvaFoulbroodCount) AS larvafoulBroodCount,
+        SUM(c.larvaChalkbroodCount) AS larvachalkBroodCount,
+        SUM(c.imagoVarroaCount) AS imagovarroaCount,
+        SUM(c.imagoDwvCount) AS imagodwvCount
+    FROM AnalyzedPhotoCount c
+    WHERE c.diagnosis.id IN :diagnosisIds
+    GROUP BY c.diagnosis.id, c.diagnosis.createdAt
+""")
+    List<DiagnosisResultProjection> getDiagnosisResultByDiagnosisIds(@Param("diagnosisIds") List<Long> diagnosisIds);
+}
@@ -5,10 +5,12 @@ import com.worldbeesion.beecareful.beehive.model.dto.BeehiveDiagnosisProjection;
 import com.worldbeesion.beecareful.beehive.model.entity.Apiary;
 import com.worldbeesion.beecareful.beehive.model.entity.Beehive;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -22,20 +24,11 @@ public interface BeehiveRepository extends JpaRepository<Beehive, Long> {
            b.y_direction AS yDirection,
            b.hornet_appeared_at AS hornetAppearedAt,
            b.is_infected AS isInfected,
-           d.created_at AS recordCreatedAt,
-           d.created_at AS lastDiagnosedAt,
-           d.diagnosis_id AS lastDiagnosisId
+           b.last_diagnosed_at AS recordCreatedAt,
+           b.last_diagnosed_at AS lastDiagnosedAt,
+           b.last_diagnosis_id AS lastDiagnosisId
     FROM beehives b
-    LEFT JOIN (
-        SELECT d1.*
-        FROM diagnoses d1
-        INNER JOIN (
-            SELECT beehive_id, MAX(created_at) AS max_created
-            FROM diagnoses
-            GROUP BY beehive_id
-        ) d2 ON d1.beehive_id = d2.beehive_id AND d1.created_at = d2.max_created
-    ) d ON b.beehive_id = d.beehive_id
-    WHERE b.deleted_at IS NULL AND b.apiary_id = :apiaryId
+    WHERE b.apiary_id = :apiaryId AND b.deleted_at IS NULL
     """, nativeQuery = true)
     List<BeehiveDiagnosisProjection> findAllBeehiveDto(@Param("apiaryId") Long apiaryId);
 
@@ -60,5 +53,22 @@ public interface BeehiveRepository extends JpaRepository<Beehive, Long> {
 
     boolean existsByIdAndApiary(Long id, Apiary apiary);
 
+    /**
+     * Points the beehive at its latest diagnosis. Only moves forward, so concurrent registrations and late
+     * finalizations can run in any order.
+     */
+    @Modifying
+    @Query("""
+    UPDATE Beehive b
+    SET b.lastDiagnosisId = :diagnosisId, b.lastDiagnosedAt = :diagnosedAt
+    WHERE b.id = :beehiveId
+    AND (b.lastDiagnosedAt IS NULL
+        OR b.lastDiagnosedAt < :diagnosedAt
+        OR (b.lastDiagnosedAt = :diagnosedAt AND b.lastDiagnosisId < :diagnosisId))
+""")
+    int updateLastDiagnosis(@Param("beehiveId") Long beehiveId,
+                            @Param("diagnosisId") Long diagnosisId,
+                            @Param("diagnosedAt") LocalDateTime diagnosedAt);
+
 }
 
@@ -0,0 +1,56 @@
+package com.worldbeesion.beecareful.beehive.repository;
+
+import com.worldbeesion.beecareful.beehive.constant.RollupGranularity;
+import com.worldbeesion.beecareful.beehive.model.entity.BeehiveRollup;
+import com.worldbeesion.beecareful.beehive.model.entity.BeehiveRollupId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface BeehiveRollupRepository extends JpaRepository<BeehiveRollup, BeehiveRollupId> {
+
+    /**
+     * Adds one diagnosis to a bucket, creating the bucket on its first diagnosis.
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO beehive_rollups (
+            beehive_id, granularity, bucket_start, diagnosis_count, photo_count, imago_count, larva_count,
+            larva_varroa_count, larva_foulbrood_count, larva_chalkbrood_count, imago_varroa_count, imago_dwv_count
+        )
+        VALUES (
+            :beehiveId, :granularity, :bucketStart, 1, :photoCount, :imagoCount, :larvaCount,
+            :larvaVarroaCount, :larvaFoulbroodCount, :larvaChalkbroodCount, :imagoVarroaCount, :imagoDwvCount
+        )
+        ON DUPLICATE KEY UPDATE
+            diagnosis_count = diagnosis_count + 1,
+            photo_count = photo_count + VALUES(photo_count),
+            imago_count = imago_count + VALUES(imago_count),
+            larva_count = larva_count + VALUES(larva_count),
+            larva_varroa_count = larva_varroa_count + VALUES(larva_varroa_count),
+            larva_foulbrood_count = larva_foulbrood_count + VALUES(larva_foulbrood_count),
+            larva_chalkbrood_count = larva_chalkbrood_count + VALUES(larva_chalkbrood_count),
+            imago_varroa_count = imago_varroa_count + VALUES(imago_varroa_count),
+            imago_dwv_count = imago_dwv_count + VALUES(imago_dwv_count)
+        """, nativeQuery = true)
+    void addDiagnosis(@Param("beehiveId") Long beehiveId,
+                      @Param("granularity") String granularity,
+                      @Param("bucketStart") LocalDate bucketStart,
+                      @Param("photoCount") Long photoCount,
+                      @Param("imagoCount") Long imagoCount,
+                      @Param("larvaCount") Long larvaCount,
+                      @Param("larvaVarroaCount") Long larvaVarroaCount,
+                      @Param("larvaFoulbroodCount") Long larvaFoulbroodCount,
+                      @Param("larvaChalkbroodCount") Long larvaChalkbroodCount,
+                      @Param("imagoVarroaCount") Long imagoVarroaCount,
+                      @Param("imagoDwvCount") Long imagoDwvCount);
+
+    List<BeehiveRollup> findAllByIdBeehiveIdAndIdGranularityAndIdBucketStartGreaterThanEqualOrderByIdBucketStart(
+        Long beehiveId, RollupGranularity granularity, LocalDate bucketStart);
+}
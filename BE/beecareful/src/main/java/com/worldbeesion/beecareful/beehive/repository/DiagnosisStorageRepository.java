@@ -0,0 +1,117 @@
+package com.worldbeesion.beecareful.beehive.repository;
+
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Partition maintenance and photo archiving of the diagnosis history (see V8__diagnosis_history_partitions.sql).
+ */
+@Repository
+@RequiredArgsConstructor
+public class DiagnosisStorageRepository {
+
+    /**
+     * Tables range-partitioned by month on created_at.
+     */
+    public static final List<String> PARTITIONED_TABLES = List.of("diagnoses", "diagnosis_summaries");
+
+    /**
+     * Photo tables moved to their {@code _archive} copies, children first.
+     */
+    private static final List<String> ARCHIVED_PHOTO_TABLES = List.of("analyzed_photo_counts", "analyzed_photos", "original_photos");
+
+    private static final String FUTURE_PARTITION = "p_future";
+    private static final DateTimeFormatter PARTITION_MONTH = DateTimeFormatter.ofPattern("'p'yyyyMM");
+    private static final DateTimeFormatter PARTITION_BOUND = DateTimeFormatter.ofPattern("yyyy-MM-'01 00:00:00'");
+
+    private static final String SELECT_MONTHLY_PARTITIONS = """
+        SELECT PARTITION_NAME FROM information_schema.PARTITIONS
+        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME REGEXP '^p[0-9]{6}$'
+        ORDER BY PARTITION_NAME DESC LIMIT 1
+        """;
+
+    // Old diagnoses that still have photos in the hot tables; the latest diagnosis of a beehive stays hot
+    private static final String SELECT_ARCHIVABLE_DIAGNOSES = """
+        SELECT d.diagnosis_id FROM diagnoses d
+        WHERE d.created_at < ?
+          AND EXISTS (SELECT 1 FROM original_photos op WHERE op.diagnosis_id = d.diagnosis_id)
+          AND NOT EXISTS (SELECT 1 FROM beehives b WHERE b.last_diagnosis_id = d.diagnosis_id)
+        ORDER BY d.created_at
+        LIMIT ?
+        """;
+
+    private static final String SELECT_ARCHIVED_ANNOTATED_METADATA_IDS = """
+        SELECT s3_file_metadata_id FROM analyzed_photos_archive WHERE diagnosis_id = ?
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * The newest monthly partition of the table, if it has any.
+     */
+    public Optional<YearMonth> findLastMonthlyPartition(String table) {
+        return jdbcTemplate.queryForList(SELECT_MONTHLY_PARTITIONS, String.class, table).stream()
+            .findFirst()
+            .map(name -> YearMonth.parse(name, PARTITION_MONTH));
+    }
+
+    /**
+     * Whether p_future of the table holds no rows. Reads at most one row of that partition.
+     */
+    public boolean isFuturePartitionEmpty(String table) {
+        return jdbcTemplate.queryForList(
+            "SELECT 1 FROM `" + table + "` PARTITION (" + FUTURE_PARTITION + ") LIMIT 1", Integer.class).isEmpty();
+    }
+
+    /**
+     * Splits the month off the front of p_future. Cheap as long as p_future holds no rows yet, otherwise MySQL
+     * copies all of them under a table lock; check {@link #isFuturePartitionEmpty} first.
+     */
+    public void addMonthlyPartition(String table, YearMonth month) {
+        jdbcTemplate.execute("ALTER TABLE `" + table + "` REORGANIZE PARTITION " + FUTURE_PARTITION + " INTO ("
+            + "PARTITION " + month.format(PARTITION_MONTH)
+            + " VALUES LESS THAN (UNIX_TIMESTAMP('" + month.plusMonths(1).format(PARTITION_BOUND) + "')), "
+            + "PARTITION " + FUTURE_PARTITION + " VALUES LESS THAN MAXVALUE)");
+    }
+
+    public List<Long> findArchivableDiagnosisIds(LocalDateTime createdBefore, int limit) {
+        return jdbcTemplate.queryForList(SELECT_ARCHIVABLE_DIAGNOSES, Long.class, Timestamp.valueOf(createdBefore), limit);
+    }
+
+    /**
+     * Copies the photo rows of the diagnoses to the archive tables and deletes them from the hot ones.
+     * Must run in a transaction; INSERT IGNORE makes a repeated batch harmless.
+     *
+     * @return The number of original photos moved
+     */
+    public int archivePhotos(Collection<Long> diagnosisIds) {
+        if (diagnosisIds.isEmpty()) {
+            return 0;
+        }
+        String placeholders = String.join(",", Collections.nCopies(diagnosisIds.size(), "?"));
+        Object[] args = diagnosisIds.toArray();
+
+        int moved = 0;
+        for (String table : ARCHIVED_PHOTO_TABLES) {
+            jdbcTemplate.update("INSERT IGNORE INTO " + table + "_archive SELECT * FROM " + table
+                + " WHERE diagnosis_id IN (" + placeholders + ")", args);
+            moved = jdbcTemplate.update("DELETE FROM " + table + " WHERE diagnosis_id IN (" + placeholders + ")", args);
+        }
+        return moved;
+    }
+
+    public List<Long> findArchivedAnnotatedS3FileMetadataIds(Long diagnosisId) {
+        return jdbcTemplate.queryForList(SELECT_ARCHIVED_ANNOTATED_METADATA_IDS, Long.class, diagnosisId);
+    }
+}
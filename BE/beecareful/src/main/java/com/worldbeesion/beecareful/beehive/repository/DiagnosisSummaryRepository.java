@@ -0,0 +1,71 @@
+package com.worldbeesion.beecareful.beehive.repository;
+
+import com.worldbeesion.beecareful.beehive.model.dto.DiagnosisHistoryProjection;
+import com.worldbeesion.beecareful.beehive.model.entity.DiagnosisSummary;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
+@Repository
+public interface DiagnosisSummaryRepository extends JpaRepository<DiagnosisSummary, Long> {
+
+    /**
+     * Creates the zero row of a new diagnosis. A plain INSERT, since save() would first SELECT the assigned id.
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO diagnosis_summaries (diagnosis_id, beehive_id, created_at)
+        VALUES (:diagnosisId, :beehiveId, :createdAt)
+        """, nativeQuery = true)
+    void insertEmpty(@Param("diagnosisId") Long diagnosisId, @Param("beehiveId") Long beehiveId,
+        @Param("createdAt") LocalDateTime createdAt);
+
+    /**
+     * Claims the diagnosis for the rollups; returns 0 if it was already added.
+     */
+    @Modifying
+    @Query("UPDATE DiagnosisSummary s SET s.rolledUp = true WHERE s.diagnosisId = :diagnosisId AND s.rolledUp = false")
+    int markRolledUp(@Param("diagnosisId") Long diagnosisId);
+
+    /**
+     * The analyzed diagnoses of a beehive since startDate, oldest first, as one range scan over
+     * idx_diagnosis_summaries_beehive_created. Must be consumed inside a transaction and closed.
+     */
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = "100"),
+        @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+        SELECT s.diagnosisId AS diagnosisId,
+               s.createdAt AS createdAt,
+               s.imagoCount AS imagoCount,
+               s.larvaCount AS larvaCount,
+               s.larvaVarroaCount AS larvaVarroaCount,
+               s.larvaVarroaRatio AS larvaVarroaRatio,
+               s.larvaFoulbroodCount AS larvaFoulbroodCount,
+               s.larvaFoulbroodRatio AS larvaFoulbroodRatio,
+               s.larvaChalkbroodCount AS larvaChalkbroodCount,
+               s.larvaChalkbroodRatio AS larvaChalkbroodRatio,
+               s.imagoVarroaCount AS imagoVarroaCount,
+               s.imagoVarroaRatio AS imagoVarroaRatio,
+               s.imagoDwvCount AS imagoDwvCount,
+               s.imagoDwvRatio AS imagoDwvRatio
+        FROM DiagnosisSummary s
+        WHERE s.beehiveId = :beehiveId
+          AND s.createdAt >= :startDate
+          AND s.photoCount > 0
+        ORDER BY s.createdAt
+        """)
+    Stream<DiagnosisHistoryProjection> streamHistory(@Param("beehiveId") Long beehiveId,
+        @Param("startDate") LocalDateTime startDate);
+}
@@ -0,0 +1,80 @@
+package com.worldbeesion.beecareful.beehive.repository;
+
+import com.worldbeesion.beecareful.beehive.constant.DiagnosisStatus;
+import com.worldbeesion.beecareful.common.constant.IdSequences;
+import com.worldbeesion.beecareful.common.repository.IdSequenceRepository;
+import com.worldbeesion.beecareful.s3.model.entity.S3FileMetadata;
+
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JDBC batch inserts for registering the photos of a diagnosis.
+ * IDs are reserved in blocks from the pooled id sequences, so the rows are written with explicit keys and,
+ * with rewriteBatchedStatements, each table with a single multi-row INSERT.
+ * Must be called inside a transaction.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OriginalPhotoBulkRepository {
+
+    private static final String INSERT_S3_FILE_METADATA = """
+        INSERT INTO s3_file_metadatas (s3_file_metadata_id, original_filename, s3_key, size, content_type, status, created_at)
+        VALUES (?, ?, ?, ?, ?, ?, ?)
+        """;
+
+    private static final String INSERT_ORIGINAL_PHOTO = """
+        INSERT INTO original_photos (original_photo_id, diagnosis_id, s3_file_metadata_id, status)
+        VALUES (?, ?, ?, ?)
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final IdSequenceRepository idSequenceRepository;
+
+    /**
+     * Inserts the metadata rows and one WAITING original photo per metadata row for the diagnosis.
+     *
+     * @param diagnosisId The ID of the diagnosis the photos belong to
+     * @param metadataList Unsaved PENDING metadata of the photos
+     * @return The S3 file metadata IDs, in the order of metadataList
+     */
+    public List<Long> insertAll(Long diagnosisId, List<S3FileMetadata> metadataList) {
+        Timestamp createdAt = Timestamp.valueOf(LocalDateTime.now());
+        List<Long> metadataIds = idSequenceRepository.allocate(
+            IdSequences.S3_FILE_METADATAS, IdSequences.S3_FILE_METADATAS_ALLOCATION_SIZE, metadataList.size());
+        List<Long> originalPhotoIds = idSequenceRepository.allocate(
+            IdSequences.ORIGINAL_PHOTOS, IdSequences.ORIGINAL_PHOTOS_ALLOCATION_SIZE, metadataList.size());
+
+        List<Object[]> metadataRows = new ArrayList<>(metadataList.size());
+        List<Object[]> originalPhotoRows = new ArrayList<>(metadataList.size());
+        for (int i = 0; i < metadataList.size(); i++) {
+            S3FileMetadata metadata = metadataList.get(i);
+            metadataRows.add(new Object[] {
+                metadataIds.get(i),
+                metadata.getOriginalFilename(),
+                metadata.getS3Key(),
+                metadata.getSize(),
+                metadata.getContentType(),
+                metadata.getStatus().name(),
+                createdAt
+            });
+            originalPhotoRows.add(new Object[] {
+                originalPhotoIds.get(i),
+                diagnosisId,
+                metadataIds.get(i),
+                DiagnosisStatus.WAITING.name()
+            });
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_S3_FILE_METADATA, metadataRows);
+        jdbcTemplate.batchUpdate(INSERT_ORIGINAL_PHOTO, originalPhotoRows);
+        return metadataIds;
+    }
+}
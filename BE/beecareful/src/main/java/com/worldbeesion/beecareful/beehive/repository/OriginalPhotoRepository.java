@@ -1,14 +1,17 @@
 package com.worldbeesion.beecareful.beehive.repository;
 
 import com.worldbeesion.beecareful.beehive.model.dto.OriginalPhotoStatusDto;
+import com.worldbeesion.beecareful.beehive.model.dto.OriginalPhotoUploadDto;
 import com.worldbeesion.beecareful.beehive.model.entity.Diagnosis;
 import com.worldbeesion.beecareful.beehive.model.entity.OriginalPhoto;
+import com.worldbeesion.beecareful.s3.constant.S3FileStatus;
 import com.worldbeesion.beecareful.s3.model.entity.S3FileMetadata;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface OriginalPhotoRepository extends JpaRepository<OriginalPhoto,Long> {
@@ -26,4 +29,21 @@ public interface OriginalPhotoRepository extends JpaRepository<OriginalPhoto,Lon
     List<OriginalPhoto> findAllByDiagnosis(Diagnosis diagnosis);
 
     OriginalPhoto findByS3FileMetadata(S3FileMetadata s3FileMetadata);
+
+    @Query("""
+        SELECT new com.worldbeesion.beecareful.beehive.model.dto.OriginalPhotoUploadDto(
+            op.diagnosis.id,
+            op.s3FileMetadata.s3Key
+        )
+        FROM OriginalPhoto op
+        WHERE op.s3FileMetadata.id IN :s3FileMetadataIds
+""")
+    List<OriginalPhotoUploadDto> findUploadsByS3FileMetadataIds(@Param("s3FileMetadataIds") Collection<Long> s3FileMetadataIds);
+
+    @Query("""
+        SELECT COUNT(op)
+        FROM OriginalPhoto op
+        WHERE op.diagnosis.id = :diagnosisId AND op.s3FileMetadata.status <> :status
+""")
+    long countByDiagnosisIdAndS3FileStatusNot(@Param("diagnosisId") Long diagnosisId, @Param("status") S3FileStatus status);
 }
@@ -0,0 +1,109 @@
+package com.worldbeesion.beecareful.beehive.service;
+
+import com.worldbeesion.beecareful.beehive.constant.RollupGranularity;
+import com.worldbeesion.beecareful.beehive.model.dto.BeehiveTrendPointDto;
+import com.worldbeesion.beecareful.beehive.model.dto.BeehiveTrendResponseDto;
+import com.worldbeesion.beecareful.beehive.model.dto.DiagnosisResultDto;
+import com.worldbeesion.beecareful.beehive.model.dto.Imago;
+import com.worldbeesion.beecareful.beehive.model.dto.Larva;
+import com.worldbeesion.beecareful.beehive.model.entity.BeehiveRollup;
+import com.worldbeesion.beecareful.beehive.model.entity.DiagnosisSummary;
+import com.worldbeesion.beecareful.beehive.repository.BeehiveRollupRepository;
+import com.worldbeesion.beecareful.beehive.repository.DiagnosisSummaryRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Day, week and month rollups of the finalized diagnoses of each beehive, read by the trend chart.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class BeehiveRollupService {
+
+    private final BeehiveRollupRepository beehiveRollupRepository;
+    private final DiagnosisSummaryRepository diagnosisSummaryRepository;
+
+    /**
+     * Adds a finalized diagnosis to the buckets of every granularity.
+     * Runs in the finalizing transaction; a diagnosis that is finalized again is not counted twice.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void addDiagnosis(DiagnosisSummary summary) {
+        if (summary.getPhotoCount() == 0) {
+            return;
+        }
+        if (diagnosisSummaryRepository.markRolledUp(summary.getDiagnosisId()) == 0) {
+            log.info("Diagnosis ID: {} is already in the rollups", summary.getDiagnosisId());
+            return;
+        }
+
+        LocalDate date = summary.getCreatedAt().toLocalDate();
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            beehiveRollupRepository.addDiagnosis(
+                summary.getBeehiveId(),
+                granularity.name(),
+                granularity.bucketStart(date),
+                summary.getPhotoCount(),
+                summary.getImagoCount(),
+                summary.getLarvaCount(),
+                summary.getLarvaVarroaCount(),
+                summary.getLarvaFoulbroodCount(),
+                summary.getLarvaChalkbroodCount(),
+                summary.getImagoVarroaCount(),
+                summary.getImagoDwvCount()
+            );
+        }
+    }
+
+    /**
+     * The trend of the last months, at the granularity that suits the span.
+     */
+    @Transactional(readOnly = true)
+    public BeehiveTrendResponseDto getTrend(Long beehiveId, int months) {
+        RollupGranularity granularity = RollupGranularity.forSpan(months);
+        LocalDate from = granularity.bucketStart(LocalDate.now().minusMonths(months));
+
+        List<BeehiveTrendPointDto> points = beehiveRollupRepository
+            .findAllByIdBeehiveIdAndIdGranularityAndIdBucketStartGreaterThanEqualOrderByIdBucketStart(beehiveId, granularity, from)
+            .stream()
+            .map(BeehiveRollupService::toTrendPoint)
+            .toList();
+
+        return new BeehiveTrendResponseDto(granularity, points);
+    }
+
+    private static BeehiveTrendPointDto toTrendPoint(BeehiveRollup rollup) {
+        Larva larva = new Larva(
+            rollup.getLarvaVarroaCount(),
+            rollup.getLarvaVarroaRatio(),
+            rollup.getLarvaFoulbroodCount(),
+            rollup.getLarvaFoulbroodRatio(),
+            rollup.getLarvaChalkbroodCount(),
+            rollup.getLarvaChalkbroodRatio()
+        );
+
+        Imago imago = new Imago(
+            rollup.getImagoVarroaCount(),
+            rollup.getImagoVarroaRatio(),
+            rollup.getImagoDwvCount(),
+            rollup.getImagoDwvRatio()
+        );
+
+        return new BeehiveTrendPointDto(
+            rollup.getId().getBucketStart(),
+            rollup.getDiagnosisCount(),
+            rollup.getImagoCount(),
+            rollup.getLarvaCount(),
+            new DiagnosisResultDto(larva, imago)
+        );
+    }
+}
@@ -1,5 +1,6 @@
 package com.worldbeesion.beecareful.beehive.service;
 
+import com.worldbeesion.beecareful.beehive.constant.SeriesMetric;
 import com.worldbeesion.beecareful.beehive.model.dto.*;
 import com.worldbeesion.beecareful.common.auth.principal.UserDetailsImpl;
 
@@ -12,6 +13,11 @@ public interface BeehiveService {
 
     BeehiveDetailResponseDto getBeehiveDetails(Long beehiveId, int month, UserDetailsImpl userDetails);
 
+    BeehiveTrendResponseDto getBeehiveTrend(Long beehiveId, int month, UserDetailsImpl userDetails);
+
+    BeehiveSeriesResponseDto getBeehiveSeries(Long beehiveId, int month, List<SeriesMetric> metrics, Integer points,
+        UserDetailsImpl userDetails);
+
     AnnotatedImagesDto getAnnotatedImages(Long beehiveId, Long diagnosisId);
 
     void addTurret(Long beehiveId, TurretRequestDto turretRequestDto);
@@ -1,5 +1,6 @@
 package com.worldbeesion.beecareful.beehive.service;
 
+import com.worldbeesion.beecareful.beehive.constant.SeriesMetric;
 import com.worldbeesion.beecareful.beehive.exception.AlreadyExistTurretSerialNumException;
 import com.worldbeesion.beecareful.beehive.exception.BeehiveNotFoundException;
 import com.worldbeesion.beecareful.beehive.exception.DirectionDuplicateException;
@@ -8,10 +9,12 @@ import com.worldbeesion.beecareful.beehive.model.dto.*;
 import com.worldbeesion.beecareful.beehive.model.entity.*;
 import com.worldbeesion.beecareful.beehive.repository.*;
 import com.worldbeesion.beecareful.common.auth.principal.UserDetailsImpl;
+import com.worldbeesion.beecareful.common.exception.BadRequestException;
 import com.worldbeesion.beecareful.member.exception.MemberNotFoundException;
 import com.worldbeesion.beecareful.member.model.Member;
 import com.worldbeesion.beecareful.member.repository.MembersRepository;
 import com.worldbeesion.beecareful.s3.model.entity.S3FileMetadata;
+import com.worldbeesion.beecareful.s3.repository.S3FileMetadataRepository;
 import com.worldbeesion.beecareful.s3.service.S3PresignService;
 
 import lombok.RequiredArgsConstructor;
@@ -34,9 +37,12 @@ public class BeehiveServiceImpl implements BeehiveService {
     private final ApiaryRepository apiaryRepository;
     private final MembersRepository membersRepository;
     private final AnalyzedPhotoRepository analyzedPhotoRepository;
-    private final AnalyzedPhotoDiseaseRepository analyzedPhotoDiseaseRepository;
+    private final DiagnosisHistoryService diagnosisHistoryService;
+    private final BeehiveRollupService beehiveRollupService;
     private final TurretRepository turretRepository;
     private final S3PresignService s3PresignService;
+    private final S3FileMetadataRepository s3FileMetadataRepository;
+    private final DiagnosisStorageRepository diagnosisStorageRepository;
 
     @Override
     @Transactional
@@ -100,79 +106,10 @@ public class BeehiveServiceImpl implements BeehiveService {
     @Override
     @Transactional(readOnly = true)
     public BeehiveDetailResponseDto getBeehiveDetails(Long beehiveId, int month, UserDetailsImpl userDetails) {
-        Beehive beehive = beehiveRepository.findById(beehiveId).orElse(null);
-        if (beehive == null || beehive.getDeletedAt() != null) {
-            throw new BeehiveNotFoundException();
-        }
-
-        Member member = membersRepository.findById(userDetails.getMemberId()).orElseThrow(MemberNotFoundException::new);
-        Apiary apiary = apiaryRepository.findByMember(member);
-        boolean isExist = beehiveRepository.existsByIdAndApiary(beehiveId, apiary);
-
-        if (!isExist) {
-            throw new BeehiveNotFoundException();
-        }
+        Beehive beehive = findOwnedBeehive(beehiveId, userDetails);
 
         LocalDateTime startDate = LocalDateTime.now().minusMonths(month);
-        List<Diagnosis> diagnosisList = diagnosisRepository.findRecentDiagnosesByBeehiveId(beehiveId, startDate);
-
-        List<Long> diagnosisIds = new ArrayList<>();
-        for (Diagnosis diagnosis : diagnosisList) {
-            diagnosisIds.add(diagnosis.getId());
-        }
-
-        List<AnalyzedPhotoResultDto> analyzedPhotoIds = analyzedPhotoRepository.getAnalyzedPhotosByDiagnosisIdIn(diagnosisIds);
-
-        List<Long> analyzedPhotoIdList = new ArrayList<>();
-        for (AnalyzedPhotoResultDto analyzedPhotoResultDto : analyzedPhotoIds) {
-            analyzedPhotoIdList.add(analyzedPhotoResultDto.analyzedPhotoId());
-        }
-
-        List<DiagnosisResultProjection> diagnosisResultList = analyzedPhotoDiseaseRepository.getDiagnosisResultByAnalyzedPhotoIds(
-            analyzedPhotoIdList);
-
-        List<BeehiveDiagnosisInfoDto> beehiveDiagnosisInfoList = new ArrayList<>();
-
-        for (DiagnosisResultProjection diagnosisResultProjection : diagnosisResultList) {
-            TotalCountImagoLarvaProjection totalCountByDiagnosis = analyzedPhotoRepository.getTotalCountByDiagnosis(
-                diagnosisResultProjection.getDiagnosisId());
-            Long totalLarva = totalCountByDiagnosis.getLarvaCount();
-            Long totalImago = totalCountByDiagnosis.getImagoCount();
-
-            double larvaVarroaRatio = calculateDiseaseRatio(diagnosisResultProjection.getLarvavarroaCount(), totalLarva);
-            double larvaFoulBroodRatio = calculateDiseaseRatio(diagnosisResultProjection.getLarvafoulBroodCount(), totalLarva);
-            double larvaChalkBroodRatio = calculateDiseaseRatio(diagnosisResultProjection.getLarvachalkBroodCount(), totalLarva);
-            double imagoVarroaRatio = calculateDiseaseRatio(diagnosisResultProjection.getImagovarroaCount(), totalImago);
-            double imagoDwvRatio = calculateDiseaseRatio(diagnosisResultProjection.getImagodwvCount(), totalImago);
-
-            Larva larva = new Larva(
-                diagnosisResultProjection.getLarvavarroaCount(),
-                larvaVarroaRatio,
-                diagnosisResultProjection.getLarvafoulBroodCount(),
-                larvaFoulBroodRatio,
-                diagnosisResultProjection.getLarvachalkBroodCount(),
-                larvaChalkBroodRatio
-            );
-
-            Imago imago = new Imago(
-                diagnosisResultProjection.getImagovarroaCount(),
-                imagoVarroaRatio,
-                diagnosisResultProjection.getImagodwvCount(),
-                imagoDwvRatio
-            );
-
-            DiagnosisResultDto diagnosisResultDto = new DiagnosisResultDto(larva, imago);
-
-            BeehiveDiagnosisInfoDto beehiveDiagnosisInfoDto = new BeehiveDiagnosisInfoDto(
-                diagnosisResultProjection.getDiagnosisId(),
-                diagnosisResultProjection.getCreatedAt(),
-                totalImago,
-                totalLarva,
-                diagnosisResultDto
-            );
-
-            beehiveDiagnosisInfoList.add(beehiveDiagnosisInfoDto);
-        }
+        List<BeehiveDiagnosisInfoDto> beehiveDiagnosisInfoList = diagnosisHistoryService.getHistory(beehiveId, startDate);
 
         Turret turret = turretRepository.findByBeehive(beehive).orElse(null);
         Long turretId = null;
@@ -187,16 +124,39 @@ public class BeehiveServiceImpl implements BeehiveService {
         );
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public BeehiveTrendResponseDto getBeehiveTrend(Long beehiveId, int month, UserDetailsImpl userDetails) {
+        findOwnedBeehive(beehiveId, userDetails);
+        return beehiveRollupService.getTrend(beehiveId, month);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public BeehiveSeriesResponseDto getBeehiveSeries(Long beehiveId, int month, List<SeriesMetric> metrics, Integer points,
+        UserDetailsImpl userDetails) {
+        findOwnedBeehive(beehiveId, userDetails);
+        if (points != null && points < 3) {
+            throw new BadRequestException();
+        }
+        Collection<SeriesMetric> selected = metrics == null || metrics.isEmpty() ? List.of(SeriesMetric.values()) : metrics;
+        return diagnosisHistoryService.getSeries(beehiveId, LocalDateTime.now().minusMonths(month), selected, points);
+    }
+
     @Override
     public AnnotatedImagesDto getAnnotatedImages(Long beehiveId, Long diagnosisId) {
-        List<String> urls = new ArrayList<>();
         diagnosisRepository.findById(diagnosisId).orElseThrow(BeehiveNotFoundException::new);
         List<AnalyzedPhoto> analyzedPhotoList = analyzedPhotoRepository.getAnalyzedPhotosByDiagnosisId(diagnosisId);
-        for (AnalyzedPhoto analyzedPhoto : analyzedPhotoList) {
-            S3FileMetadata metadata = analyzedPhoto.getS3FileMetadata();
-            urls.add(s3PresignService.generateGetUrl(metadata));
+        List<S3FileMetadata> metadataList = analyzedPhotoList.stream()
+            .map(AnalyzedPhoto::getS3FileMetadata)
+            .toList();
+
+        // Photos of old diagnoses live in the archive tables
+        if (metadataList.isEmpty()) {
+            metadataList = s3FileMetadataRepository.findAllById(
+                diagnosisStorageRepository.findArchivedAnnotatedS3FileMetadataIds(diagnosisId));
         }
-        return new AnnotatedImagesDto(urls);
+        return new AnnotatedImagesDto(s3PresignService.generateGetUrls(metadataList));
     }
 
     @Override
@@ -272,10 +232,19 @@ public class BeehiveServiceImpl implements BeehiveService {
 
     }
 
-    private double calculateDiseaseRatio(Long diseaseCount, Long totalCount) {
-        if (totalCount == 0)
-            return 0;
-        double ratio = (double) diseaseCount / totalCount * 100;
-        return Math.round(ratio * 1000) / 1000.0;
+    private Beehive findOwnedBeehive(Long beehiveId, UserDetailsImpl userDetails) {
+        Beehive beehive = beehiveRepository.findById(beehiveId).orElse(null);
+        if (beehive == null || beehive.getDeletedAt() != null) {
+            throw new BeehiveNotFoundException();
+        }
+
+        Member member = membersRepository.findById(userDetails.getMemberId()).orElseThrow(MemberNotFoundException::new);
+        Apiary apiary = apiaryRepository.findByMember(member);
+        boolean isExist = beehiveRepository.existsByIdAndApiary(beehiveId, apiary);
+
+        if (!isExist) {
+            throw new BeehiveNotFoundException();
+        }
+        return beehive;
     }
 }
@@ -0,0 +1,111 @@
+package com.worldbeesion.beecareful.beehive.service;
+
+import com.worldbeesion.beecareful.beehive.constant.SeriesMetric;
+import com.worldbeesion.beecareful.beehive.model.dto.BeehiveDiagnosisInfoDto;
+import com.worldbeesion.beecareful.beehive.model.dto.BeehiveSeriesResponseDto;
+import com.worldbeesion.beecareful.beehive.model.dto.DiagnosisHistoryProjection;
+import com.worldbeesion.beecareful.beehive.model.dto.DiagnosisResultDto;
+import com.worldbeesion.beecareful.beehive.model.dto.Imago;
+import com.worldbeesion.beecareful.beehive.model.dto.Larva;
+import com.worldbeesion.beecareful.beehive.model.dto.MetricSeriesDto;
+import com.worldbeesion.beecareful.beehive.repository.DiagnosisSummaryRepository;
+import com.worldbeesion.beecareful.common.util.LttbDownsampler;
+
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Builds the diagnosis history of a beehive with a single query, however many diagnoses and photos it covers,
+ * either as one object per diagnosis or as chart series.
+ */
+@Service
+@RequiredArgsConstructor
+public class DiagnosisHistoryService {
+
+    private final DiagnosisSummaryRepository diagnosisSummaryRepository;
+
+    @Transactional(readOnly = true)
+    public List<BeehiveDiagnosisInfoDto> getHistory(Long beehiveId, LocalDateTime startDate) {
+        try (Stream<DiagnosisHistoryProjection> rows = diagnosisSummaryRepository.streamHistory(beehiveId, startDate)) {
+            return rows.map(DiagnosisHistoryService::toDiagnosisInfo).toList();
+        }
+    }
+
+    /**
+     * The same history as parallel arrays per metric. With maxPoints, every metric longer than that is reduced
+     * to maxPoints points by LTTB downsampling.
+     */
+    @Transactional(readOnly = true)
+    public BeehiveSeriesResponseDto getSeries(Long beehiveId, LocalDateTime startDate, Collection<SeriesMetric> metrics,
+        Integer maxPoints) {
+        List<DiagnosisHistoryProjection> rows;
+        try (Stream<DiagnosisHistoryProjection> stream = diagnosisSummaryRepository.streamHistory(beehiveId, startDate)) {
+            rows = stream.toList();
+        }
+
+        long[] timestamps = new long[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            timestamps[i] = rows.get(i).getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        }
+
+        Map<String, MetricSeriesDto> series = new LinkedHashMap<>();
+        for (SeriesMetric metric : metrics) {
+            double[] values = new double[rows.size()];
+            for (int i = 0; i < rows.size(); i++) {
+                values[i] = metric.valueOf(rows.get(i));
+            }
+            series.put(metric.getKey(), toSeries(timestamps, values, maxPoints));
+        }
+        return new BeehiveSeriesResponseDto(rows.size(), series);
+    }
+
+    private static MetricSeriesDto toSeries(long[] timestamps, double[] values, Integer maxPoints) {
+        if (maxPoints == null || maxPoints >= timestamps.length) {
+            return new MetricSeriesDto(timestamps, values);
+        }
+        int[] kept = LttbDownsampler.downsample(timestamps, values, maxPoints);
+        long[] t = new long[kept.length];
+        double[] v = new double[kept.length];
+        for (int i = 0; i < kept.length; i++) {
+            t[i] = timestamps[kept[i]];
+            v[i] = values[kept[i]];
+        }
+        return new MetricSeriesDto(t, v);
+    }
+
+    private static BeehiveDiagnosisInfoDto toDiagnosisInfo(DiagnosisHistoryProjection row) {
+        Larva larva = new Larva(
+            row.getLarvaVarroaCount(),
+            row.getLarvaVarroaRatio(),
+            row.getLarvaFoulbroodCount(),
+            row.getLarvaFoulbroodRatio(),
+            row.getLarvaChalkbroodCount(),
+            row.getLarvaChalkbroodRatio()
+        );
+
+        Imago imago = new Imago(
+            row.getImagoVarroaCount(),
+            row.getImagoVarroaRatio(),
+            row.getImagoDwvCount(),
+            row.getImagoDwvRatio()
+        );
+
+        return new BeehiveDiagnosisInfoDto(
+            row.getDiagnosisId(),
+            row.getCreatedAt(),
+            row.getImagoCount(),
+            row.getLarvaCount(),
+            new DiagnosisResultDto(larva, imago)
+        );
+    }
+}
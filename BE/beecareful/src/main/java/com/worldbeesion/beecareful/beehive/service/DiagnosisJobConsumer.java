@@ -0,0 +1,68 @@
+package com.worldbeesion.beecareful.beehive.service;
+
+import com.worldbeesion.beecareful.redis.stream.RedisStreamConsumer;
+import com.worldbeesion.beecareful.redis.stream.RedisStreamProperties;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Consumes diagnosis jobs from the Redis Stream as a member of the shared consumer group.
+ * A job is acknowledged only after its diagnosis has been finalized, in both pipeline modes;
+ * failed or abandoned jobs are reclaimed and retried.
+ */
+@Component
+@ConditionalOnProperty(name = "diagnosis.queue.enabled", havingValue = "true")
+@Slf4j
+public class DiagnosisJobConsumer extends RedisStreamConsumer {
+
+    private final DiagnosisService diagnosisService;
+
+    public DiagnosisJobConsumer(
+        @Value("${diagnosis.queue.stream-key:diagnosis:jobs}") String streamKey,
+        @Value("${diagnosis.queue.group:diagnosis-workers}") String group,
+        @Value("${diagnosis.queue.consumer-name:}") String consumerName,
+        @Value("${diagnosis.queue.reclaim-idle:10m}") Duration reclaimIdle,
+        @Value("${diagnosis.queue.max-deliveries:3}") long maxDeliveries,
+        @Value("${diagnosis.queue.max-length:10000}") long maxLength,
+        StringRedisTemplate stringRedisTemplate,
+        MeterRegistry meterRegistry,
+        DiagnosisService diagnosisService) {
+        super(new RedisStreamProperties(streamKey, group, consumerName, reclaimIdle, maxDeliveries, maxLength),
+            stringRedisTemplate, meterRegistry, "diagnosis.job");
+        this.diagnosisService = diagnosisService;
+    }
+
+    @Override
+    protected void process(MapRecord<String, String, String> record) {
+        Long diagnosisId = Long.valueOf(record.getValue().get(DiagnosisJobPublisher.DIAGNOSIS_ID_FIELD));
+        log.info("Consuming diagnosis job {} for diagnosisId: {}", record.getId(), diagnosisId);
+        // In REACTIVE mode runDiagnosis returns once the pipeline is subscribed, so wait for it to finish
+        try {
+            diagnosisService.runDiagnosis(diagnosisId).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${diagnosis.queue.reclaim-interval-ms:60000}")
+    public void reclaimPendingJobs() {
+        reclaimPendingEntries();
+    }
+
+    @Scheduled(fixedDelayString = "${diagnosis.queue.heartbeat-interval-ms:60000}")
+    public void extendRunningJobs() {
+        extendInFlightEntries();
+    }
+}
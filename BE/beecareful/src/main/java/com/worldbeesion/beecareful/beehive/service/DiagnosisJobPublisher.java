@@ -0,0 +1,52 @@
+package com.worldbeesion.beecareful.beehive.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+
+/**
+ * Hands a diagnosis whose photos have all been uploaded over to the diagnosis workers.
+ * With diagnosis.queue.enabled the job is appended to the Redis Stream and picked up by any backend node,
+ * otherwise the diagnosis runs inline on the calling thread as before.
+ */
+@Service
+@Slf4j
+public class DiagnosisJobPublisher {
+
+    public static final String DIAGNOSIS_ID_FIELD = "diagnosisId";
+
+    private final boolean queueEnabled;
+    private final String streamKey;
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final DiagnosisService diagnosisService;
+
+    public DiagnosisJobPublisher(
+        @Value("${diagnosis.queue.enabled:false}") boolean queueEnabled,
+        @Value("${diagnosis.queue.stream-key:diagnosis:jobs}") String streamKey,
+        StringRedisTemplate stringRedisTemplate,
+        DiagnosisService diagnosisService) {
+        this.queueEnabled = queueEnabled;
+        this.streamKey = streamKey;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.diagnosisService = diagnosisService;
+    }
+
+    public void publish(Long diagnosisId) {
+        if (!queueEnabled) {
+            diagnosisService.runDiagnosis(diagnosisId);
+            return;
+        }
+
+        RecordId recordId = stringRedisTemplate.opsForStream().add(
+            StreamRecords.string(Map.of(DIAGNOSIS_ID_FIELD, String.valueOf(diagnosisId))).withStreamKey(streamKey)
+        );
+        log.info("Published diagnosis job {} for diagnosisId: {}", recordId, diagnosisId);
+    }
+}
@@ -0,0 +1,50 @@
+package com.worldbeesion.beecareful.beehive.service;
+
+import com.worldbeesion.beecareful.beehive.model.entity.Beehive;
+import com.worldbeesion.beecareful.beehive.model.entity.Diagnosis;
+import com.worldbeesion.beecareful.beehive.repository.BeehiveRepository;
+import com.worldbeesion.beecareful.beehive.repository.DiagnosisRepository;
+import com.worldbeesion.beecareful.beehive.repository.DiagnosisSummaryRepository;
+import com.worldbeesion.beecareful.beehive.repository.OriginalPhotoBulkRepository;
+import com.worldbeesion.beecareful.s3.model.entity.S3FileMetadata;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class DiagnosisRegistrationService {
+
+    private final DiagnosisRepository diagnosisRepository;
+    private final OriginalPhotoBulkRepository originalPhotoBulkRepository;
+    private final DiagnosisSummaryRepository diagnosisSummaryRepository;
+    private final BeehiveRepository beehiveRepository;
+
+    /**
+     * Creates the diagnosis together with the metadata and original photo rows of its photos
+     * and its empty summary row, and makes it the latest diagnosis of the beehive.
+     * Kept in its own short transaction so that URL signing happens before any connection is taken.
+     *
+     * @param beehive The beehive being diagnosed
+     * @param metadataList Unsaved PENDING metadata of the photos to be uploaded
+     * @return The saved diagnosis
+     */
+    @Transactional
+    public Diagnosis register(Beehive beehive, List<S3FileMetadata> metadataList) {
+        Diagnosis diagnosis = diagnosisRepository.save(Diagnosis.builder()
+            .beehive(beehive)
+            .build());
+
+        originalPhotoBulkRepository.insertAll(diagnosis.getId(), metadataList);
+        diagnosisSummaryRepository.insertEmpty(diagnosis.getId(), beehive.getId(), diagnosis.getCreatedAt());
+        beehiveRepository.updateLastDiagnosis(beehive.getId(), diagnosis.getId(), diagnosis.getCreatedAt());
+        log.info("Registered diagnosis ID: {} with {} photos", diagnosis.getId(), metadataList.size());
+        return diagnosis;
+    }
+}
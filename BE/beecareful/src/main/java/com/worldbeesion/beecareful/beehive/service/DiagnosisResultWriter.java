@@ -0,0 +1,212 @@
+package com.worldbeesion.beecareful.beehive.service;
+
+import com.worldbeesion.beecareful.beehive.constant.DiagnosisStatus;
+import com.worldbeesion.beecareful.beehive.model.dto.AnalyzedPhotoResult;
+import com.worldbeesion.beecareful.beehive.repository.AnalysisResultBulkRepository;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Result-writer stage of the diagnosis pipeline.
+ * Analysis threads hand over finished photos instead of writing them themselves; a single writer thread collects
+ * them for up to maxDelay or maxBatchSize photos and writes the whole batch with JDBC batch statements in one
+ * transaction. The future returned for a photo completes once its batch is committed.
+ * <p>
+ * If a batch fails, its photos are retried one by one so a single bad result cannot fail its neighbours.
+ */
+@Service
+@Slf4j
+public class DiagnosisResultWriter {
+
+    private static final Duration IDLE_POLL_TIMEOUT = Duration.ofSeconds(1);
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(30);
+
+    private final AnalysisResultBulkRepository analysisResultBulkRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxBatchSize;
+    private final Duration maxDelay;
+    private final BlockingQueue<PendingWrite> queue;
+    private final Timer flushTimer;
+    private final DistributionSummary batchSizeSummary;
+
+    private volatile boolean running;
+    private Thread writerThread;
+
+    public DiagnosisResultWriter(
+        AnalysisResultBulkRepository analysisResultBulkRepository,
+        PlatformTransactionManager transactionManager,
+        @Value("${diagnosis.result-writer.max-batch-size:200}") int maxBatchSize,
+        @Value("${diagnosis.result-writer.max-delay:50ms}") Duration maxDelay,
+        @Value("${diagnosis.result-writer.queue-capacity:10000}") int queueCapacity,
+        MeterRegistry meterRegistry) {
+        this.analysisResultBulkRepository = analysisResultBulkRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelay = maxDelay;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        this.flushTimer = Timer.builder("diagnosis.result-writer.flush")
+            .description("Time to write one batch of photo results")
+            .register(meterRegistry);
+        this.batchSizeSummary = DistributionSummary.builder("diagnosis.result-writer.batch.size")
+            .description("Number of photo results written per batch")
+            .register(meterRegistry);
+        Gauge.builder("diagnosis.result-writer.queue.size", queue, BlockingQueue::size)
+            .description("Number of photo results waiting to be written")
+            .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        writerThread = new Thread(this::run, "diagnosis-result-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Lets the writer thread drain what is still queued before the context closes.
+     */
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        writerThread.join(SHUTDOWN_TIMEOUT.toMillis());
+    }
+
+    /**
+     * Queues the result of a photo; its original photo becomes SUCCESS when the batch is committed.
+     * Blocks while the queue is full, which slows the analysis down to the speed of the database.
+     */
+    public CompletableFuture<Void> write(AnalyzedPhotoResult result) {
+        return enqueue(new PendingWrite(result, result.originalPhotoId()));
+    }
+
+    /**
+     * Queues a FAIL status for a photo whose analysis failed.
+     */
+    public CompletableFuture<Void> markFailed(Long originalPhotoId) {
+        return enqueue(new PendingWrite(null, originalPhotoId));
+    }
+
+    /**
+     * Sets the photos to ANALYZING right away with one UPDATE. Not queued, because the AI call waits for it.
+     */
+    public void markAnalyzing(Collection<Long> originalPhotoIds) {
+        analysisResultBulkRepository.updateOriginalPhotoStatuses(originalPhotoIds, DiagnosisStatus.ANALYZING);
+    }
+
+    private CompletableFuture<Void> enqueue(PendingWrite pendingWrite) {
+        try {
+            queue.put(pendingWrite);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pendingWrite.future().completeExceptionally(e);
+        }
+        return pendingWrite.future();
+    }
+
+    private void run() {
+        List<PendingWrite> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(IDLE_POLL_TIMEOUT.toNanos(), TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                collect(batch);
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.forEach(pendingWrite -> pendingWrite.future().completeExceptionally(e));
+                return;
+            } catch (Exception e) {
+                log.error("Unexpected error in the diagnosis result writer", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void collect(List<PendingWrite> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + maxDelay.toNanos();
+        while (batch.size() < maxBatchSize) {
+            queue.drainTo(batch, maxBatchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= maxBatchSize || remaining <= 0) {
+                return;
+            }
+            PendingWrite next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void flush(List<PendingWrite> batch) {
+        try {
+            flushTimer.record(() -> transactionTemplate.executeWithoutResult(status -> writeBatch(batch)));
+            batchSizeSummary.record(batch.size());
+            batch.forEach(pendingWrite -> pendingWrite.future().complete(null));
+            log.debug("Wrote {} photo results", batch.size());
+        } catch (Exception e) {
+            if (batch.size() > 1) {
+                log.warn("Failed to write a batch of {} photo results, retrying one by one: {}", batch.size(), e.getMessage());
+                batch.forEach(pendingWrite -> flush(List.of(pendingWrite)));
+                return;
+            }
+            log.error("Failed to write the result of original photo ID: {}", batch.get(0).originalPhotoId(), e);
+            batch.get(0).future().completeExceptionally(e);
+        }
+    }
+
+    private void writeBatch(List<PendingWrite> batch) {
+        List<AnalyzedPhotoResult> results = new ArrayList<>();
+        List<Long> failedPhotoIds = new ArrayList<>();
+        for (PendingWrite pendingWrite : batch) {
+            if (pendingWrite.result() != null) {
+                results.add(pendingWrite.result());
+            } else {
+                failedPhotoIds.add(pendingWrite.originalPhotoId());
+            }
+        }
+
+        if (!results.isEmpty()) {
+            analysisResultBulkRepository.insertAll(results);
+            analysisResultBulkRepository.updateOriginalPhotoStatuses(
+                results.stream().map(AnalyzedPhotoResult::originalPhotoId).toList(),
+                DiagnosisStatus.SUCCESS
+            );
+        }
+        analysisResultBulkRepository.updateOriginalPhotoStatuses(failedPhotoIds, DiagnosisStatus.FAIL);
+    }
+
+    private record PendingWrite(AnalyzedPhotoResult result, Long originalPhotoId, CompletableFuture<Void> future) {
+
+        PendingWrite(AnalyzedPhotoResult result, Long originalPhotoId) {
+            this(result, originalPhotoId, new CompletableFuture<>());
+        }
+    }
+}
@@ -4,17 +4,12 @@ import com.worldbeesion.beecareful.beehive.constant.DiagnosisStatus;
 import com.worldbeesion.beecareful.beehive.model.dto.DiagnosisApiResponse;
 import com.worldbeesion.beecareful.beehive.model.dto.DiagnosisDto;
 import com.worldbeesion.beecareful.beehive.model.dto.DiagnosisResponseDto;
-import com.worldbeesion.beecareful.beehive.model.entity.AnalyzedPhoto;
-import com.worldbeesion.beecareful.beehive.model.entity.Diagnosis;
-import com.worldbeesion.beecareful.beehive.model.entity.OriginalPhoto;
-import com.worldbeesion.beecareful.beehive.constant.BeeStage;
-import com.worldbeesion.beecareful.beehive.constant.DiseaseName;
-import com.worldbeesion.beecareful.s3.model.entity.S3FileMetadata;
 
 import reactor.core.publisher.Mono;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public interface DiagnosisService {
 
@@ -31,44 +26,13 @@ public interface DiagnosisService {
 
     /**
      * Runs the diagnosis process for a given diagnosis ID.
+     * Both modes return once the photos have been handed to the pipeline; photos that keep failing are re-queued
+     * for a limited number of rounds, after which the diagnosis is finalized with the photos that succeeded.
      * 
      * @param diagnosisId The ID of the diagnosis to run
+     * @return completes once the diagnosis has been finalized, or exceptionally if it could not be
      */
-    void runDiagnosis(Long diagnosisId);
-
-    /**
-     * Creates an AnalyzedPhoto entity from the diagnosis result.
-     * 
-     * @param originalPhoto The original photo entity
-     * @param diagnosis The diagnosis entity
-     * @param analyzedImageMetadata The S3 file metadata for the analyzed image
-     * @param diagResult The diagnosis result from the AI API
-     * @return The created AnalyzedPhoto entity
-     */
-    AnalyzedPhoto createAnalyzedPhotoEntity(
-        OriginalPhoto originalPhoto,
-        Diagnosis diagnosis,
-        S3FileMetadata analyzedImageMetadata,
-        DiagnosisApiResponse.DiagnosisResult diagResult
-    );
-
-    /**
-     * Saves all detected diseases for a given analyzed photo.
-     * 
-     * @param analyzedPhoto The analyzed photo entity
-     * @param result The diagnosis result from the AI API
-     */
-    void saveAnalyzedPhotoDiseases(AnalyzedPhoto analyzedPhoto, DiagnosisApiResponse.DiagnosisResult result);
-
-    /**
-     * Saves a disease detection for an analyzed photo.
-     * 
-     * @param analyzedPhoto The analyzed photo entity
-     * @param beeStage The stage of the bee (larva or imago)
-     * @param diseaseName The name of the disease
-     * @param count The count of the disease
-     */
-    void saveAnalyzedPhotoDisease(AnalyzedPhoto analyzedPhoto, BeeStage beeStage, DiseaseName diseaseName, Long count);
+    CompletableFuture<Void> runDiagnosis(Long diagnosisId);
 
     /**
      * Sums up all the diagnosis results from multiple photos.
@@ -1,10 +1,11 @@
 package com.worldbeesion.beecareful.beehive.service;
 
-import static com.worldbeesion.beecareful.common.util.S3Util.*;
-
-import com.worldbeesion.beecareful.beehive.constant.BeeStage;
+import com.worldbeesion.beecareful.ai.client.AdaptiveBatchSizer;
+import com.worldbeesion.beecareful.ai.client.AiDiagnosisTransport;
+import com.worldbeesion.beecareful.ai.client.AiRetryPolicy;
+import com.worldbeesion.beecareful.beehive.config.DiagnosisExecutorConfig;
+import com.worldbeesion.beecareful.beehive.constant.DiagnosisPipelineMode;
 import com.worldbeesion.beecareful.beehive.constant.DiagnosisStatus;
-import com.worldbeesion.beecareful.beehive.constant.DiseaseName;
 import com.worldbeesion.beecareful.beehive.model.dto.*;
 import com.worldbeesion.beecareful.beehive.model.entity.*;
 import com.worldbeesion.beecareful.beehive.repository.*;
@@ -13,109 +14,118 @@ import com.worldbeesion.beecareful.member.model.Member;
 import com.worldbeesion.beecareful.notification.constant.NotificationType;
 import com.worldbeesion.beecareful.notification.model.dto.NotificationRequestDto;
 import com.worldbeesion.beecareful.notification.service.FCMService;
-import com.worldbeesion.beecareful.s3.constant.S3FileStatus;
+import com.worldbeesion.beecareful.s3.model.dto.GeneratePutUrlRequest;
 import com.worldbeesion.beecareful.s3.model.dto.GeneratePutUrlResponse;
-import com.worldbeesion.beecareful.s3.model.entity.S3FileMetadata;
-import com.worldbeesion.beecareful.s3.repository.S3FileMetadataRepository;
+import com.worldbeesion.beecareful.s3.service.OriginPhotoUploadCounter;
 import com.worldbeesion.beecareful.s3.service.S3PresignService;
 
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Isolation;
-import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.reactive.function.client.WebClient;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 @Slf4j
 public class DiagnosisServiceImpl implements DiagnosisService {
 
-    private final String aiDiagnosisPath;
+    // parsing the response on top of the AI call itself
+    private static final Duration AI_RESPONSE_TIMEOUT_MARGIN = Duration.ofSeconds(10);
+
+    private final AiDiagnosisTransport aiDiagnosisClient;
+    private final Duration aiResponseTimeout;
+    private final AdaptiveBatchSizer adaptiveBatchSizer;
+    private final boolean batchEnabled;
+    private final int batchConcurrency;
+
+    private final Executor diagnosisExecutor;
+    private final int perDiagnosisParallelism;
+
+    private final DiagnosisPipelineMode pipelineMode;
+    private final Scheduler diagnosisDbScheduler;
+    private final int reactiveConcurrency;
 
-    private final WebClient webClient;
+    private final int requeueMaxRounds;
+    private final Duration requeueDelay;
 
     private final FCMService fcmService;
     private final S3PresignService s3PresignService;
+    private final OriginPhotoUploadCounter originPhotoUploadCounter;
     private final DiagnosisFinalizerService diagnosisFinalizerService;
+    private final DiagnosisRegistrationService diagnosisRegistrationService;
+    private final DiagnosisResultWriter diagnosisResultWriter;
 
-    private final S3FileMetadataRepository s3FileMetadataRepository;
     private final DiagnosisRepository diagnosisRepository;
     private final OriginalPhotoRepository originalPhotoRepository;
-    private final AnalyzedPhotoRepository analyzedPhotoRepository;
-    private final AnalyzedPhotoDiseaseRepository analyzedPhotoDiseaseRepository;
-    private final DiseaseRepository diseaseRepository;
     private final BeehiveRepository beehiveRepository;
 
     public DiagnosisServiceImpl(
-        @Value("${ai-server.diagnosis-path}") String aiDiagnosisPath,
-        @Value("${ai-server.baseUrl}") String aiServerBaseUrl,
-        FCMService fcmService, S3PresignService s3PresignService, DiagnosisFinalizerService diagnosisFinalizerService,
-        S3FileMetadataRepository s3FileMetadataRepository, DiagnosisRepository diagnosisRepository, OriginalPhotoRepository originalPhotoRepository,
-        AnalyzedPhotoRepository analyzedPhotoRepository, AnalyzedPhotoDiseaseRepository analyzedPhotoDiseaseRepository,
-        DiseaseRepository diseaseRepository, BeehiveRepository beehiveRepository) {
-        this.aiDiagnosisPath = aiDiagnosisPath;
-        this.webClient = WebClient.builder()
-            .baseUrl(aiServerBaseUrl)
-            .codecs(configurer -> configurer.defaultCodecs().maxInMemorySize(128 * 1024 * 1024)) // 128MB buffer
-            .build();
+        AiDiagnosisTransport aiDiagnosisClient,
+        AiRetryPolicy aiRetryPolicy,
+        @Value("${ai-server.limiter.max-queue-wait:60s}") Duration aiMaxQueueWait,
+        @Value("${ai-server.http.response-timeout:60s}") Duration aiHttpResponseTimeout,
+        @Value("${ai-server.grpc.deadline:60s}") Duration aiGrpcDeadline,
+        AdaptiveBatchSizer adaptiveBatchSizer,
+        @Value("${ai-server.batch.enabled:false}") boolean batchEnabled,
+        @Value("${ai-server.batch.concurrency:4}") int batchConcurrency,
+        @Qualifier(DiagnosisExecutorConfig.DIAGNOSIS_EXECUTOR) Executor diagnosisExecutor,
+        @Value("${diagnosis.executor.per-diagnosis-parallelism:4}") int perDiagnosisParallelism,
+        @Value("${diagnosis.pipeline.mode:EXECUTOR}") DiagnosisPipelineMode pipelineMode,
+        @Qualifier(DiagnosisExecutorConfig.DIAGNOSIS_DB_SCHEDULER) Scheduler diagnosisDbScheduler,
+        @Value("${diagnosis.reactive.concurrency:64}") int reactiveConcurrency,
+        @Value("${diagnosis.requeue.max-rounds:2}") int requeueMaxRounds,
+        @Value("${diagnosis.requeue.delay:5s}") Duration requeueDelay,
+        FCMService fcmService, S3PresignService s3PresignService, OriginPhotoUploadCounter originPhotoUploadCounter,
+        DiagnosisFinalizerService diagnosisFinalizerService, DiagnosisRegistrationService diagnosisRegistrationService,
+        DiagnosisResultWriter diagnosisResultWriter,
+        DiagnosisRepository diagnosisRepository, OriginalPhotoRepository originalPhotoRepository,
+        BeehiveRepository beehiveRepository) {
+        this.aiDiagnosisClient = aiDiagnosisClient;
+        // every attempt goes through the limiter queue again and is then bounded by the timeout of the transport
+        Duration aiAttemptTimeout = aiMaxQueueWait.plus(
+            aiHttpResponseTimeout.compareTo(aiGrpcDeadline) >= 0 ? aiHttpResponseTimeout : aiGrpcDeadline);
+        this.aiResponseTimeout = aiRetryPolicy.maxTotalDuration(aiAttemptTimeout).plus(AI_RESPONSE_TIMEOUT_MARGIN);
+        log.info("AI response timeout including retries: {}", aiResponseTimeout);
+        this.adaptiveBatchSizer = adaptiveBatchSizer;
+        this.batchEnabled = batchEnabled;
+        this.batchConcurrency = batchConcurrency;
+        this.diagnosisExecutor = diagnosisExecutor;
+        this.perDiagnosisParallelism = perDiagnosisParallelism;
+        this.pipelineMode = pipelineMode;
+        this.diagnosisDbScheduler = diagnosisDbScheduler;
+        this.reactiveConcurrency = reactiveConcurrency;
+        this.requeueMaxRounds = requeueMaxRounds;
+        this.requeueDelay = requeueDelay;
         this.fcmService = fcmService;
         this.s3PresignService = s3PresignService;
+        this.originPhotoUploadCounter = originPhotoUploadCounter;
         this.diagnosisFinalizerService = diagnosisFinalizerService;
-        this.s3FileMetadataRepository = s3FileMetadataRepository;
+        this.diagnosisRegistrationService = diagnosisRegistrationService;
+        this.diagnosisResultWriter = diagnosisResultWriter;
         this.diagnosisRepository = diagnosisRepository;
         this.originalPhotoRepository = originalPhotoRepository;
-        this.analyzedPhotoRepository = analyzedPhotoRepository;
-        this.analyzedPhotoDiseaseRepository = analyzedPhotoDiseaseRepository;
-        this.diseaseRepository = diseaseRepository;
         this.beehiveRepository = beehiveRepository;
     }
 
     @Override
     public Mono<DiagnosisApiResponse> analyzePhoto(String originalPhotoS3Key) {
-        log.debug("Sending S3 key {} to AI API for analysis.", originalPhotoS3Key);
-
-        return webClient.post()
-            .uri(aiDiagnosisPath)
-            .contentType(MediaType.APPLICATION_JSON)
-            .bodyValue(Map.of("s3Key", originalPhotoS3Key))
-            .accept(MediaType.APPLICATION_JSON)
-            .retrieve()
-            .bodyToMono(DiagnosisApiResponse.class)
-            .flatMap(response -> {
-                if (response == null) {
-                    log.error("AI API returned null response");
-                    return Mono.error(new RuntimeException("AI API returned null response"));
-                }
-
-                if (response.diagnosis() == null) {
-                    log.error("AI API returned null diagnosis result");
-                    return Mono.error(new RuntimeException("AI API returned null diagnosis result"));
-                }
-
-                if (response.annotatedImageS3Key() == null || response.annotatedImageS3Key().isEmpty()) {
-                    log.error("AI API returned null or empty analyzed image S3 key");
-                    return Mono.error(new RuntimeException("AI API returned null or empty analyzed image S3 key"));
-                }
-
-                log.debug("Received diagnosis result and analyzed image S3 key: {}", response.annotatedImageS3Key());
-                return Mono.just(response);
-            })
-            .onErrorResume(e -> {
-                log.error("Error occurred while calling AI API: {}", e.getMessage(), e);
-                return Mono.error(new RuntimeException("Failed to get diagnosis from AI API", e));
-            });
+        return aiDiagnosisClient.analyzePhoto(originalPhotoS3Key);
     }
 
     @Override
-    public void runDiagnosis(Long diagnosisId) {
+    public CompletableFuture<Void> runDiagnosis(Long diagnosisId) {
         log.info("Starting diagnosis process for diagnosisId: {}", diagnosisId);
 
         // 1. Retrieve Diagnosis entity
@@ -130,39 +140,272 @@ public class DiagnosisServiceImpl implements DiagnosisService {
 
         if (originalPhotos.isEmpty()) {
             log.warn("No original photos found for diagnosisId: {}. Diagnosis process cannot run.", diagnosisId);
-            return;
+            return CompletableFuture.completedFuture(null);
         }
         log.info("Found {} original photos for diagnosisId: {}", originalPhotos.size(), diagnosisId);
 
-        // 3. Process each photo asynchronously and collect the responses
-        List<CompletableFuture<Void>> futures = originalPhotos.stream()
-            .map(originalPhoto ->
-                CompletableFuture.runAsync(() -> analyzePhoto(originalPhoto, diagnosis))
-            )
+        // A redelivered job only analyzes the photos that did not succeed the last time
+        List<OriginalPhoto> pendingPhotos = unfinishedPhotos(originalPhotos);
+        if (pendingPhotos.size() < originalPhotos.size()) {
+            log.info("Skipping {} already analyzed photos of diagnosisId: {}", originalPhotos.size() - pendingPhotos.size(), diagnosisId);
+        }
+
+        if (pipelineMode == DiagnosisPipelineMode.REACTIVE) {
+            return runDiagnosisReactive(diagnosis, pendingPhotos);
+        }
+
+        // 3. Analyze the photos, then finalize the diagnosis
+        return analyzePhotos(pendingPhotos, diagnosis, 0)
+            // Call finishDiagnosis through the proxy
+            .thenRun(() -> diagnosisFinalizerService.finishDiagnosis(diagnosisId))
+            .whenComplete((ignored, e) -> {
+                if (e != null) {
+                    log.error("Diagnosis process failed for diagnosisId: {}", diagnosisId, e);
+                } else {
+                    log.info("Finished diagnosis process for diagnosisId: {}", diagnosisId);
+                }
+            });
+    }
+
+    /**
+     * One round of the photo fan-out on the diagnosis executor; completes once every photo has settled to SUCCESS
+     * or FAIL. Photos that ended up FAIL are re-queued after a backoff for up to requeueMaxRounds more rounds,
+     * so a transient outage of the AI servers does not fail them for good; after that the diagnosis is finalized
+     * with the photos that did succeed. No thread sleeps through the backoff.
+     */
+    private CompletableFuture<Void> analyzePhotos(List<OriginalPhoto> originalPhotos, Diagnosis diagnosis, int round) {
+        return analyzePhotos(originalPhotos, diagnosis).thenCompose(ignored -> {
+            List<OriginalPhoto> failedPhotos = unfinishedPhotos(originalPhotos);
+            if (failedPhotos.isEmpty()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            if (round >= requeueMaxRounds) {
+                log.error("{} photos of diagnosisId: {} still failed after {} re-queue rounds",
+                    failedPhotos.size(), diagnosis.getId(), requeueMaxRounds);
+                return CompletableFuture.completedFuture(null);
+            }
+            Duration delay = requeueDelay(round + 1);
+            log.warn("Re-queueing {} failed photos of diagnosisId: {} in {} ms (round {})",
+                failedPhotos.size(), diagnosis.getId(), delay.toMillis(), round + 1);
+            Executor afterDelay = CompletableFuture.delayedExecutor(delay.toNanos(), TimeUnit.NANOSECONDS, diagnosisExecutor);
+            return CompletableFuture.runAsync(() -> { }, afterDelay)
+                .thenCompose(delayed -> analyzePhotos(failedPhotos, diagnosis, round + 1));
+        });
+    }
+
+    /**
+     * Runs the photos on the diagnosis executor, keeping at most perDiagnosisParallelism tasks of this diagnosis
+     * in flight so one large inspection cannot occupy the whole pool. Each of those lanes submits its next task
+     * when the previous one finishes, so no thread blocks on a permit.
+     * In batch mode each task sends a whole chunk of photos; the chunk size is re-read from the
+     * AdaptiveBatchSizer for every chunk so it follows the latency of the previous batches.
+     */
+    private CompletableFuture<Void> analyzePhotos(List<OriginalPhoto> originalPhotos, Diagnosis diagnosis) {
+        AtomicInteger offset = new AtomicInteger();
+        List<CompletableFuture<Void>> lanes = new ArrayList<>();
+        for (int lane = 0; lane < perDiagnosisParallelism; lane++) {
+            lanes.add(analyzeNextChunk(originalPhotos, diagnosis, offset));
+        }
+        return CompletableFuture.allOf(lanes.toArray(CompletableFuture[]::new))
+            .thenRun(() -> log.info("All photo processing tasks completed for diagnosisId: {}", diagnosis.getId()));
+    }
+
+    private CompletableFuture<Void> analyzeNextChunk(List<OriginalPhoto> originalPhotos, Diagnosis diagnosis,
+        AtomicInteger offset) {
+        int chunkSize = batchEnabled ? adaptiveBatchSizer.currentSize() : 1;
+        int start = offset.getAndAdd(chunkSize);
+        if (start >= originalPhotos.size()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<OriginalPhoto> chunk = originalPhotos.subList(start, Math.min(start + chunkSize, originalPhotos.size()));
+
+        Runnable task = batchEnabled
+            ? () -> analyzePhotoBatch(chunk, diagnosis)
+            : () -> analyzePhoto(chunk.get(0), diagnosis);
+        // a failed task has already marked its photos as FAIL and logged the cause
+        return CompletableFuture.runAsync(task, diagnosisExecutor)
+            .handle((ignored, e) -> null)
+            .thenCompose(ignored -> analyzeNextChunk(originalPhotos, diagnosis, offset));
+    }
+
+    private static List<OriginalPhoto> unfinishedPhotos(List<OriginalPhoto> originalPhotos) {
+        return originalPhotos.stream()
+            .filter(originalPhoto -> originalPhoto.getStatus() != DiagnosisStatus.SUCCESS)
+            .toList();
+    }
+
+    /**
+     * Exponential backoff between re-queue rounds with up to 50% jitter either way, so the photos of diagnoses
+     * that failed together do not all come back at the same moment.
+     */
+    private Duration requeueDelay(int round) {
+        long base = requeueDelay.toNanos() << Math.min(round - 1, 10);
+        return Duration.ofNanos(base / 2 + ThreadLocalRandom.current().nextLong(base + 1));
+    }
+
+    /**
+     * Non-blocking variant of the photo fan-out.
+     * No thread waits on the AI server: up to reactiveConcurrency calls are kept in flight by the
+     * WebClient event loop, and only the JPA work hops onto the bounded diagnosis DB scheduler.
+     * Each photo settles to SUCCESS or FAIL on its own, and the diagnosis is finalized once all have settled.
+     * This method returns as soon as the pipeline is subscribed; the returned future completes after finalization,
+     * so a queue consumer can hold its acknowledgement until then.
+     */
+    private CompletableFuture<Void> runDiagnosisReactive(Diagnosis diagnosis, List<OriginalPhoto> originalPhotos) {
+        Long diagnosisId = diagnosis.getId();
+
+        return analyzePhotosReactive(originalPhotos, diagnosis, 0)
+            .then(Mono.fromRunnable(() -> diagnosisFinalizerService.finishDiagnosis(diagnosisId))
+                .subscribeOn(diagnosisDbScheduler))
+            .doOnError(e -> log.error("Reactive diagnosis process failed for diagnosisId: {}", diagnosisId, e))
+            .doOnSuccess(ignored -> log.info("Finished reactive diagnosis process for diagnosisId: {}", diagnosisId))
+            .then()
+            .toFuture();
+    }
+
+    /**
+     * One round of the reactive fan-out. Photos that ended up FAIL are re-queued after a backoff for up to
+     * requeueMaxRounds more rounds; after that the diagnosis is finalized with the photos that did succeed.
+     */
+    private Mono<Void> analyzePhotosReactive(List<OriginalPhoto> originalPhotos, Diagnosis diagnosis, int round) {
+        Flux<Void> photoResults = batchEnabled
+            ? adaptiveChunks(originalPhotos).flatMap(chunk -> analyzePhotoBatchReactive(chunk, diagnosis), batchConcurrency)
+            : Flux.fromIterable(originalPhotos).flatMap(originalPhoto -> analyzePhotoReactive(originalPhoto, diagnosis), reactiveConcurrency);
+
+        return photoResults.then(Mono.defer(() -> {
+            List<OriginalPhoto> failedPhotos = unfinishedPhotos(originalPhotos);
+            if (failedPhotos.isEmpty()) {
+                return Mono.empty();
+            }
+            if (round >= requeueMaxRounds) {
+                log.error("{} photos of diagnosisId: {} still failed after {} re-queue rounds",
+                    failedPhotos.size(), diagnosis.getId(), requeueMaxRounds);
+                return Mono.empty();
+            }
+            Duration delay = requeueDelay(round + 1);
+            log.warn("Re-queueing {} failed photos of diagnosisId: {} in {} ms (round {})",
+                failedPhotos.size(), diagnosis.getId(), delay.toMillis(), round + 1);
+            return Mono.delay(delay).then(analyzePhotosReactive(failedPhotos, diagnosis, round + 1));
+        }));
+    }
+
+    private Mono<Void> analyzePhotoReactive(OriginalPhoto originalPhoto, Diagnosis diagnosis) {
+        String originalS3Key = originalPhoto.getS3FileMetadata().getS3Key();
+
+        return Mono.fromRunnable(() -> markAnalyzing(List.of(originalPhoto), diagnosis))
+            .subscribeOn(diagnosisDbScheduler)
+            .then(analyzePhoto(originalS3Key))
+            .timeout(aiResponseTimeout)
+            .publishOn(diagnosisDbScheduler)
+            .flatMap(response -> Mono.fromFuture(saveAnalysisResult(originalPhoto, diagnosis, response)))
+            .onErrorResume(e -> {
+                log.error("[DiagnosisId: {}, PhotoId: {}] FAILED to process diagnosis.", diagnosis.getId(), originalPhoto.getId(), e);
+                return Mono.fromFuture(() -> markPhotosFailed(List.of(originalPhoto), diagnosis))
+                    .subscribeOn(diagnosisDbScheduler);
+            });
+    }
+
+    /**
+     * Splits the photos into batches lazily, so every batch requested by flatMap uses the
+     * batch size the AdaptiveBatchSizer currently recommends.
+     */
+    private Flux<List<OriginalPhoto>> adaptiveChunks(List<OriginalPhoto> originalPhotos) {
+        return Flux.<List<OriginalPhoto>, Integer>generate(() -> 0, (offset, sink) -> {
+            int end = Math.min(offset + adaptiveBatchSizer.currentSize(), originalPhotos.size());
+            sink.next(originalPhotos.subList(offset, end));
+            if (end >= originalPhotos.size()) {
+                sink.complete();
+            }
+            return end;
+        });
+    }
+
+    private Mono<Void> analyzePhotoBatchReactive(List<OriginalPhoto> chunk, Diagnosis diagnosis) {
+        List<String> originalS3Keys = chunk.stream()
+            .map(originalPhoto -> originalPhoto.getS3FileMetadata().getS3Key())
             .toList();
 
-        // 4. Wait for all asynchronous tasks to complete and collect results
+        return Mono.fromRunnable(() -> markAnalyzing(chunk, diagnosis))
+            .subscribeOn(diagnosisDbScheduler)
+            .then(aiDiagnosisClient.analyzePhotos(originalS3Keys))
+            .timeout(aiResponseTimeout)
+            .publishOn(diagnosisDbScheduler)
+            .flatMap(results -> Mono.fromFuture(saveBatchResults(chunk, diagnosis, results)))
+            .then()
+            .onErrorResume(e -> {
+                log.error("[DiagnosisId: {}] FAILED to process batch of {} photos.", diagnosis.getId(), chunk.size(), e);
+                return Mono.fromFuture(() -> markPhotosFailed(chunk, diagnosis))
+                    .subscribeOn(diagnosisDbScheduler);
+            });
+    }
+
+    /**
+     * Processes a chunk of original photos with a single AI batch request.
+     * A failed request fails every photo of the chunk; otherwise each photo succeeds or fails on its own result.
+     */
+    private void analyzePhotoBatch(List<OriginalPhoto> chunk, Diagnosis diagnosis) {
+        log.info("[DiagnosisId: {}] Starting batch processing of {} photos.", diagnosis.getId(), chunk.size());
+        List<String> originalS3Keys = chunk.stream()
+            .map(originalPhoto -> originalPhoto.getS3FileMetadata().getS3Key())
+            .toList();
+
+        List<DiagnosisBatchApiResponse.Result> results;
         try {
-            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
-            log.info("All photo processing tasks completed for diagnosisId: {}", diagnosisId);
+            markAnalyzing(chunk, diagnosis);
+            results = aiDiagnosisClient.analyzePhotos(originalS3Keys).block(aiResponseTimeout);
         } catch (Exception e) {
-            // This catch block might capture CompletionException if any future failed unexpectedly *during join*
-            log.error("Error occurred while waiting for all photo processing tasks for diagnosisId: {}", diagnosisId, e);
-            throw e;
+            log.error("[DiagnosisId: {}] FAILED to process batch of {} photos.", diagnosis.getId(), chunk.size(), e);
+            markPhotosFailed(chunk, diagnosis).join();
+            throw new RuntimeException("Failed processing batch of " + chunk.size() + " photos for diagnosisId " + diagnosis.getId(), e);
         }
 
-        log.info("Finished diagnosis process for diagnosisId: {}", diagnosisId);
+        int failedCount = saveBatchResults(chunk, diagnosis, results).join();
+        if (failedCount > 0) {
+            throw new RuntimeException("Failed processing " + failedCount + " photos of a batch for diagnosisId " + diagnosis.getId());
+        }
+    }
 
-        // Call finishDiagnosis through the proxy
-        diagnosisFinalizerService.finishDiagnosis(diagnosisId);
+    /**
+     * Pairs the batch results with their original photos by position, as the AI client returns one result
+     * per requested key in request order, and hands them to the result writer.
+     *
+     * @return the number of photos that failed, once all of them are written
+     */
+    private CompletableFuture<Integer> saveBatchResults(List<OriginalPhoto> chunk, Diagnosis diagnosis, List<DiagnosisBatchApiResponse.Result> results) {
+        List<CompletableFuture<Boolean>> outcomes = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            OriginalPhoto originalPhoto = chunk.get(i);
+            DiagnosisBatchApiResponse.Result result = results != null && i < results.size() ? results.get(i) : null;
+            try {
+                if (result == null) {
+                    throw new IllegalStateException("AI batch response has no result for this photo.");
+                }
+                outcomes.add(saveAnalysisResult(originalPhoto, diagnosis, result.toDiagnosisApiResponse())
+                    .handle((ignored, e) -> {
+                        if (e == null) {
+                            return CompletableFuture.completedFuture(true);
+                        }
+                        log.error("[DiagnosisId: {}, PhotoId: {}] FAILED to save diagnosis result.", diagnosis.getId(), originalPhoto.getId(), e);
+                        // otherwise the photo stays ANALYZING once it is not re-queued any more
+                        return markPhotosFailed(List.of(originalPhoto), diagnosis).thenApply(failed -> false);
+                    })
+                    .thenCompose(saved -> saved));
+            } catch (Exception e) {
+                log.error("[DiagnosisId: {}, PhotoId: {}] FAILED to process diagnosis.", diagnosis.getId(), originalPhoto.getId(), e);
+                outcomes.add(markPhotosFailed(List.of(originalPhoto), diagnosis).thenApply(ignored -> false));
+            }
+        }
+
+        return CompletableFuture.allOf(outcomes.toArray(CompletableFuture[]::new))
+            .thenApply(ignored -> (int)outcomes.stream().filter(saved -> !saved.join()).count());
     }
 
     /**
      * Asynchronously processes a single original photo:
      * - Updates its status to ANALYZING.
      * - Calls the AiDiagnosisService to get analysis data from the external AI API.
-     * - Uploads the analyzed image (from AI data) to S3.
-     * - Saves the analysis results (AnalyzedPhoto, AnalyzedPhotoDisease) to the database.
+     * - Hands the analysis results to the result writer, which stores the analyzed image metadata,
+     *   AnalyzedPhoto and AnalyzedPhotoDisease rows in batches.
      * - Updates the original photo's status to SUCCESS or FAIL.
      */
     private void analyzePhoto(OriginalPhoto originalPhoto, Diagnosis diagnosis) {
@@ -171,149 +414,82 @@ public class DiagnosisServiceImpl implements DiagnosisService {
         log.info("[DiagnosisId: {}, PhotoId: {}] Starting processing.", diagnosis.getId(), photoId);
 
         try {
-            // Note: This database update runs within this async task's transaction (if any).
-            originalPhoto.updateStatus(DiagnosisStatus.ANALYZING);
-            originalPhotoRepository.save(originalPhoto); // Explicitly save status update
-            log.debug("[DiagnosisId: {}, PhotoId: {}] Status set to ANALYZING.", diagnosis.getId(), photoId);
+            markAnalyzing(List.of(originalPhoto), diagnosis);
 
             // Timeout is important to prevent indefinite blocking.
             DiagnosisApiResponse diagnosisApiResponse = analyzePhoto(originalS3Key)
-                .block(Duration.ofSeconds(120)); // Increased timeout for AI call + parsing
-
-            if (diagnosisApiResponse == null) {
-                log.error("[DiagnosisId: {}, PhotoId: {}] AI analysis returned no data.", diagnosis.getId(), photoId);
-                throw new IllegalStateException("AI analysis returned null data.");
-            }
+                .block(aiResponseTimeout); // Increased timeout for AI call + parsing
 
-            DiagnosisApiResponse.DiagnosisResult diagResult = diagnosisApiResponse.diagnosis();
-            String analyzedImageS3Key = diagnosisApiResponse.annotatedImageS3Key();
-
-            if (diagResult == null) {
-                log.error("[DiagnosisId: {}, PhotoId: {}] DiagnosisResult from AI analysis is null.", diagnosis.getId(), photoId);
-                throw new IllegalStateException("AI analysis returned null DiagnosisResult.");
-            }
-            if (analyzedImageS3Key == null || analyzedImageS3Key.isEmpty()) {
-                log.error("[DiagnosisId: {}, PhotoId: {}] Analyzed image S3 key from AI analysis is null or empty.", diagnosis.getId(), photoId);
-                throw new IllegalStateException("AI analysis returned null or empty analyzed image S3 key.");
-            }
-            log.debug("[DiagnosisId: {}, PhotoId: {}] Received AI analysis data with analyzed image S3 key: {}",
-                diagnosis.getId(), photoId, analyzedImageS3Key);
-
-            // Get S3 metadata for the analyzed image using the S3 key returned from the AI service
-            S3FileMetadata analyzedImageMetadata = s3FileMetadataRepository.findByS3Key(analyzedImageS3Key);
-            if (analyzedImageMetadata == null) {
-                log.info("[DiagnosisId: {}, PhotoId: {}] Creating new S3FileMetadata for S3 key: {}",
-                    diagnosis.getId(), photoId, analyzedImageS3Key);
-
-                // Create a new S3FileMetadata entry
-                analyzedImageMetadata = S3FileMetadata.builder()
-                    .originalFilename(extractFilenameFromS3Key(analyzedImageS3Key))
-                    .s3Key(analyzedImageS3Key)
-                    .url(null) // URL will be generated when needed
-                    .contentType("image/jpeg") // Set the content type to image/jpeg as required
-                    .status(S3FileStatus.STORED) // Mark as STORED (completed)
-                    .build();
-
-                analyzedImageMetadata = s3FileMetadataRepository.save(analyzedImageMetadata);
-                log.info("[DiagnosisId: {}, PhotoId: {}] Created new S3FileMetadata with ID: {} for S3 key: {}",
-                    diagnosis.getId(), photoId, analyzedImageMetadata.getId(), analyzedImageS3Key);
-            }
-            else {
-                // Update existing metadata if needed
-                analyzedImageMetadata.setStatus(S3FileStatus.STORED);
-                analyzedImageMetadata = s3FileMetadataRepository.save(analyzedImageMetadata);
-                log.info("[DiagnosisId: {}, PhotoId: {}] Updated existing S3FileMetadata with ID: {} for S3 key: {}",
-                    diagnosis.getId(), photoId, analyzedImageMetadata.getId(), analyzedImageS3Key);
-            }
-            log.info("[DiagnosisId: {}, PhotoId: {}] Retrieved metadata for analyzed image with S3 Key: {}",
-                diagnosis.getId(), photoId, analyzedImageMetadata.getS3Key());
-
-            // Create and save AnalyzedPhoto entity
-            AnalyzedPhoto analyzedPhoto = createAnalyzedPhotoEntity(originalPhoto, diagnosis, analyzedImageMetadata, diagResult);
-            analyzedPhotoRepository.save(analyzedPhoto);
-            log.info("[DiagnosisId: {}, PhotoId: {}] Saved AnalyzedPhoto entity: {}",
-                diagnosis.getId(), photoId, analyzedPhoto);
-
-            // Save associated disease details
-            saveAnalyzedPhotoDiseases(analyzedPhoto, diagResult);
-            log.info("[DiagnosisId: {}, PhotoId: {}] Saved AnalyzedPhotoDisease entities.", diagnosis.getId(), photoId);
-
-            // Update original photo status to SUCCESS
-            originalPhoto.updateStatus(DiagnosisStatus.SUCCESS);
-            originalPhotoRepository.save(originalPhoto); // Explicitly save status update
-            log.info("[DiagnosisId: {}, PhotoId: {}] Successfully processed.", diagnosis.getId(), photoId);
+            // Waits for the batch holding this photo to be committed.
+            saveAnalysisResult(originalPhoto, diagnosis, diagnosisApiResponse).join();
 
         } catch (Exception e) {
             log.error("[DiagnosisId: {}, PhotoId: {}] FAILED to process diagnosis.", diagnosis.getId(), photoId, e);
-            // Attempt to update status to FAIL
-            try {
-                originalPhoto.updateStatus(DiagnosisStatus.FAIL);
-                originalPhotoRepository.save(originalPhoto); // Explicitly save status update
-            } catch (Exception dbEx) {
-                log.error("[DiagnosisId: {}, PhotoId: {}] CRITICAL: Failed to update originalPhoto status to FAIL after processing error.",
-                    diagnosis.getId(), photoId, dbEx);
-            }
+            markPhotosFailed(List.of(originalPhoto), diagnosis).join();
             // Allow the CompletableFuture to complete exceptionally.
             // This exception will be caught by the .join() in the main runDiagnosis method if it's a direct cause of failure.
             throw new RuntimeException("Failed processing photoId " + photoId + " for diagnosisId " + diagnosis.getId(), e);
         }
     }
 
-    @Override
-    public AnalyzedPhoto createAnalyzedPhotoEntity(
-        OriginalPhoto originalPhoto,
-        Diagnosis diagnosis,
-        S3FileMetadata analyzedImageMetadata,
-        DiagnosisApiResponse.DiagnosisResult diagResult
-    ) {
-        long totalImagoCount = Optional.ofNullable(diagResult.imago().normalCount()).orElse(0L)
-            + Optional.ofNullable(diagResult.imago().varroaCount()).orElse(0L)
-            + Optional.ofNullable(diagResult.imago().dwvCount()).orElse(0L);
-
-        long totalLarvaCount = Optional.ofNullable(diagResult.larva().normalCount()).orElse(0L)
-            + Optional.ofNullable(diagResult.larva().varroaCount()).orElse(0L)
-            + Optional.ofNullable(diagResult.larva().foulBroodCount()).orElse(0L)
-            + Optional.ofNullable(diagResult.larva().chalkBroodCount()).orElse(0L);
-
-        return AnalyzedPhoto.builder()
-            .originalPhoto(originalPhoto)
-            .diagnosis(diagnosis)
-            .s3FileMetadata(analyzedImageMetadata)
-            .imagoCount(totalImagoCount)
-            .larvaCount(totalLarvaCount)
-            .build();
+    /**
+     * Validates the AI result of a single photo and queues it on the result writer, which stores the
+     * annotated image metadata, AnalyzedPhoto and its diseases and marks the original photo as SUCCESS.
+     *
+     * @return completes once the batch holding this photo is committed
+     */
+    private CompletableFuture<Void> saveAnalysisResult(OriginalPhoto originalPhoto, Diagnosis diagnosis, DiagnosisApiResponse diagnosisApiResponse) {
+        Long photoId = originalPhoto.getId();
+
+        if (diagnosisApiResponse == null) {
+            log.error("[DiagnosisId: {}, PhotoId: {}] AI analysis returned no data.", diagnosis.getId(), photoId);
+            throw new IllegalStateException("AI analysis returned null data.");
+        }
+
+        DiagnosisApiResponse.DiagnosisResult diagResult = diagnosisApiResponse.diagnosis();
+        String analyzedImageS3Key = diagnosisApiResponse.annotatedImageS3Key();
+
+        if (diagResult == null) {
+            log.error("[DiagnosisId: {}, PhotoId: {}] DiagnosisResult from AI analysis is null.", diagnosis.getId(), photoId);
+            throw new IllegalStateException("AI analysis returned null DiagnosisResult.");
+        }
+        if (analyzedImageS3Key == null || analyzedImageS3Key.isEmpty()) {
+            log.error("[DiagnosisId: {}, PhotoId: {}] Analyzed image S3 key from AI analysis is null or empty.", diagnosis.getId(), photoId);
+            throw new IllegalStateException("AI analysis returned null or empty analyzed image S3 key.");
+        }
+        log.debug("[DiagnosisId: {}, PhotoId: {}] Received AI analysis data with analyzed image S3 key: {}",
+            diagnosis.getId(), photoId, analyzedImageS3Key);
+
+        AnalyzedPhotoResult result = AnalyzedPhotoResult.of(photoId, diagnosis.getId(), analyzedImageS3Key, diagResult);
+
+        return diagnosisResultWriter.write(result)
+            .thenRun(() -> {
+                originalPhoto.updateStatus(DiagnosisStatus.SUCCESS);
+                log.info("[DiagnosisId: {}, PhotoId: {}] Successfully processed.", diagnosis.getId(), photoId);
+            });
     }
 
-    @Override
-    public void saveAnalyzedPhotoDiseases(AnalyzedPhoto analyzedPhoto, DiagnosisApiResponse.DiagnosisResult result) {
-        // Larva diseases
-        saveAnalyzedPhotoDisease(analyzedPhoto, BeeStage.LARVA, DiseaseName.VARROA, result.larva().varroaCount());
-        saveAnalyzedPhotoDisease(analyzedPhoto, BeeStage.LARVA, DiseaseName.FOULBROOD, result.larva().foulBroodCount());
-        saveAnalyzedPhotoDisease(analyzedPhoto, BeeStage.LARVA, DiseaseName.CHALKBROOD, result.larva().chalkBroodCount());
-
-        // Imago diseases
-        saveAnalyzedPhotoDisease(analyzedPhoto, BeeStage.IMAGO, DiseaseName.VARROA, result.imago().varroaCount());
-        saveAnalyzedPhotoDisease(analyzedPhoto, BeeStage.IMAGO, DiseaseName.DWV, result.imago().dwvCount());
+    private void markAnalyzing(List<OriginalPhoto> originalPhotos, Diagnosis diagnosis) {
+        diagnosisResultWriter.markAnalyzing(originalPhotos.stream().map(OriginalPhoto::getId).toList());
+        originalPhotos.forEach(originalPhoto -> originalPhoto.updateStatus(DiagnosisStatus.ANALYZING));
+        log.debug("[DiagnosisId: {}] Status of {} photos set to ANALYZING.", diagnosis.getId(), originalPhotos.size());
     }
 
-    @Override
-    public void saveAnalyzedPhotoDisease(AnalyzedPhoto analyzedPhoto, BeeStage beeStage, DiseaseName diseaseName, Long count) {
-        if (count != null && count >= 0) {
-            if (analyzedPhoto != null) {
-                Disease disease = diseaseRepository.findByNameAndStage(diseaseName, beeStage);
-
-                AnalyzedPhotoDisease diseaseRecord = AnalyzedPhotoDisease.builder()
-                    .analyzedPhoto(analyzedPhoto)
-                    .disease(disease)
-                    .count(count)
-                    .build();
-                analyzedPhotoDiseaseRepository.save(diseaseRecord);
-            }
-            else {
-                // Log the summed up disease details without saving them to the database
-                log.info("Summed up disease details: {} {} count: {}", beeStage, diseaseName, count);
-            }
-        }
+    /**
+     * Queues a FAIL status for the photos. The returned future never completes exceptionally,
+     * a photo whose status cannot be written is only logged.
+     */
+    private CompletableFuture<Void> markPhotosFailed(List<OriginalPhoto> originalPhotos, Diagnosis diagnosis) {
+        List<CompletableFuture<Void>> updates = originalPhotos.stream()
+            .map(originalPhoto -> diagnosisResultWriter.markFailed(originalPhoto.getId())
+                .thenRun(() -> originalPhoto.updateStatus(DiagnosisStatus.FAIL))
+                .exceptionally(dbEx -> {
+                    log.error("[DiagnosisId: {}, PhotoId: {}] CRITICAL: Failed to update originalPhoto status to FAIL after processing error.",
+                        diagnosis.getId(), originalPhoto.getId(), dbEx);
+                    return null;
+                }))
+            .toList();
+        return CompletableFuture.allOf(updates.toArray(CompletableFuture[]::new));
     }
 
     @Override
@@ -396,8 +572,11 @@ public class DiagnosisServiceImpl implements DiagnosisService {
         return result;
     }
 
+    /**
+     * Signs all PUT URLs in parallel first and then registers the diagnosis and its photos
+     * with batch inserts in one short transaction, so the cost stays flat as the number of photos grows.
+     */
     @Override
-    @Transactional
     public List<DiagnosisResponseDto> generateDiagnosisPresignedUrls(DiagnosisDto dto) {
         //TODO 파일 메타데이터 처리, s3Presigned 제약조건
 
@@ -407,31 +586,19 @@ public class DiagnosisServiceImpl implements DiagnosisService {
         // 1. 벌통 존재유무 확인
         // 2. 벌통 소유자 확인
 
-        Diagnosis diagnosis = Diagnosis.builder()
-            .beehive(findBeeHive)
-            .build();
-
-        diagnosisRepository.save(diagnosis);
-
         List<Photo> photoMetadataList = dto.photos();
-        List<DiagnosisResponseDto> response = new ArrayList<>();
+        List<GeneratePutUrlResponse> putUrls = s3PresignService.presignPutOriginPhotoUrls(photoMetadataList.stream()
+            .map(photo -> new GeneratePutUrlRequest(photo.filename(), photo.contentType(), photo.expectedSize()))
+            .toList());
 
-        for (Photo photoMetadata : photoMetadataList) {
-            GeneratePutUrlResponse putUrlDto = s3PresignService.generatePutOriginPhotoUrl(
-                photoMetadata.filename(),
-                photoMetadata.contentType(),
-                photoMetadata.expectedSize()
-            );
-            S3FileMetadata s3FileMetadata = putUrlDto.s3FileMetadata();
-            String putUrl = putUrlDto.preSignedUrl();
-
-            OriginalPhoto originalPhoto = OriginalPhoto.builder()
-                .diagnosis(diagnosis)
-                .s3FileMetadata(s3FileMetadata)
-                .status(DiagnosisStatus.WAITING)
-                .build();
+        Diagnosis diagnosis = diagnosisRegistrationService.register(
+            findBeeHive,
+            putUrls.stream().map(GeneratePutUrlResponse::s3FileMetadata).toList()
+        );
 
-            originalPhotoRepository.save(originalPhoto);
+        List<DiagnosisResponseDto> response = new ArrayList<>();
+        for (int i = 0; i < photoMetadataList.size(); i++) {
+            String putUrl = putUrls.get(i).preSignedUrl();
 
             int status = 0;
             if (null == putUrl || putUrl.isEmpty()) {
@@ -439,13 +606,17 @@ public class DiagnosisServiceImpl implements DiagnosisService {
             }
 
             DiagnosisResponseDto build = DiagnosisResponseDto.builder()
-                .filename(photoMetadata.filename())
+                .filename(photoMetadataList.get(i).filename())
                 .status(status)
                 .preSignedUrl(putUrl)
                 .build();
             response.add(build);
         }
 
+        originPhotoUploadCounter.initialize(diagnosis.getId(), putUrls.stream()
+            .map(putUrl -> putUrl.s3FileMetadata().getS3Key())
+            .toList());
+
         return response;
     }
 
@@ -0,0 +1,141 @@
+package com.worldbeesion.beecareful.beehive.service;
+
+import com.worldbeesion.beecareful.beehive.repository.DiagnosisStorageRepository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the monthly partitions of the diagnosis history ahead of the clock and moves the photos of old
+ * diagnoses to the archive tables.
+ * Archiving runs in short transactions of batchSize diagnoses so writers only ever wait for one small batch.
+ * Several nodes may run the job at once: a partition that another node just added fails the DDL and is skipped,
+ * and archived rows are copied with INSERT IGNORE.
+ * New partitions are only split off an empty p_future; if rows have reached it, or fewer than monthsAhead months
+ * are partitioned, the job logs an error and diagnosis.storage.partitions.ahead shows the remaining months.
+ */
+@Component
+@ConditionalOnProperty(name = "diagnosis.storage.maintenance.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class DiagnosisStorageMaintenanceJob {
+
+    private final DiagnosisStorageRepository diagnosisStorageRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int monthsAhead;
+    private final int archiveAfterMonths;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+
+    private final Map<String, AtomicLong> partitionedMonthsAhead = new ConcurrentHashMap<>();
+
+    public DiagnosisStorageMaintenanceJob(
+        DiagnosisStorageRepository diagnosisStorageRepository,
+        PlatformTransactionManager transactionManager,
+        @Value("${diagnosis.storage.maintenance.months-ahead:3}") int monthsAhead,
+        @Value("${diagnosis.storage.archive.after-months:12}") int archiveAfterMonths,
+        @Value("${diagnosis.storage.archive.batch-size:50}") int batchSize,
+        @Value("${diagnosis.storage.archive.max-batches-per-run:200}") int maxBatchesPerRun,
+        MeterRegistry meterRegistry) {
+        this.diagnosisStorageRepository = diagnosisStorageRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.monthsAhead = monthsAhead;
+        this.archiveAfterMonths = archiveAfterMonths;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+
+        for (String table : DiagnosisStorageRepository.PARTITIONED_TABLES) {
+            AtomicLong monthsAhead = new AtomicLong(-1);
+            partitionedMonthsAhead.put(table, monthsAhead);
+            Gauge.builder("diagnosis.storage.partitions.ahead", monthsAhead, AtomicLong::get)
+                .tag("table", table)
+                .description("Months after the current one that have their own partition, -1 until checked")
+                .register(meterRegistry);
+        }
+    }
+
+    @Scheduled(cron = "${diagnosis.storage.maintenance.cron:0 30 3 * * *}")
+    public void maintain() {
+        for (String table : DiagnosisStorageRepository.PARTITIONED_TABLES) {
+            ensureFuturePartitions(table);
+        }
+        archiveOldPhotos();
+    }
+
+    private void ensureFuturePartitions(String table) {
+        YearMonth now = YearMonth.now();
+        YearMonth target = now.plusMonths(monthsAhead);
+        YearMonth last = diagnosisStorageRepository.findLastMonthlyPartition(table).orElse(now.minusMonths(1));
+
+        if (last.isBefore(target)) {
+            if (diagnosisStorageRepository.isFuturePartitionEmpty(table)) {
+                last = addMonthlyPartitions(table, last, target);
+            } else {
+                // Splitting would copy every row of p_future under a table lock; needs a manual REORGANIZE off-peak
+                log.error("p_future of {} holds rows, not adding partitions after {}", table, last);
+            }
+        }
+
+        long ahead = ChronoUnit.MONTHS.between(now, last);
+        partitionedMonthsAhead.get(table).set(ahead);
+        if (ahead < monthsAhead) {
+            log.error("{} has partitions for {} of {} months ahead, last is {}",
+                table, Math.max(ahead, 0), monthsAhead, last);
+        }
+    }
+
+    /**
+     * Adds the months after last up to target.
+     *
+     * @return The last month that has a partition afterwards
+     */
+    private YearMonth addMonthlyPartitions(String table, YearMonth last, YearMonth target) {
+        for (YearMonth month = last.plusMonths(1); !month.isAfter(target); month = month.plusMonths(1)) {
+            try {
+                diagnosisStorageRepository.addMonthlyPartition(table, month);
+                log.info("Added partition {} to {}", month, table);
+            } catch (Exception e) {
+                log.warn("Could not add partition {} to {}: {}", month, table, e.getMessage());
+                // another node may have added it meanwhile
+                return diagnosisStorageRepository.findLastMonthlyPartition(table).orElse(last);
+            }
+            last = month;
+        }
+        return last;
+    }
+
+    private void archiveOldPhotos() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMonths(archiveAfterMonths);
+        int diagnoses = 0;
+        int photos = 0;
+
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            List<Long> diagnosisIds = diagnosisStorageRepository.findArchivableDiagnosisIds(cutoff, batchSize);
+            if (diagnosisIds.isEmpty()) {
+                break;
+            }
+            Integer moved = transactionTemplate.execute(status -> diagnosisStorageRepository.archivePhotos(diagnosisIds));
+            diagnoses += diagnosisIds.size();
+            photos += moved == null ? 0 : moved;
+        }
+
+        if (diagnoses > 0) {
+            log.info("Archived {} photos of {} diagnoses created before {}", photos, diagnoses, cutoff);
+        }
+    }
+}
@@ -39,7 +39,7 @@ public class SecurityConfig {
         http
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/api/v1/members").permitAll()
-                        .requestMatchers("/api/v1/s3").permitAll()
+                        .requestMatchers("/api/v1/s3", "/api/v1/s3/batch").permitAll()
                         .requestMatchers("/api/v1/beehives/hornet/notification").permitAll()
                         .anyRequest().authenticated());
         http
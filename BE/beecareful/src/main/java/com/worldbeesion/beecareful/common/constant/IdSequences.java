@@ -0,0 +1,31 @@
+package com.worldbeesion.beecareful.common.constant;
+
+/**
+ * Rows of the id_sequences table backing the pooled ID generators of the high-volume tables.
+ * <p>
+ * The row holds the upper bound of the block handed out last; taking a block moves it up by the allocation size,
+ * so a node owns (next_val - allocationSize, next_val] without another round trip. Hibernate's pooled optimizer
+ * and {@code IdSequenceRepository} use the same layout, so JPA and JDBC writers can share a sequence as long as
+ * they use the allocation size defined here.
+ */
+public final class IdSequences {
+
+    public static final String TABLE = "id_sequences";
+    public static final String PK_COLUMN = "sequence_name";
+    public static final String VALUE_COLUMN = "next_val";
+
+    public static final String DIAGNOSES = "diagnoses";
+    public static final int DIAGNOSES_ALLOCATION_SIZE = 20;
+
+    public static final String ORIGINAL_PHOTOS = "original_photos";
+    public static final int ORIGINAL_PHOTOS_ALLOCATION_SIZE = 100;
+
+    public static final String ANALYZED_PHOTOS = "analyzed_photos";
+    public static final int ANALYZED_PHOTOS_ALLOCATION_SIZE = 100;
+
+    public static final String S3_FILE_METADATAS = "s3_file_metadatas";
+    public static final int S3_FILE_METADATAS_ALLOCATION_SIZE = 200;
+
+    private IdSequences() {
+    }
+}
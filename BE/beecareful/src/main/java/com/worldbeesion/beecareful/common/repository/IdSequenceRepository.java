@@ -0,0 +1,68 @@
+package com.worldbeesion.beecareful.common.repository;
+
+import com.worldbeesion.beecareful.common.constant.IdSequences;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.stream.LongStream;
+
+/**
+ * Reserves IDs from the id_sequences table for JDBC batch writers, with the same block layout as
+ * Hibernate's pooled table generators (see {@link IdSequences}).
+ * Each reservation runs in its own short transaction, so the sequence row is locked only for the
+ * SELECT ... FOR UPDATE and UPDATE, never for the caller's whole transaction; several nodes can allocate concurrently.
+ */
+@Repository
+public class IdSequenceRepository {
+
+    private static final String SELECT_FOR_UPDATE =
+        "SELECT " + IdSequences.VALUE_COLUMN + " FROM " + IdSequences.TABLE
+            + " WHERE " + IdSequences.PK_COLUMN + " = ? FOR UPDATE";
+
+    private static final String UPDATE =
+        "UPDATE " + IdSequences.TABLE + " SET " + IdSequences.VALUE_COLUMN + " = ?"
+            + " WHERE " + IdSequences.PK_COLUMN + " = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public IdSequenceRepository(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Reserves count consecutive IDs of a sequence.
+     * Whole blocks of allocationSize are taken; the unused rest of the last block is skipped.
+     *
+     * @param sequenceName The sequence row, one of the names in {@link IdSequences}
+     * @param allocationSize The allocation size the sequence is used with everywhere
+     * @param count The number of IDs needed
+     * @return count ascending IDs
+     */
+    public List<Long> allocate(String sequenceName, int allocationSize, int count) {
+        if (count == 0) {
+            return List.of();
+        }
+        int blocks = (count + allocationSize - 1) / allocationSize;
+
+        Long blockEnd = transactionTemplate.execute(status -> {
+            List<Long> values = jdbcTemplate.queryForList(SELECT_FOR_UPDATE, Long.class, sequenceName);
+            if (values.isEmpty()) {
+                throw new IllegalStateException("ID sequence " + sequenceName + " is not initialized in " + IdSequences.TABLE);
+            }
+            long current = values.get(0);
+            jdbcTemplate.update(UPDATE, current + (long)blocks * allocationSize, sequenceName);
+            return current;
+        });
+
+        long firstId = blockEnd - allocationSize + 1;
+        return LongStream.range(firstId, firstId + count).boxed().toList();
+    }
+}
@@ -0,0 +1,70 @@
+package com.worldbeesion.beecareful.common.util;
+
+/**
+ * Largest-Triangle-Three-Buckets downsampling of a time series.
+ * Keeps the first and last point and, from each bucket in between, the point that spans the largest triangle with
+ * the point kept from the previous bucket and the average of the next bucket. Peaks and dips survive, so a chart of
+ * the kept points looks like the chart of all of them.
+ */
+public final class LttbDownsampler {
+
+    private LttbDownsampler() {
+    }
+
+    /**
+     * @param x Ascending x values, e.g. timestamps
+     * @param y The values at x
+     * @param threshold Number of points to keep
+     * @return Ascending indexes of the kept points; all indexes if threshold is below 3 or not below the length
+     */
+    public static int[] downsample(long[] x, double[] y, int threshold) {
+        int length = x.length;
+        if (y.length != length) {
+            throw new IllegalArgumentException("x and y must have the same length");
+        }
+        if (threshold >= length || threshold < 3) {
+            int[] all = new int[length];
+            for (int i = 0; i < length; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+
+        int[] kept = new int[threshold];
+        double bucketSize = (double)(length - 2) / (threshold - 2);
+        int a = 0;
+        kept[0] = 0;
+
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            // Average of the next bucket, the third corner of the triangle
+            int nextStart = (int)Math.floor((bucket + 1) * bucketSize) + 1;
+            int nextEnd = Math.min((int)Math.floor((bucket + 2) * bucketSize) + 1, length);
+            double avgX = 0;
+            double avgY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                avgX += x[i];
+                avgY += y[i];
+            }
+            int nextCount = nextEnd - nextStart;
+            avgX /= nextCount;
+            avgY /= nextCount;
+
+            int start = (int)Math.floor(bucket * bucketSize) + 1;
+            int end = (int)Math.floor((bucket + 1) * bucketSize) + 1;
+            double maxArea = -1;
+            int maxIndex = start;
+            for (int i = start; i < end; i++) {
+                double area = Math.abs((x[a] - avgX) * (y[i] - y[a]) - (x[a] - x[i]) * (avgY - y[a]));
+                if (area > maxArea) {
+                    maxArea = area;
+                    maxIndex = i;
+                }
+            }
+            kept[bucket + 1] = maxIndex;
+            a = maxIndex;
+        }
+
+        kept[threshold - 1] = length - 1;
+        return kept;
+    }
+}
@@ -0,0 +1,316 @@
+package com.worldbeesion.beecareful.redis.stream;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStreamCommands.XClaimOptions;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.PendingMessagesSummary;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamInfo.XInfoGroup;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.stream.StreamListener;
+import org.springframework.data.redis.stream.StreamMessageListenerContainer;
+import org.springframework.data.redis.stream.StreamMessageListenerContainer.StreamMessageListenerContainerOptions;
+import org.springframework.data.redis.stream.StreamMessageListenerContainer.StreamReadRequest;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base class of a consumer-group member of a Redis Stream.
+ * An entry is acknowledged only after {@link #process(MapRecord)} returns; entries left pending by a crashed node
+ * or a retryable failure are reclaimed once they have been idle for reclaimIdle, and moved to the
+ * {@code <stream>:dead} stream after maxDeliveries attempts.
+ * <p>
+ * While an entry is being processed its idle time is reset by {@link #extendInFlightEntries()}, so a long-running
+ * entry is not reclaimed by another node however long it takes.
+ * <p>
+ * Once the stream is longer than maxLength, the entries every group has acknowledged are trimmed; an entry that is
+ * still pending or not yet delivered is never trimmed.
+ * <p>
+ * Records {@code <metricPrefix>.lag}, the time from XADD to the start of processing,
+ * and {@code <metricPrefix>.processing}, the processing time of one entry.
+ */
+@Slf4j
+public abstract class RedisStreamConsumer implements StreamListener<String, MapRecord<String, String, String>> {
+
+    private static final int RECLAIM_BATCH_SIZE = 20;
+
+    private final String streamKey;
+    private final String deadLetterStreamKey;
+    private final String group;
+    private final String consumerName;
+    private final Duration reclaimIdle;
+    private final long maxDeliveries;
+    private final long maxLength;
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final StreamOperations<String, String, String> streamOperations;
+    private final Timer lagTimer;
+    private final Timer processingTimer;
+
+    private final Set<RecordId> inFlight = ConcurrentHashMap.newKeySet();
+    private volatile TaskExecutor executor;
+    private volatile Semaphore reclaimPermits = new Semaphore(0);
+
+    protected RedisStreamConsumer(
+        RedisStreamProperties properties,
+        StringRedisTemplate stringRedisTemplate,
+        MeterRegistry meterRegistry,
+        String metricPrefix) {
+        this.streamKey = properties.streamKey();
+        this.deadLetterStreamKey = properties.streamKey() + ":dead";
+        this.group = properties.group();
+        this.consumerName = properties.consumerName() == null || properties.consumerName().isBlank()
+            ? hostName() : properties.consumerName();
+        this.reclaimIdle = properties.reclaimIdle();
+        this.maxDeliveries = properties.maxDeliveries();
+        this.maxLength = properties.maxLength();
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.streamOperations = stringRedisTemplate.opsForStream();
+        this.lagTimer = Timer.builder(metricPrefix + ".lag")
+            .description("Time between an entry being added to " + streamKey + " and its processing start")
+            .register(meterRegistry);
+        this.processingTimer = Timer.builder(metricPrefix + ".processing")
+            .description("Processing time of one entry of " + streamKey)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Handles one entry. Throwing leaves the entry pending so that it is retried,
+     * unless {@link #isRetryable(Exception)} says otherwise.
+     */
+    protected abstract void process(MapRecord<String, String, String> record);
+
+    protected boolean isRetryable(Exception e) {
+        return true;
+    }
+
+    /**
+     * Creates the consumer group (and the stream) if needed, registers concurrency consumers on a new
+     * listener container and starts it. Each consumer handles one entry at a time on its own executor thread.
+     * The executor needs reclaimConcurrency threads on top of those, which process reclaimed entries.
+     */
+    public StreamMessageListenerContainer<String, MapRecord<String, String, String>> start(
+        RedisConnectionFactory connectionFactory, TaskExecutor executor, int concurrency, int reclaimConcurrency,
+        Duration pollTimeout) {
+        createGroupIfAbsent();
+        this.executor = executor;
+        this.reclaimPermits = new Semaphore(reclaimConcurrency);
+
+        StreamMessageListenerContainerOptions<String, MapRecord<String, String, String>> options =
+            StreamMessageListenerContainerOptions.builder()
+                .pollTimeout(pollTimeout)
+                .batchSize(1)
+                .executor(executor)
+                .errorHandler(e -> log.error("Error while polling stream {}", streamKey, e))
+                .build();
+
+        StreamMessageListenerContainer<String, MapRecord<String, String, String>> container =
+            StreamMessageListenerContainer.create(connectionFactory, options);
+
+        for (int i = 0; i < concurrency; i++) {
+            container.register(
+                StreamReadRequest.builder(StreamOffset.create(streamKey, ReadOffset.lastConsumed()))
+                    .consumer(Consumer.from(group, consumerName + "-" + i))
+                    .autoAcknowledge(false) // acknowledged in handle once processing has finished
+                    .cancelOnError(e -> false) // keep polling after a transient Redis error
+                    .build(),
+                this
+            );
+        }
+
+        container.start();
+        log.info("Started {} consumers on stream {} (group: {})", concurrency, streamKey, group);
+        return container;
+    }
+
+    @Override
+    public void onMessage(MapRecord<String, String, String> record) {
+        handle(record);
+    }
+
+    /**
+     * Claims entries that have been pending longer than reclaimIdle, e.g. because the node holding them died,
+     * and hands them to the consumer executor, at most reclaimConcurrency at a time, so the calling scheduler
+     * thread never runs an entry itself. XCLAIM only succeeds for one node, so all nodes may run this concurrently.
+     * Subclasses call this from a scheduled method.
+     */
+    protected void reclaimPendingEntries() {
+        PendingMessages pendingMessages = streamOperations.pending(streamKey, group, Range.unbounded(), RECLAIM_BATCH_SIZE);
+
+        for (PendingMessage pendingMessage : pendingMessages) {
+            if (pendingMessage.getElapsedTimeSinceLastDelivery().compareTo(reclaimIdle) < 0
+                || inFlight.contains(pendingMessage.getId())) {
+                continue;
+            }
+
+            if (pendingMessage.getTotalDeliveryCount() >= maxDeliveries) {
+                deadLetter(pendingMessage.getId());
+                continue;
+            }
+
+            // only claim what can start right away; the rest stays pending for the next run or another node
+            if (!reclaimPermits.tryAcquire()) {
+                break;
+            }
+            List<MapRecord<String, String, String>> claimed =
+                streamOperations.claim(streamKey, group, consumerName + "-0", reclaimIdle, pendingMessage.getId());
+            if (claimed.isEmpty()) {
+                reclaimPermits.release();
+                continue;
+            }
+            MapRecord<String, String, String> record = claimed.get(0);
+            log.warn("Reclaimed entry {} of stream {} from consumer {} (delivered {} times)",
+                record.getId(), streamKey, pendingMessage.getConsumerName(), pendingMessage.getTotalDeliveryCount());
+            try {
+                executor.execute(() -> {
+                    try {
+                        handle(record);
+                    } finally {
+                        reclaimPermits.release();
+                    }
+                });
+            } catch (TaskRejectedException e) {
+                // stays pending under this node and is reclaimed again after reclaimIdle
+                reclaimPermits.release();
+                log.warn("No free thread for reclaimed entry {} of stream {}", record.getId(), streamKey);
+            }
+        }
+
+        trimAcknowledgedEntries();
+    }
+
+    /**
+     * Once the stream is longer than maxLength, drops the entries every group has acknowledged with
+     * XTRIM MINID below the oldest entry that is still pending or not delivered yet. Unlike XTRIM MAXLEN this never
+     * drops an entry that may still be processed, reclaimed or dead-lettered, so a backlog lets the stream grow past
+     * maxLength until it has been worked off.
+     */
+    private void trimAcknowledgedEntries() {
+        Long length = streamOperations.size(streamKey);
+        if (length == null || length <= maxLength) {
+            return;
+        }
+
+        RecordId oldestUnfinished = null;
+        for (XInfoGroup groupInfo : streamOperations.groups(streamKey)) {
+            PendingMessagesSummary pending = streamOperations.pending(streamKey, groupInfo.groupName());
+            RecordId groupOldest = pending != null && pending.getTotalPendingMessages() > 0
+                ? RecordId.of(pending.minMessageId())
+                : RecordId.of(groupInfo.lastDeliveredId());
+            oldestUnfinished = oldestUnfinished == null ? groupOldest : older(oldestUnfinished, groupOldest);
+        }
+        if (oldestUnfinished == null) {
+            return;
+        }
+
+        byte[] rawStreamKey = streamKey.getBytes(StandardCharsets.UTF_8);
+        byte[] rawMinId = oldestUnfinished.getValue().getBytes(StandardCharsets.UTF_8);
+        // approximate trimming only removes whole radix tree nodes, never an entry at or after MINID
+        Object trimmed = stringRedisTemplate.execute((RedisCallback<Object>)connection -> connection.execute("XTRIM",
+            rawStreamKey, "MINID".getBytes(StandardCharsets.UTF_8), "~".getBytes(StandardCharsets.UTF_8), rawMinId));
+        log.debug("Trimmed {} acknowledged entries of stream {} below {}", trimmed, streamKey, oldestUnfinished);
+    }
+
+    private static RecordId older(RecordId a, RecordId b) {
+        if (!a.getTimestamp().equals(b.getTimestamp())) {
+            return a.getTimestamp() < b.getTimestamp() ? a : b;
+        }
+        return a.getSequence() <= b.getSequence() ? a : b;
+    }
+
+    /**
+     * Resets the idle time of the entries this node is processing with XCLAIM ... JUSTID, which does not count as
+     * a delivery, so that {@link #reclaimPendingEntries()} on another node does not take over an entry that is still
+     * running. Subclasses call this from a scheduled method at an interval well below reclaimIdle.
+     */
+    protected void extendInFlightEntries() {
+        if (inFlight.isEmpty()) {
+            return;
+        }
+        RecordId[] recordIds = inFlight.toArray(RecordId[]::new);
+        byte[] rawStreamKey = streamKey.getBytes(StandardCharsets.UTF_8);
+        List<RecordId> extended = stringRedisTemplate.execute((RedisCallback<List<RecordId>>)connection ->
+            connection.streamCommands().xClaimJustId(rawStreamKey, group, consumerName + "-0",
+                XClaimOptions.minIdle(Duration.ZERO).ids(recordIds)));
+        log.debug("Extended {} of {} in-flight entries of stream {}",
+            extended == null ? 0 : extended.size(), recordIds.length, streamKey);
+    }
+
+    private void handle(MapRecord<String, String, String> record) {
+        lagTimer.record(Math.max(0, System.currentTimeMillis() - record.getId().getTimestamp()), TimeUnit.MILLISECONDS);
+
+        inFlight.add(record.getId());
+        long startedAt = System.nanoTime();
+        try {
+            process(record);
+        } catch (Exception e) {
+            if (isRetryable(e)) {
+                // left pending; reclaimPendingEntries retries it after reclaimIdle
+                log.error("Processing entry {} of stream {} failed, it will be retried", record.getId(), streamKey, e);
+                return;
+            }
+            log.warn("Processing entry {} of stream {} failed permanently: {}", record.getId(), streamKey, e.toString());
+        } finally {
+            inFlight.remove(record.getId());
+            processingTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        }
+
+        streamOperations.acknowledge(streamKey, group, record.getId());
+    }
+
+    private void createGroupIfAbsent() {
+        try {
+            streamOperations.createGroup(streamKey, ReadOffset.from("0"), group);
+            log.info("Created consumer group {} on stream {}", group, streamKey);
+        } catch (RedisSystemException e) {
+            if (e.getRootCause() == null || !String.valueOf(e.getRootCause().getMessage()).contains("BUSYGROUP")) {
+                throw e;
+            }
+            log.debug("Consumer group {} already exists on stream {}", group, streamKey);
+        }
+    }
+
+    private void deadLetter(RecordId recordId) {
+        List<MapRecord<String, String, String>> records =
+            streamOperations.range(streamKey, Range.closed(recordId.getValue(), recordId.getValue()));
+        for (MapRecord<String, String, String> record : records) {
+            streamOperations.add(StreamRecords.string(record.getValue()).withStreamKey(deadLetterStreamKey));
+        }
+        streamOperations.acknowledge(streamKey, group, recordId);
+        log.error("Entry {} of stream {} exceeded {} deliveries and was moved to {}",
+            recordId, streamKey, maxDeliveries, deadLetterStreamKey);
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "backend";
+        }
+    }
+}
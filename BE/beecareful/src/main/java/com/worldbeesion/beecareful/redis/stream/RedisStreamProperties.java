@@ -0,0 +1,23 @@
+package com.worldbeesion.beecareful.redis.stream;
+
+import java.time.Duration;
+
+/**
+ * Settings of one consumer group of a Redis Stream.
+ *
+ * @param streamKey     key of the stream
+ * @param group         consumer group shared by all backend nodes
+ * @param consumerName  base name of this node's consumers, the host name when blank
+ * @param reclaimIdle   how long an entry may stay pending before another consumer claims it
+ * @param maxDeliveries attempts before an entry is moved to the dead-letter stream
+ * @param maxLength     length above which acknowledged entries are trimmed; pending and unread entries are always kept
+ */
+public record RedisStreamProperties(
+    String streamKey,
+    String group,
+    String consumerName,
+    Duration reclaimIdle,
+    long maxDeliveries,
+    long maxLength
+) {
+}
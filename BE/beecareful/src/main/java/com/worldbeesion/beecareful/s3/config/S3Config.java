@@ -4,14 +4,19 @@ package com.worldbeesion.beecareful.s3.config;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 
+import java.util.concurrent.ThreadPoolExecutor;
+
 @Configuration
 public class S3Config {
+    public static final String S3_PRESIGN_EXECUTOR = "s3PresignExecutor";
+
     @Value("${cloud.aws.credentials.accessKey}")
     private String accessKey;
 
@@ -39,4 +44,23 @@ public class S3Config {
                 .credentialsProvider(StaticCredentialsProvider.create(credentials))
                 .build();
     }
-}
\ No newline at end of file
+
+    /**
+     * Bounded pool for signing many presigned URLs of one request in parallel.
+     * Signing is CPU-only, so the pool is sized to cores rather than to concurrent requests.
+     */
+    @Bean(name = S3_PRESIGN_EXECUTOR)
+    public ThreadPoolTaskExecutor s3PresignExecutor(
+        @Value("${aws.s3.presign.threads:4}") int threads,
+        @Value("${aws.s3.presign.queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("s3-presign-");
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        // the request thread signs itself when the pool is saturated
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
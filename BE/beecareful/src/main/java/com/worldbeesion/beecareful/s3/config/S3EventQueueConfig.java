@@ -0,0 +1,54 @@
+package com.worldbeesion.beecareful.s3.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.stream.StreamMessageListenerContainer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import com.worldbeesion.beecareful.s3.service.S3EventConsumer;
+
+/**
+ * Background stage for S3 upload events accepted with 202 by the S3 event endpoint.
+ */
+@Configuration
+@ConditionalOnProperty(name = "aws.s3.event-queue.enabled", havingValue = "true")
+public class S3EventQueueConfig {
+
+	public static final String S3_EVENT_EXECUTOR = "s3EventExecutor";
+
+	/**
+	 * One long-polling thread per consumer plus reclaimConcurrency threads for reclaimed events.
+	 */
+	@Bean(name = S3_EVENT_EXECUTOR)
+	public ThreadPoolTaskExecutor s3EventExecutor(
+		@Value("${aws.s3.event-queue.concurrency:4}") int concurrency,
+		@Value("${aws.s3.event-queue.reclaim-concurrency:1}") int reclaimConcurrency
+	) {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setThreadNamePrefix("s3-event-");
+		executor.setCorePoolSize(concurrency + reclaimConcurrency);
+		executor.setMaxPoolSize(concurrency + reclaimConcurrency);
+		executor.setQueueCapacity(0);
+		executor.initialize();
+		return executor;
+	}
+
+	@Bean(destroyMethod = "stop")
+	public StreamMessageListenerContainer<String, MapRecord<String, String, String>> s3EventListenerContainer(
+		RedisConnectionFactory connectionFactory,
+		S3EventConsumer s3EventConsumer,
+		@Qualifier(S3_EVENT_EXECUTOR) ThreadPoolTaskExecutor s3EventExecutor,
+		@Value("${aws.s3.event-queue.concurrency:4}") int concurrency,
+		@Value("${aws.s3.event-queue.reclaim-concurrency:1}") int reclaimConcurrency,
+		@Value("${aws.s3.event-queue.poll-timeout:2s}") Duration pollTimeout
+	) {
+		return s3EventConsumer.start(connectionFactory, s3EventExecutor, concurrency, reclaimConcurrency, pollTimeout);
+	}
+}
@@ -1,5 +1,8 @@
 package com.worldbeesion.beecareful.s3.controller;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -12,6 +15,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 import com.worldbeesion.beecareful.s3.model.dto.S3EventPayload;
 import com.worldbeesion.beecareful.s3.model.enums.S3EventType;
+import com.worldbeesion.beecareful.s3.service.S3EventDeduplicator;
 import com.worldbeesion.beecareful.s3.service.S3EventService; // Import the service interface
 
 import lombok.extern.slf4j.Slf4j;
@@ -22,19 +26,29 @@ import lombok.extern.slf4j.Slf4j;
 public class S3EventController {
 
 	private final S3EventService s3EventService; // Inject the service
+	private final S3EventDeduplicator s3EventDeduplicator;
 	private final String s3ApiSecret; // Renamed for clarity
+	private final boolean asyncProcessing;
 
 	public S3EventController(
 		S3EventService s3EventService,
-		@Value("${aws.s3.apiSecret}") String s3ApiSecret
+		S3EventDeduplicator s3EventDeduplicator,
+		@Value("${aws.s3.apiSecret}") String s3ApiSecret,
+		@Value("${aws.s3.event-queue.enabled:false}") boolean asyncProcessing
 	) {
 		Assert.hasText(s3ApiSecret, "Configuration property 'aws.s3.apiSecret' must not be null or empty");
 		this.s3EventService = s3EventService;
+		this.s3EventDeduplicator = s3EventDeduplicator;
 		this.s3ApiSecret = s3ApiSecret;
+		this.asyncProcessing = asyncProcessing;
 	}
 
 	/**
 	 * Endpoint to receive S3 event notifications from the AWS Lambda function.
+	 * With aws.s3.event-queue.enabled the event is only validated and recorded on the S3 event stream,
+	 * and 202 is returned before it is processed.
+	 * Redelivered events are answered with 200 without being processed again, and with 409 while an earlier
+	 * delivery is still being processed, so that the sender retries once that delivery has finished or failed.
 	 *
 	 * @param eventPayload The S3EventPayload deserialized from the JSON request body.
 	 * @param receivedApiSecret API key passed in the header for security.
@@ -57,12 +71,112 @@ public class S3EventController {
 			eventPayload.getEventName());
 
 		S3EventType eventType = S3EventType.fromEventNameString(eventPayload.getEventName());
-		if (eventType == S3EventType.OBJECT_CREATED_PUT)
-			s3EventService.processS3PutEvent(eventPayload);
-		else
+		if (eventType != S3EventType.OBJECT_CREATED_PUT)
 			throw new IllegalArgumentException("Unsupported event type: " + eventPayload.getEventName()); // TODO: exception
 
+		switch (s3EventDeduplicator.tryClaim(eventPayload)) {
+			case PROCESSED -> {
+				return ResponseEntity.ok("Event already received for: " + eventPayload.getObjectKey());
+			}
+			case IN_PROGRESS -> {
+				return ResponseEntity.status(HttpStatus.CONFLICT)
+					.body("Event is being processed for: " + eventPayload.getObjectKey());
+			}
+			case CLAIMED -> {
+			}
+		}
+
+		try {
+			if (asyncProcessing) {
+				s3EventService.acceptS3PutEvent(eventPayload);
+			} else {
+				s3EventService.processS3PutEvent(eventPayload);
+			}
+		} catch (RuntimeException e) {
+			// let the retry of the sender through
+			s3EventDeduplicator.release(eventPayload);
+			throw e;
+		}
+		s3EventDeduplicator.markProcessed(eventPayload);
 
+		if (asyncProcessing) {
+			return ResponseEntity.status(HttpStatus.ACCEPTED).body("Event accepted for: " + eventPayload.getObjectKey());
+		}
 		return ResponseEntity.ok("Event processed successfully for: " + eventPayload.getObjectKey());
 	}
+
+	/**
+	 * Batch variant of {@link #receiveS3Event} for notifications carrying several records.
+	 * Metadata of all events is resolved in one query and the upload completion is checked once per diagnosis.
+	 * Unsupported and redelivered events are skipped. If any event is still being processed by an earlier delivery,
+	 * the remaining events are handled and 409 is returned so that the sender retries the batch.
+	 *
+	 * @param eventPayloads The S3EventPayloads deserialized from the JSON request body.
+	 * @param receivedApiSecret API key passed in the header for security.
+	 * @return ResponseEntity indicating the outcome of the processing.
+	 */
+	@PostMapping("/batch")
+	public ResponseEntity<String> receiveS3Events(
+		@RequestBody List<S3EventPayload> eventPayloads,
+		@RequestHeader(value = "X-API-Key", required = true) String receivedApiSecret
+	) {
+		if (!s3ApiSecret.equals(receivedApiSecret)) {
+			log.warn("Received request with missing or invalid API key. Check configuration and request header.");
+			return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid or missing API Key");
+		}
+
+		log.info("Received batch of {} S3 event notifications.", eventPayloads.size());
+
+		List<S3EventPayload> claimedPayloads = new ArrayList<>();
+		int inProgress = 0;
+		for (S3EventPayload eventPayload : eventPayloads) {
+			if (!isPutEvent(eventPayload)) {
+				log.warn("Skipping unsupported event type: {} for Key: {}", eventPayload.getEventName(), eventPayload.getObjectKey());
+				continue;
+			}
+			switch (s3EventDeduplicator.tryClaim(eventPayload)) {
+				case CLAIMED -> claimedPayloads.add(eventPayload);
+				case IN_PROGRESS -> inProgress++;
+				case PROCESSED -> {
+				}
+			}
+		}
+
+		if (!claimedPayloads.isEmpty()) {
+			try {
+				if (asyncProcessing) {
+					s3EventService.acceptS3PutEvents(claimedPayloads);
+				} else {
+					s3EventService.processS3PutEvents(claimedPayloads);
+				}
+			} catch (RuntimeException e) {
+				// let the retry of the sender through
+				claimedPayloads.forEach(s3EventDeduplicator::release);
+				throw e;
+			}
+			claimedPayloads.forEach(s3EventDeduplicator::markProcessed);
+		}
+
+		if (inProgress > 0) {
+			// the sender retries the whole batch, the events handled here are then acknowledged as duplicates
+			return ResponseEntity.status(HttpStatus.CONFLICT)
+				.body(inProgress + " of " + eventPayloads.size() + " events are being processed");
+		}
+		if (claimedPayloads.isEmpty()) {
+			return ResponseEntity.ok("No new events in batch of " + eventPayloads.size());
+		}
+		if (asyncProcessing) {
+			return ResponseEntity.status(HttpStatus.ACCEPTED)
+				.body("Accepted " + claimedPayloads.size() + " of " + eventPayloads.size() + " events");
+		}
+		return ResponseEntity.ok("Processed " + claimedPayloads.size() + " of " + eventPayloads.size() + " events");
+	}
+
+	private boolean isPutEvent(S3EventPayload eventPayload) {
+		try {
+			return S3EventType.fromEventNameString(eventPayload.getEventName()) == S3EventType.OBJECT_CREATED_PUT;
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
 }
@@ -0,0 +1,8 @@
+package com.worldbeesion.beecareful.s3.model.dto;
+
+public record GeneratePutUrlRequest(
+    String originalFilename,
+    String contentType,
+    Long expectedSize
+) {
+}
@@ -2,6 +2,8 @@ package com.worldbeesion.beecareful.s3.model.dto;
 
 import java.util.Map;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 import lombok.Data;
 
 @Data
@@ -12,5 +14,8 @@ public class S3EventPayload {
 	private String eventTime;
 	private String eventName;
 	private String awsRegion;
+	@JsonProperty("eTag")
+	private String etag;
+	private String sequencer;
 	private Map<String, Object> sourceEvent; // To capture the original S3 record
 }
@@ -1,6 +1,7 @@
 package com.worldbeesion.beecareful.s3.model.entity;
 
 
+import com.worldbeesion.beecareful.common.constant.IdSequences;
 import com.worldbeesion.beecareful.s3.constant.S3FileStatus;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -11,6 +12,7 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
 import java.time.LocalDateTime;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
@@ -31,7 +33,15 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 public class S3FileMetadata {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = IdSequences.S3_FILE_METADATAS)
+    @TableGenerator(
+        name = IdSequences.S3_FILE_METADATAS,
+        table = IdSequences.TABLE,
+        pkColumnName = IdSequences.PK_COLUMN,
+        valueColumnName = IdSequences.VALUE_COLUMN,
+        pkColumnValue = IdSequences.S3_FILE_METADATAS,
+        allocationSize = IdSequences.S3_FILE_METADATAS_ALLOCATION_SIZE
+    )
     @Column(name = "s3_file_metadata_id")
     private Long id;
 
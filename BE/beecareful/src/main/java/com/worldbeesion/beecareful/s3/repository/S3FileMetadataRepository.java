@@ -1,12 +1,42 @@
 package com.worldbeesion.beecareful.s3.repository;
 
+import com.worldbeesion.beecareful.s3.constant.S3FileStatus;
 import com.worldbeesion.beecareful.s3.model.entity.S3FileMetadata;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 
 @Repository
 public interface S3FileMetadataRepository extends JpaRepository<S3FileMetadata,Long> {
 
 	S3FileMetadata findByS3Key(String s3Key);
+
+	List<S3FileMetadata> findAllByS3KeyIn(Collection<String> s3Keys);
+
+	/**
+	 * Locks the metadata rows that are still in the given status, so that a concurrent batch with the same files
+	 * waits and then no longer sees them in that status.
+	 */
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	List<S3FileMetadata> findAllByIdInAndStatus(Collection<Long> ids, S3FileStatus status);
+
+	@Modifying
+	@Query("UPDATE S3FileMetadata m SET m.status = :to WHERE m.id IN :ids")
+	int updateStatusIn(@Param("ids") Collection<Long> ids, @Param("to") S3FileStatus to);
+
+	/**
+	 * Moves the metadata from one status to another only if it is still in the expected status.
+	 * Returns 0 when another event already changed it, which makes status transitions safe against duplicate events.
+	 */
+	@Modifying
+	@Query("UPDATE S3FileMetadata m SET m.status = :to WHERE m.id = :id AND m.status = :from")
+	int updateStatusIfCurrent(@Param("id") Long id, @Param("from") S3FileStatus from, @Param("to") S3FileStatus to);
 }
\ No newline at end of file
@@ -0,0 +1,108 @@
+package com.worldbeesion.beecareful.s3.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Per-diagnosis set of original photos that still have to be uploaded.
+ * Filled with the S3 keys of the photos when the presigned URLs are issued; every stored photo removes its own key,
+ * so counting a photo is idempotent and a redelivered event for a photo that was stored but never counted can simply
+ * count it again. Exactly one event empties the set, and the publication gate makes sure the diagnosis job is
+ * published once even if several events see it empty.
+ */
+@Component
+@Slf4j
+public class OriginPhotoUploadCounter {
+
+    private static final String REMAINING_KEY_PREFIX = "diagnosis:upload:remaining:";
+    private static final String STARTED_KEY_PREFIX = "diagnosis:upload:started:";
+    private static final Duration TTL = Duration.ofDays(1);
+    // how long a claimed publication blocks others before it counts as abandoned
+    private static final Duration PUBLICATION_LEASE = Duration.ofMinutes(2);
+
+    private static final String PUBLISHING = "publishing";
+    private static final String PUBLISHED = "published";
+
+    // A missing set is reported as nil so the caller can fall back; Redis deletes the set once it is empty,
+    // which is why SCARD runs in the same script as SREM
+    private static final RedisScript<Long> REMOVE_IF_EXISTS = new DefaultRedisScript<>(
+        "if redis.call('EXISTS', KEYS[1]) == 0 then return nil end "
+            + "redis.call('SREM', KEYS[1], unpack(ARGV)) "
+            + "return redis.call('SCARD', KEYS[1])",
+        Long.class
+    );
+
+    private static final RedisScript<String> CLAIM_PUBLICATION = new DefaultRedisScript<>(
+        "local state = redis.call('GET', KEYS[1]) "
+            + "if state then return state end "
+            + "redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2]) "
+            + "return 'claimed'",
+        String.class
+    );
+
+    public enum Publication {
+        // the caller has to publish the job and then confirm or release the claim
+        CLAIMED,
+        // another event is publishing the job right now
+        IN_PROGRESS,
+        PUBLISHED
+    }
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    public OriginPhotoUploadCounter(StringRedisTemplate stringRedisTemplate) {
+        this.stringRedisTemplate = stringRedisTemplate;
+    }
+
+    public void initialize(Long diagnosisId, List<String> originPhotoS3Keys) {
+        String key = REMAINING_KEY_PREFIX + diagnosisId;
+        stringRedisTemplate.opsForSet().add(key, originPhotoS3Keys.toArray(String[]::new));
+        stringRedisTemplate.expire(key, TTL);
+        log.debug("Initialized upload counter of diagnosisId: {} with {} photos", diagnosisId, originPhotoS3Keys.size());
+    }
+
+    /**
+     * Counts the photos as uploaded. Photos that were already counted are not counted again.
+     *
+     * @param diagnosisId The ID of the diagnosis
+     * @param storedPhotoS3Keys The S3 keys of the photos that are stored
+     * @return The number of photos still to be uploaded, or null if there is no counter for the diagnosis
+     * (expired, already emptied, or issued before the counter existed)
+     */
+    public Long decrement(Long diagnosisId, Collection<String> storedPhotoS3Keys) {
+        return stringRedisTemplate.execute(
+            REMOVE_IF_EXISTS, List.of(REMAINING_KEY_PREFIX + diagnosisId), storedPhotoS3Keys.toArray());
+    }
+
+    /**
+     * Claims the right to publish the diagnosis job. The claim expires after a short lease,
+     * so a node that dies before {@link #confirmPublication(Long)} does not block the job for good.
+     */
+    public Publication claimPublication(Long diagnosisId) {
+        String state = stringRedisTemplate.execute(CLAIM_PUBLICATION, List.of(STARTED_KEY_PREFIX + diagnosisId),
+            PUBLISHING, String.valueOf(PUBLICATION_LEASE.toMillis()));
+        if (PUBLISHED.equals(state)) {
+            return Publication.PUBLISHED;
+        }
+        return PUBLISHING.equals(state) ? Publication.IN_PROGRESS : Publication.CLAIMED;
+    }
+
+    public void confirmPublication(Long diagnosisId) {
+        stringRedisTemplate.opsForValue().set(STARTED_KEY_PREFIX + diagnosisId, PUBLISHED, TTL);
+    }
+
+    /**
+     * Gives up a claim after publishing failed, so that the retry of the event can publish right away.
+     */
+    public void releasePublication(Long diagnosisId) {
+        stringRedisTemplate.delete(STARTED_KEY_PREFIX + diagnosisId);
+    }
+}
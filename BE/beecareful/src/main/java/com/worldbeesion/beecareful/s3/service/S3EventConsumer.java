@@ -0,0 +1,90 @@
+package com.worldbeesion.beecareful.s3.service;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.worldbeesion.beecareful.redis.stream.RedisStreamConsumer;
+import com.worldbeesion.beecareful.redis.stream.RedisStreamProperties;
+import com.worldbeesion.beecareful.s3.exception.InvalidS3EventException;
+import com.worldbeesion.beecareful.s3.exception.S3EventProcessingException;
+import com.worldbeesion.beecareful.s3.model.dto.S3EventPayload;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Background stage of the asynchronous S3 event handling.
+ * Runs the metadata update, the upload-completeness check and the diagnosis hand-off for events
+ * that {@link S3EventService#acceptS3PutEvent(S3EventPayload)} recorded on the S3 event stream.
+ * Invalid events are acknowledged and dropped, any other failure is retried.
+ */
+@Component
+@ConditionalOnProperty(name = "aws.s3.event-queue.enabled", havingValue = "true")
+@Slf4j
+public class S3EventConsumer extends RedisStreamConsumer {
+
+	private static final TypeReference<List<S3EventPayload>> EVENT_LIST_TYPE = new TypeReference<>() {
+	};
+
+	private final S3EventService s3EventService;
+	private final ObjectMapper objectMapper;
+
+	public S3EventConsumer(
+		@Value("${aws.s3.event-queue.stream-key:s3:events}") String streamKey,
+		@Value("${aws.s3.event-queue.group:s3-event-workers}") String group,
+		@Value("${aws.s3.event-queue.consumer-name:}") String consumerName,
+		@Value("${aws.s3.event-queue.reclaim-idle:5m}") Duration reclaimIdle,
+		@Value("${aws.s3.event-queue.max-deliveries:5}") long maxDeliveries,
+		@Value("${aws.s3.event-queue.max-length:100000}") long maxLength,
+		StringRedisTemplate stringRedisTemplate,
+		MeterRegistry meterRegistry,
+		S3EventService s3EventService,
+		ObjectMapper objectMapper
+	) {
+		super(new RedisStreamProperties(streamKey, group, consumerName, reclaimIdle, maxDeliveries, maxLength),
+			stringRedisTemplate, meterRegistry, "s3.event");
+		this.s3EventService = s3EventService;
+		this.objectMapper = objectMapper;
+	}
+
+	@Override
+	protected void process(MapRecord<String, String, String> record) {
+		String batchPayload = record.getValue().get(S3EventServiceImpl.BATCH_PAYLOAD_FIELD);
+		try {
+			if (batchPayload != null) {
+				s3EventService.processS3PutEvents(objectMapper.readValue(batchPayload, EVENT_LIST_TYPE));
+				return;
+			}
+			s3EventService.processS3PutEvent(
+				objectMapper.readValue(record.getValue().get(S3EventServiceImpl.PAYLOAD_FIELD), S3EventPayload.class));
+		} catch (JsonProcessingException e) {
+			log.error("Failed to deserialize S3 event {}", record.getId(), e);
+			throw new InvalidS3EventException();
+		}
+	}
+
+	@Override
+	protected boolean isRetryable(Exception e) {
+		return !(e instanceof InvalidS3EventException);
+	}
+
+	@Scheduled(fixedDelayString = "${aws.s3.event-queue.reclaim-interval-ms:30000}")
+	public void reclaimPendingEvents() {
+		reclaimPendingEntries();
+	}
+
+	@Scheduled(fixedDelayString = "${aws.s3.event-queue.heartbeat-interval-ms:30000}")
+	public void extendRunningEvents() {
+		extendInFlightEntries();
+	}
+}
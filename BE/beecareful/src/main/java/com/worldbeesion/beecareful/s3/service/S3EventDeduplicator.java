@@ -0,0 +1,126 @@
+package com.worldbeesion.beecareful.s3.service;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import com.worldbeesion.beecareful.s3.model.dto.S3EventPayload;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Idempotency layer for S3 event notifications.
+ * An event is identified by bucket, key and sequencer (or eTag) and claimed with SET NX in Redis, so a redelivery
+ * reaching any node is recognized without touching MySQL.
+ * The claim is only a short processing lease; the event is remembered for the full TTL once it has been handled
+ * ({@link #markProcessed}). A node dying mid-processing therefore blocks redeliveries for the lease at most.
+ */
+@Component
+@Slf4j
+public class S3EventDeduplicator {
+
+	private static final String KEY_PREFIX = "s3:event:seen:";
+	private static final String PROCESSING = "processing";
+	private static final String PROCESSED = "processed";
+
+	public enum Claim {
+		/** First delivery, the caller processes the event. */
+		CLAIMED,
+		/** Another delivery is being processed right now, the sender should retry later. */
+		IN_PROGRESS,
+		/** The event has already been processed. */
+		PROCESSED
+	}
+
+	private final boolean enabled;
+	private final Duration ttl;
+	private final Duration processingLease;
+
+	private final StringRedisTemplate stringRedisTemplate;
+
+	private final Counter duplicateCounter;
+	private final Counter inProgressCounter;
+	private final Counter newEventCounter;
+
+	public S3EventDeduplicator(
+		@Value("${aws.s3.event-dedup.enabled:true}") boolean enabled,
+		@Value("${aws.s3.event-dedup.ttl:24h}") Duration ttl,
+		@Value("${aws.s3.event-dedup.processing-lease:1m}") Duration processingLease,
+		StringRedisTemplate stringRedisTemplate,
+		MeterRegistry meterRegistry
+	) {
+		this.enabled = enabled;
+		this.ttl = ttl;
+		this.processingLease = processingLease;
+		this.stringRedisTemplate = stringRedisTemplate;
+		this.duplicateCounter = Counter.builder("s3.event.dedup")
+			.tag("result", "duplicate")
+			.description("S3 events recognized as redeliveries and acknowledged without processing")
+			.register(meterRegistry);
+		this.inProgressCounter = Counter.builder("s3.event.dedup")
+			.tag("result", "in_progress")
+			.description("S3 events redelivered while a previous delivery was still being processed")
+			.register(meterRegistry);
+		this.newEventCounter = Counter.builder("s3.event.dedup")
+			.tag("result", "new")
+			.description("S3 events seen for the first time")
+			.register(meterRegistry);
+	}
+
+	/**
+	 * Claims the event for processing for the duration of the processing lease.
+	 * A {@link Claim#CLAIMED} event must be finished with {@link #markProcessed} or {@link #release}.
+	 */
+	public Claim tryClaim(S3EventPayload eventPayload) {
+		if (!enabled) {
+			return Claim.CLAIMED;
+		}
+
+		String redisKey = KEY_PREFIX + eventId(eventPayload);
+		if (Boolean.TRUE.equals(stringRedisTemplate.opsForValue().setIfAbsent(redisKey, PROCESSING, processingLease))) {
+			newEventCounter.increment();
+			return Claim.CLAIMED;
+		}
+
+		if (PROCESSED.equals(stringRedisTemplate.opsForValue().get(redisKey))) {
+			duplicateCounter.increment();
+			log.info("Ignoring redelivered S3 event for Key: {}", eventPayload.getObjectKey());
+			return Claim.PROCESSED;
+		}
+
+		// still leased by another delivery, or the lease lapsed between the two calls: either way the retry decides
+		inProgressCounter.increment();
+		log.info("S3 event for Key: {} is already being processed", eventPayload.getObjectKey());
+		return Claim.IN_PROGRESS;
+	}
+
+	/**
+	 * Remembers the event as processed for the full TTL, so that later redeliveries are acknowledged without work.
+	 */
+	public void markProcessed(S3EventPayload eventPayload) {
+		if (!enabled) {
+			return;
+		}
+		stringRedisTemplate.opsForValue().set(KEY_PREFIX + eventId(eventPayload), PROCESSED, ttl);
+	}
+
+	/**
+	 * Releases the claim after processing failed, so that the sender's retry is processed again.
+	 */
+	public void release(S3EventPayload eventPayload) {
+		if (!enabled) {
+			return;
+		}
+		stringRedisTemplate.delete(KEY_PREFIX + eventId(eventPayload));
+	}
+
+	private static String eventId(S3EventPayload eventPayload) {
+		String version = eventPayload.getSequencer() != null ? eventPayload.getSequencer() : eventPayload.getEtag();
+		String eventId = eventPayload.getBucketName() + "/" + eventPayload.getObjectKey();
+		return version != null ? eventId + "#" + version : eventId;
+	}
+}
@@ -1,8 +1,11 @@
 package com.worldbeesion.beecareful.s3.service;
 
 import com.worldbeesion.beecareful.s3.model.dto.S3EventPayload;
+import com.worldbeesion.beecareful.s3.exception.InvalidS3EventException;
 import com.worldbeesion.beecareful.s3.exception.S3EventProcessingException; // Import base or specific exceptions
 
+import java.util.List;
+
 public interface S3EventService {
 
 	/**
@@ -13,4 +16,34 @@ public interface S3EventService {
 	 * @throws S3EventProcessingException if validation fails or an error occurs.
 	 */
 	void processS3PutEvent(S3EventPayload eventPayload) throws S3EventProcessingException;
-}
\ No newline at end of file
+
+	/**
+	 * Validates the received S3 event payload and durably records it on the S3 event stream.
+	 * The event is processed later by {@link #processS3PutEvent(S3EventPayload)} on a background consumer.
+	 *
+	 * @param eventPayload The details of the S3 event.
+	 * @throws S3EventProcessingException if validation fails or the event could not be recorded.
+	 */
+	void acceptS3PutEvent(S3EventPayload eventPayload) throws S3EventProcessingException;
+
+	/**
+	 * Processes several S3 event payloads with batched queries: one lookup of all metadata,
+	 * one status update and one completion check per diagnosis.
+	 * Invalid or duplicate events are logged and skipped without failing the rest of the batch.
+	 *
+	 * @param eventPayloads The details of the S3 events.
+	 * @throws S3EventProcessingException if the completion check failed for some diagnosis. The other diagnoses
+	 * have been handled, and a retry of the batch finishes the failed ones.
+	 */
+	void processS3PutEvents(List<S3EventPayload> eventPayloads);
+
+	/**
+	 * Batch variant of {@link #acceptS3PutEvent(S3EventPayload)}; the valid events of the batch are recorded as one
+	 * stream entry. Invalid events are logged and skipped, as in {@link #processS3PutEvents(List)}.
+	 *
+	 * @param eventPayloads The details of the S3 events.
+	 * @throws InvalidS3EventException if no event of the batch is valid.
+	 * @throws S3EventProcessingException if the events could not be recorded.
+	 */
+	void acceptS3PutEvents(List<S3EventPayload> eventPayloads) throws S3EventProcessingException;
+}
@@ -1,27 +1,45 @@
 package com.worldbeesion.beecareful.s3.service;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import com.worldbeesion.beecareful.beehive.model.entity.OriginalPhoto;
 import com.worldbeesion.beecareful.s3.constant.FilePathPrefix;
 import com.worldbeesion.beecareful.s3.constant.S3FileStatus;
 import com.worldbeesion.beecareful.s3.exception.InvalidS3EventException;
+import com.worldbeesion.beecareful.s3.exception.S3EventProcessingException;
 import com.worldbeesion.beecareful.s3.model.dto.S3EventPayload;
 import com.worldbeesion.beecareful.s3.model.entity.S3FileMetadata;
 import com.worldbeesion.beecareful.s3.repository.S3FileMetadataRepository;
 
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 @Service // Mark this as a Spring service bean
 @Slf4j
 public class S3EventServiceImpl implements S3EventService {
 
+	public static final String PAYLOAD_FIELD = "payload";
+	public static final String BATCH_PAYLOAD_FIELD = "payloads";
+
 	private final S3FileMetadataRepository s3FileMetadataRepository;
 	private final S3OriginPhotoUploadProcessingService s3OriginPhotoUploadProcessingService;
+	private final StringRedisTemplate stringRedisTemplate;
+	private final ObjectMapper objectMapper;
 
 	private final String s3BucketName;
+	private final String eventStreamKey;
 
 	/**
 	 * S3에 업로드된 파일의 실제 크기와 예상 크기 간의 허용 가능한 최대 차이 백분율
@@ -32,12 +50,37 @@ public class S3EventServiceImpl implements S3EventService {
 	public S3EventServiceImpl(
 		S3FileMetadataRepository s3FileMetadataRepository,
 		S3OriginPhotoUploadProcessingService s3OriginPhotoUploadProcessingService,
-		@Value("${aws.s3.bucketName}") String s3BucketName
+		StringRedisTemplate stringRedisTemplate,
+		ObjectMapper objectMapper,
+		@Value("${aws.s3.bucketName}") String s3BucketName,
+		@Value("${aws.s3.event-queue.stream-key:s3:events}") String eventStreamKey
 	) {
 		Assert.hasText(s3BucketName, "Expected bucket name must not be empty");
 		this.s3FileMetadataRepository = s3FileMetadataRepository;
 		this.s3OriginPhotoUploadProcessingService = s3OriginPhotoUploadProcessingService;
+		this.stringRedisTemplate = stringRedisTemplate;
+		this.objectMapper = objectMapper;
 		this.s3BucketName = s3BucketName;
+		this.eventStreamKey = eventStreamKey;
+	}
+
+	@Override
+	public void acceptS3PutEvent(S3EventPayload eventPayload) {
+		// Only the cheap payload checks run on the request thread; metadata lookups happen on the consumer
+		validateEventPayload(eventPayload);
+
+		String serializedPayload;
+		try {
+			serializedPayload = objectMapper.writeValueAsString(eventPayload);
+		} catch (JsonProcessingException e) {
+			log.error("Failed to serialize S3 event for Key: {}", eventPayload.getObjectKey(), e);
+			throw new S3EventProcessingException();
+		}
+
+		RecordId recordId = stringRedisTemplate.opsForStream().add(
+			StreamRecords.string(Map.of(PAYLOAD_FIELD, serializedPayload)).withStreamKey(eventStreamKey)
+		);
+		log.info("Accepted S3 event {} for Key: {}", recordId, eventPayload.getObjectKey());
 	}
 
 	@Override
@@ -63,6 +106,104 @@ public class S3EventServiceImpl implements S3EventService {
 		}
 	}
 
+	@Override
+	public void processS3PutEvents(List<S3EventPayload> eventPayloads) {
+		log.info("Processing batch of {} S3 events", eventPayloads.size());
+
+		// 1. Validate the payloads, keeping only origin photos
+		Map<String, S3EventPayload> originPhotoEvents = new LinkedHashMap<>();
+		for (S3EventPayload eventPayload : eventPayloads) {
+			try {
+				validateEventPayload(eventPayload);
+			} catch (InvalidS3EventException e) {
+				continue;
+			}
+			if (eventPayload.getObjectKey().startsWith(FilePathPrefix.BEEHIVE_ORIGIN.getPrefix())) {
+				originPhotoEvents.put(eventPayload.getObjectKey(), eventPayload);
+			}
+		}
+		if (originPhotoEvents.isEmpty()) {
+			return;
+		}
+
+		// 2. Find all Metadata in one query and Validate Sizes
+		List<S3FileMetadata> metadataList = s3FileMetadataRepository.findAllByS3KeyIn(originPhotoEvents.keySet());
+		if (metadataList.size() < originPhotoEvents.size()) {
+			log.warn("Metadata not found for {} of {} objectKeys in the batch",
+				originPhotoEvents.size() - metadataList.size(), originPhotoEvents.size());
+		}
+
+		List<S3FileMetadata> validMetadataList = new ArrayList<>();
+		for (S3FileMetadata metadata : metadataList) {
+			try {
+				validateMetadata(originPhotoEvents.get(metadata.getS3Key()), metadata);
+				validMetadataList.add(metadata);
+			} catch (InvalidS3EventException e) {
+				// already logged, the rest of the batch goes on
+			}
+		}
+
+		// 3. Update the status of all uploads in one statement
+		Map<Long, List<String>> storedPhotosPerDiagnosis =
+			s3OriginPhotoUploadProcessingService.updateOriginPhotoFileStatuses(validMetadataList);
+
+		// 4. Check once per Diagnosis if all Origin Photos are uploaded.
+		// A failing diagnosis does not hold up the others; the retry of the batch finishes it.
+		int failedDiagnoses = 0;
+		for (Map.Entry<Long, List<String>> storedPhotos : storedPhotosPerDiagnosis.entrySet()) {
+			try {
+				s3OriginPhotoUploadProcessingService.checkUploadStatusAndRunDiagnosis(
+					storedPhotos.getKey(), storedPhotos.getValue());
+			} catch (RuntimeException e) {
+				log.error("Failed to check the upload status of diagnosis ID: {}", storedPhotos.getKey(), e);
+				failedDiagnoses++;
+			}
+		}
+		if (failedDiagnoses > 0) {
+			log.error("Failed to check the upload status of {} of {} diagnoses in the batch",
+				failedDiagnoses, storedPhotosPerDiagnosis.size());
+			throw new S3EventProcessingException();
+		}
+
+		log.info("Successfully processed batch of {} S3 events ({} photos stored)", eventPayloads.size(), validMetadataList.size());
+	}
+
+	@Override
+	public void acceptS3PutEvents(List<S3EventPayload> eventPayloads) {
+		// Invalid events are skipped like in processS3PutEvents, so they don't hold up the valid uploads
+		List<S3EventPayload> validPayloads = new ArrayList<>();
+		for (S3EventPayload eventPayload : eventPayloads) {
+			try {
+				validateEventPayload(eventPayload);
+				validPayloads.add(eventPayload);
+			} catch (InvalidS3EventException e) {
+				// already logged
+			}
+		}
+		if (validPayloads.isEmpty()) {
+			log.warn("No valid S3 event in batch of {}", eventPayloads.size());
+			throw new InvalidS3EventException();
+		}
+		if (validPayloads.size() < eventPayloads.size()) {
+			log.warn("Skipping {} invalid S3 events of batch of {}",
+				eventPayloads.size() - validPayloads.size(), eventPayloads.size());
+		}
+
+		// One stream entry for the whole batch, so the consumer can process it with the batched queries
+		String serializedPayloads;
+		try {
+			serializedPayloads = objectMapper.writeValueAsString(validPayloads);
+		} catch (JsonProcessingException e) {
+			log.error("Failed to serialize batch of {} S3 events", validPayloads.size(), e);
+			throw new S3EventProcessingException();
+		}
+
+		RecordId recordId = stringRedisTemplate.opsForStream().add(
+			StreamRecords.string(Map.of(BATCH_PAYLOAD_FIELD, serializedPayloads)).withStreamKey(eventStreamKey)
+		);
+		log.info("Accepted batch {} of {} S3 events", recordId, validPayloads.size());
+	}
+
 	private void validateEventPayload(S3EventPayload eventPayload) {
 		// TODO: add InvalidS3EventException handling logic (status to FAILED)
 		// TODO: implement specific Exceptions for each following cases
@@ -98,6 +239,11 @@ public class S3EventServiceImpl implements S3EventService {
 			throw new InvalidS3EventException();
 		}
 
+		validateMetadata(eventPayload, metadata);
+		return metadata;
+	}
+
+	private void validateMetadata(S3EventPayload eventPayload, S3FileMetadata metadata) {
 		// Compare sizes
 		long receivedSize = eventPayload.getObjectSize();
 		long expectedSize = metadata.getSize(); // Assuming getSize() exists and returns long
@@ -124,14 +270,10 @@ public class S3EventServiceImpl implements S3EventService {
 			log.debug("File size validated successfully for Key: {} (both expected and received are 0).", eventPayload.getObjectKey());
 		}
 
-		// Check if the file is already processed
+		// A file that is already stored may not have been counted yet if the earlier attempt was interrupted,
+		// so the event goes on; counting the photo again is harmless
 		if (metadata.getStatus() == S3FileStatus.STORED) {
-			log.warn("Received duplicate S3 event for already stored file: {}", eventPayload.getObjectKey());
-			// Decide how to handle duplicates. Maybe throw a specific exception or just log and ignore.
-			// For now, let's throw an exception to indicate it's already processed.
-			throw new InvalidS3EventException();
+			log.info("Received S3 event for already stored file: {}", eventPayload.getObjectKey());
 		}
-
-		return metadata;
 	}
 }
\ No newline at end of file
@@ -3,11 +3,13 @@ package com.worldbeesion.beecareful.s3.service;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.worldbeesion.beecareful.beehive.model.dto.OriginalPhotoUploadDto;
 import com.worldbeesion.beecareful.beehive.model.entity.Diagnosis;
 import com.worldbeesion.beecareful.beehive.model.entity.OriginalPhoto;
 import com.worldbeesion.beecareful.beehive.repository.OriginalPhotoRepository;
-import com.worldbeesion.beecareful.beehive.service.DiagnosisService;
+import com.worldbeesion.beecareful.beehive.service.DiagnosisJobPublisher;
 import com.worldbeesion.beecareful.s3.constant.S3FileStatus;
+import com.worldbeesion.beecareful.s3.exception.InvalidS3EventException;
 import com.worldbeesion.beecareful.s3.exception.S3EventProcessingException;
 import com.worldbeesion.beecareful.s3.model.entity.S3FileMetadata;
 import com.worldbeesion.beecareful.s3.repository.S3FileMetadataRepository;
@@ -15,7 +17,11 @@ import com.worldbeesion.beecareful.s3.repository.S3FileMetadataRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * Service responsible for processing S3 upload events and managing the related database operations.
@@ -28,15 +34,19 @@ public class S3OriginPhotoUploadProcessingService {
 
     private final S3FileMetadataRepository s3FileMetadataRepository;
     private final OriginalPhotoRepository originalPhotoRepository;
-    private final DiagnosisService diagnosisService;
+    private final DiagnosisJobPublisher diagnosisJobPublisher;
+    private final OriginPhotoUploadCounter originPhotoUploadCounter;
 
     /**
      * Updates the status of an S3 file metadata to STORED and returns the associated original photo.
+     * A file that is already STORED is returned as well: its event may have been interrupted before the photo was
+     * counted, and counting it again is harmless.
      * This method is executed in its own transaction.
      *
      * @param metadata The S3 file metadata to update
      * @return The original photo associated with the metadata
      * @throws S3EventProcessingException if no original photo is found for the metadata
+     * @throws InvalidS3EventException if the file is neither PENDING nor STORED
      */
     @Transactional
     public OriginalPhoto updateOriginPhotoFileStatus(S3FileMetadata metadata) {
@@ -45,39 +55,128 @@ public class S3OriginPhotoUploadProcessingService {
             log.warn("No OriginalPhoto found for S3FileMetadata with key: {}", metadata.getS3Key());
             throw new S3EventProcessingException(); // TODO: implement metadata not found exception
         }
+        int updated = s3FileMetadataRepository.updateStatusIfCurrent(metadata.getId(), S3FileStatus.PENDING, S3FileStatus.STORED);
+        if (updated == 0) {
+            S3FileStatus status = s3FileMetadataRepository.findById(metadata.getId())
+                .map(S3FileMetadata::getStatus)
+                .orElse(null);
+            if (status != S3FileStatus.STORED) {
+                log.warn("S3FileMetadata with key: {} is {}, ignoring event", metadata.getS3Key(), status);
+                throw new InvalidS3EventException();
+            }
+            log.info("Key: {} is already STORED, finishing its upload count", metadata.getS3Key());
+            return originalPhoto;
+        }
         metadata.setStatus(S3FileStatus.STORED);
-        s3FileMetadataRepository.save(metadata); // Save the updated entity
         log.info("Updated status to STORED for Key: {}", metadata.getS3Key());
         return originalPhoto;
     }
 
     /**
-     * Checks if all original photos for a diagnosis have been uploaded and runs the diagnosis if they have.
+     * Batch variant of {@link #updateOriginPhotoFileStatus(S3FileMetadata)}.
+     * Locks the rows that are still PENDING and moves them to STORED in one statement.
+     * Files of the batch that are already STORED are returned as well: their event may have been interrupted before
+     * the photos were counted, and counting them again is harmless. Files in any other status are skipped.
+     *
+     * @param metadataList The S3 file metadata of the uploaded files
+     * @return Map of diagnosis ID to the S3 keys of its photos of this batch that are stored
+     */
+    @Transactional
+    public Map<Long, List<String>> updateOriginPhotoFileStatuses(List<S3FileMetadata> metadataList) {
+        if (metadataList.isEmpty()) {
+            return Map.of();
+        }
+
+        List<Long> ids = metadataList.stream().map(S3FileMetadata::getId).toList();
+        List<Long> pendingIds = s3FileMetadataRepository.findAllByIdInAndStatus(ids, S3FileStatus.PENDING).stream()
+            .map(S3FileMetadata::getId)
+            .toList();
+        if (!pendingIds.isEmpty()) {
+            s3FileMetadataRepository.updateStatusIn(pendingIds, S3FileStatus.STORED);
+            log.info("Updated status to STORED for {} files", pendingIds.size());
+        }
+
+        List<Long> storedIds = new ArrayList<>(pendingIds);
+        if (pendingIds.size() < ids.size()) {
+            List<Long> alreadyStoredIds = s3FileMetadataRepository.findAllByIdInAndStatus(
+                    ids.stream().filter(id -> !pendingIds.contains(id)).toList(), S3FileStatus.STORED).stream()
+                .map(S3FileMetadata::getId)
+                .toList();
+            log.info("{} of {} files in the batch are already STORED, finishing their upload count",
+                alreadyStoredIds.size(), ids.size());
+            if (pendingIds.size() + alreadyStoredIds.size() < ids.size()) {
+                log.warn("{} of {} files in the batch are neither PENDING nor STORED, ignoring them",
+                    ids.size() - pendingIds.size() - alreadyStoredIds.size(), ids.size());
+            }
+            storedIds.addAll(alreadyStoredIds);
+        }
+        if (storedIds.isEmpty()) {
+            return Map.of();
+        }
+
+        return groupByDiagnosis(originalPhotoRepository.findUploadsByS3FileMetadataIds(storedIds));
+    }
+
+    private static Map<Long, List<String>> groupByDiagnosis(List<OriginalPhotoUploadDto> uploads) {
+        return uploads.stream().collect(Collectors.groupingBy(
+            OriginalPhotoUploadDto::diagnosisId,
+            Collectors.mapping(OriginalPhotoUploadDto::s3Key, Collectors.toList())));
+    }
+
+    /**
+     * Counts the photo as uploaded and publishes the diagnosis job when it was the last one.
      * This method is executed in its own transaction.
      *
-     * @param originalPhoto The original photo to check
+     * @param originalPhoto The original photo that has been stored
      */
     @Transactional
     public void checkUploadStatusOfOriginPhotosOfTheDiagnosisAndRunDiagnosis(OriginalPhoto originalPhoto) {
-        // TODO: prevent duplicate call with lock or whatever
-
-        // Get the diagnosis ID
         Diagnosis diagnosis = originalPhoto.getDiagnosis();
         log.info("Found diagnosis ID: {}", diagnosis.getId());
+        checkUploadStatusAndRunDiagnosis(diagnosis.getId(), List.of(originalPhoto.getS3FileMetadata().getS3Key()));
+    }
 
-        // Get all original photos for this diagnosis
-        List<OriginalPhoto> allPhotosForDiagnosis = originalPhotoRepository.findAllByDiagnosis(diagnosis);
-        log.info("Found {} photos for diagnosis ID: {}", allPhotosForDiagnosis.size(), diagnosis.getId());
+    /**
+     * Counts the stored photos of the diagnosis as uploaded and publishes the diagnosis job when they were the last ones.
+     * Counting is idempotent, so this may run again for photos that were already counted, e.g. for a redelivered
+     * event whose first attempt stored the file and failed before or after counting it.
+     * Diagnoses without a counter fall back to counting their photos that are not STORED yet.
+     *
+     * @param diagnosisId The ID of the diagnosis
+     * @param storedPhotoS3Keys The S3 keys of the photos of the diagnosis that are stored
+     * @throws S3EventProcessingException if another event is publishing the job right now, so that this one is
+     * retried and publishes it should that event fail
+     */
+    public void checkUploadStatusAndRunDiagnosis(Long diagnosisId, Collection<String> storedPhotoS3Keys) {
+        Long remaining = originPhotoUploadCounter.decrement(diagnosisId, storedPhotoS3Keys);
+        if (remaining == null) {
+            log.info("No upload counter for diagnosis ID: {}, checking photo statuses", diagnosisId);
+            remaining = originalPhotoRepository.countByDiagnosisIdAndS3FileStatusNot(diagnosisId, S3FileStatus.STORED);
+        }
+        if (remaining > 0) {
+            log.info("{} photos for diagnosis ID: {} have not been uploaded yet.", remaining, diagnosisId);
+            return;
+        }
 
-        // Check if all photos have been uploaded (their S3FileMetadata status is STORED)
-        for (OriginalPhoto photo : allPhotosForDiagnosis) {
-            if (photo.getS3FileMetadata().getStatus() != S3FileStatus.STORED) {
-                log.info("Not all photos for diagnosis ID: {} have been uploaded yet.", diagnosis.getId());
+        switch (originPhotoUploadCounter.claimPublication(diagnosisId)) {
+            case PUBLISHED -> {
+                log.info("Diagnosis job for diagnosis ID: {} was already published", diagnosisId);
                 return;
             }
+            case IN_PROGRESS -> {
+                log.warn("Diagnosis job for diagnosis ID: {} is being published by another event", diagnosisId);
+                throw new S3EventProcessingException();
+            }
+            case CLAIMED ->
+                log.info("All photos for diagnosis ID: {} have been uploaded. Publishing diagnosis job...", diagnosisId);
         }
 
-        log.info("All photos for diagnosis ID: {} have been uploaded. Running diagnosis...", diagnosis.getId());
-        diagnosisService.runDiagnosis(diagnosis.getId());
+        try {
+            diagnosisJobPublisher.publish(diagnosisId);
+        } catch (RuntimeException e) {
+            originPhotoUploadCounter.releasePublication(diagnosisId);
+            throw e;
+        }
+        originPhotoUploadCounter.confirmPublication(diagnosisId);
     }
-}
\ No newline at end of file
+}
@@ -2,21 +2,38 @@ package com.worldbeesion.beecareful.s3.service;
 
 import com.worldbeesion.beecareful.s3.constant.FilePathPrefix;
 import com.worldbeesion.beecareful.s3.constant.S3FileStatus;
+import com.worldbeesion.beecareful.s3.config.S3Config;
+import com.worldbeesion.beecareful.s3.model.dto.GeneratePutUrlRequest;
 import com.worldbeesion.beecareful.s3.model.dto.GeneratePutUrlResponse;
 import com.worldbeesion.beecareful.s3.model.entity.S3FileMetadata;
 
 import java.time.Duration;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 import com.worldbeesion.beecareful.s3.repository.S3FileMetadataRepository;
 
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import lombok.extern.slf4j.Slf4j;
+
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
@@ -24,30 +41,68 @@ import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequ
 import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
 
 @Service
+@Slf4j
 public class S3PresignService {
     private static final Duration PUT_EXPIRATION = Duration.ofMinutes(10);
     private static final Duration GET_EXPIRATION = Duration.ofMinutes(60);
+    private static final Duration REDIS_CACHE_TTL = Duration.ofMinutes(45);
+    private static final Duration LOCAL_CACHE_TTL = Duration.ofMinutes(10);
+    private static final String GET_URL_CACHE_KEY_PREFIX = "s3:presigned:get:";
     private static final List<String> allowedExtensions = Arrays.asList("jpg", "png", "gif", "jpeg", "webp");
 
     private final S3FileMetadataRepository s3FileMetadataRepository;
     private final RedisTemplate<String, String> redisTemplate;
     private final S3Presigner presigner;
+    private final Executor presignExecutor;
     private final String bucketName;
+    private final Cache<String, String> localGetUrlCache;
 
     public S3PresignService(
         RedisTemplate<String, String> redisTemplate,
         S3FileMetadataRepository s3FileMetadataRepository,
         S3Presigner s3Presigner,
-        @Value("${cloud.aws.s3.bucket}") String bucketName) {
+        @Qualifier(S3Config.S3_PRESIGN_EXECUTOR) Executor presignExecutor,
+        @Value("${cloud.aws.s3.bucket}") String bucketName,
+        @Value("${aws.s3.presign.get-url-cache.max-size:10000}") long localCacheMaxSize) {
         this.s3FileMetadataRepository = s3FileMetadataRepository;
         this.presigner = s3Presigner;
+        this.presignExecutor = presignExecutor;
         this.redisTemplate = redisTemplate;
         this.bucketName = bucketName;
+        this.localGetUrlCache = Caffeine.newBuilder()
+            .maximumSize(localCacheMaxSize)
+            .expireAfterWrite(LOCAL_CACHE_TTL)
+            .build();
     }
 
     @Transactional
     public GeneratePutUrlResponse generatePutOriginPhotoUrl(String originalFilename, String contentType, Long expectedSize) {
+        GeneratePutUrlResponse response = presignPutOriginPhotoUrl(new GeneratePutUrlRequest(originalFilename, contentType, expectedSize));
+        s3FileMetadataRepository.save(response.s3FileMetadata());
+        return response;
+    }
 
+    /**
+     * Signs PUT URLs for many origin photos in parallel on the bounded presign pool.
+     * The returned metadata is not persisted; the caller stores it in bulk.
+     *
+     * @param requests The photos to upload, in order
+     * @return The presigned URLs and unsaved PENDING metadata, in the order of the requests
+     */
+    public List<GeneratePutUrlResponse> presignPutOriginPhotoUrls(List<GeneratePutUrlRequest> requests) {
+        List<CompletableFuture<GeneratePutUrlResponse>> futures = requests.stream()
+            .map(request -> CompletableFuture.supplyAsync(() -> presignPutOriginPhotoUrl(request), presignExecutor))
+            .toList();
+
+        try {
+            return futures.stream().map(CompletableFuture::join).toList();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException runtimeException ? runtimeException : e;
+        }
+    }
+
+    private GeneratePutUrlResponse presignPutOriginPhotoUrl(GeneratePutUrlRequest request) {
+        String contentType = request.contentType();
         String s3Key = FilePathPrefix.BEEHIVE_ORIGIN.getPrefix() + UUID.randomUUID() + "." + contentType.split("/")[1];
 
         PutObjectRequest objectRequest = PutObjectRequest.builder()
@@ -63,14 +118,12 @@ public class S3PresignService {
 
         S3FileMetadata s3FileMetadata = S3FileMetadata.builder()
             .s3Key(s3Key)
-            .originalFilename(originalFilename)
-            .size(expectedSize)
+            .originalFilename(request.originalFilename())
+            .size(request.expectedSize())
             .status(S3FileStatus.PENDING)
             .contentType(contentType)
             .build();
 
-        S3FileMetadata save = s3FileMetadataRepository.save(s3FileMetadata);
-
         return GeneratePutUrlResponse.builder()
             .preSignedUrl(presignedRequest.url().toString())
             .s3FileMetadata(s3FileMetadata)
@@ -79,17 +132,57 @@ public class S3PresignService {
 
     // GET 용 Presigned URL 생성 (조회용)
     public String generateGetUrl(S3FileMetadata s3FileMetadata) {
+        return generateGetUrls(List.of(s3FileMetadata)).get(0);
+    }
+
+    /**
+     * Presigned GET URLs for several files, in order.
+     * Looked up in the in-process cache first, then with a single MGET in Redis; URLs found in neither are signed
+     * locally and written back to Redis in one pipeline off the request thread, so a call costs at most one
+     * Redis round trip.
+     * The caches expire well before the signature does, so a returned URL is valid for at least
+     * GET_EXPIRATION - REDIS_CACHE_TTL - LOCAL_CACHE_TTL.
+     */
+    public List<String> generateGetUrls(List<S3FileMetadata> s3FileMetadataList) {
+        List<String> cacheKeys = s3FileMetadataList.stream()
+            .map(metadata -> GET_URL_CACHE_KEY_PREFIX + metadata.getS3Key())
+            .toList();
+
+        // 1. in-process cache
+        Map<String, String> urls = new HashMap<>(localGetUrlCache.getAllPresent(cacheKeys));
+
+        List<String> localMisses = cacheKeys.stream().distinct().filter(key -> !urls.containsKey(key)).toList();
+        if (localMisses.isEmpty()) {
+            return cacheKeys.stream().map(urls::get).toList();
+        }
 
-        String s3Key = s3FileMetadata.getS3Key();
-        String cacheKey = "s3:presigned:get:" + s3Key;
+        // 2. redis, one MGET for all local misses
+        List<String> cachedUrls = redisTemplate.opsForValue().multiGet(localMisses);
+        Map<String, String> signedUrls = new HashMap<>();
+        for (int i = 0; i < localMisses.size(); i++) {
+            String cacheKey = localMisses.get(i);
+            String url = cachedUrls == null ? null : cachedUrls.get(i);
+            if (url == null) {
+                // 3. sign locally
+                url = presignGetUrl(cacheKey.substring(GET_URL_CACHE_KEY_PREFIX.length()));
+                signedUrls.put(cacheKey, url);
+            }
+            urls.put(cacheKey, url);
+            localGetUrlCache.put(cacheKey, url);
+        }
 
-        // first check redis cache
-        String url = redisTemplate.opsForValue().get(cacheKey);
-        if (url != null) {
-            return url;
+        if (!signedUrls.isEmpty()) {
+            CompletableFuture.runAsync(() -> cacheInRedis(signedUrls), presignExecutor)
+                .exceptionally(e -> {
+                    log.warn("Failed to cache {} presigned GET URLs in redis: {}", signedUrls.size(), e.getMessage());
+                    return null;
+                });
         }
 
-        // if not found in redis cache, generate presigned url and put it into redis cache
+        return cacheKeys.stream().map(urls::get).toList();
+    }
+
+    private String presignGetUrl(String s3Key) {
         GetObjectRequest getObjectRequest = GetObjectRequest.builder()
             .bucket(bucketName)
             .key(s3Key)
@@ -99,9 +192,19 @@ public class S3PresignService {
             .signatureDuration(GET_EXPIRATION)
             .getObjectRequest(getObjectRequest)
         );
-        String getUrl = presignedGetRequest.url().toString();
-        redisTemplate.opsForValue().set(cacheKey, getUrl, GET_EXPIRATION);
+        return presignedGetRequest.url().toString();
+    }
 
-        return getUrl;
+    private void cacheInRedis(Map<String, String> urls) {
+        Expiration expiration = Expiration.from(REDIS_CACHE_TTL);
+        redisTemplate.executePipelined((RedisCallback<Object>)connection -> {
+            urls.forEach((cacheKey, url) -> connection.stringCommands().set(
+                StringRedisSerializer.UTF_8.serialize(cacheKey),
+                StringRedisSerializer.UTF_8.serialize(url),
+                expiration,
+                RedisStringCommands.SetOption.upsert()
+            ));
+            return null;
+        });
     }
-}
\ No newline at end of file
+}
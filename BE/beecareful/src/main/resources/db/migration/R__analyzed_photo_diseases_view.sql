@@ -0,0 +1,16 @@
+-- Compatibility view: the old one-row-per-disease layout, with a synthetic id per photo and disease.
+CREATE OR REPLACE VIEW `analyzed_photo_diseases` AS
+SELECT c.`analyzed_photo_id` * 10 + 1 AS `analyzed_photo_disease_id`, c.`analyzed_photo_id`, d.`disease_id`, c.`larva_varroa_count` AS `count`
+FROM `analyzed_photo_counts` c JOIN `diseases` d ON d.`stage` = 'LARVA' AND d.`name` = 'VARROA'
+UNION ALL
+SELECT c.`analyzed_photo_id` * 10 + 2, c.`analyzed_photo_id`, d.`disease_id`, c.`larva_foulbrood_count`
+FROM `analyzed_photo_counts` c JOIN `diseases` d ON d.`stage` = 'LARVA' AND d.`name` = 'FOULBROOD'
+UNION ALL
+SELECT c.`analyzed_photo_id` * 10 + 3, c.`analyzed_photo_id`, d.`disease_id`, c.`larva_chalkbrood_count`
+FROM `analyzed_photo_counts` c JOIN `diseases` d ON d.`stage` = 'LARVA' AND d.`name` = 'CHALKBROOD'
+UNION ALL
+SELECT c.`analyzed_photo_id` * 10 + 4, c.`analyzed_photo_id`, d.`disease_id`, c.`imago_varroa_count`
+FROM `analyzed_photo_counts` c JOIN `diseases` d ON d.`stage` = 'IMAGO' AND d.`name` = 'VARROA'
+UNION ALL
+SELECT c.`analyzed_photo_id` * 10 + 5, c.`analyzed_photo_id`, d.`disease_id`, c.`imago_dwv_count`
+FROM `analyzed_photo_counts` c JOIN `diseases` d ON d.`stage` = 'IMAGO' AND d.`name` = 'DWV';
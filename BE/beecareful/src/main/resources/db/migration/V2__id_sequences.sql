@@ -0,0 +1,30 @@
+-- Pooled ID generation for the high-volume tables (see IdSequences).
+-- Each row holds the upper bound of the last block handed out; ids are taken in blocks of the allocation size,
+-- so the row starts one block above the current maximum id.
+-- Safe to run again on an existing database: a row is only ever moved up.
+
+CREATE TABLE IF NOT EXISTS `id_sequences`
+(
+    `sequence_name` varchar(255) NOT NULL PRIMARY KEY,
+    `next_val`      bigint       NOT NULL
+);
+
+INSERT INTO `id_sequences` (`sequence_name`, `next_val`)
+SELECT 'diagnoses', COALESCE(MAX(`diagnosis_id`), 0) + 20 + 1 FROM `diagnoses`
+ON DUPLICATE KEY UPDATE `next_val` = GREATEST(`next_val`, VALUES(`next_val`));
+
+INSERT INTO `id_sequences` (`sequence_name`, `next_val`)
+SELECT 'original_photos', COALESCE(MAX(`original_photo_id`), 0) + 100 + 1 FROM `original_photos`
+ON DUPLICATE KEY UPDATE `next_val` = GREATEST(`next_val`, VALUES(`next_val`));
+
+INSERT INTO `id_sequences` (`sequence_name`, `next_val`)
+SELECT 'analyzed_photos', COALESCE(MAX(`analyzed_photo_id`), 0) + 100 + 1 FROM `analyzed_photos`
+ON DUPLICATE KEY UPDATE `next_val` = GREATEST(`next_val`, VALUES(`next_val`));
+
+INSERT INTO `id_sequences` (`sequence_name`, `next_val`)
+SELECT 'analyzed_photo_diseases', COALESCE(MAX(`analyzed_photo_disease_id`), 0) + 500 + 1 FROM `analyzed_photo_diseases`
+ON DUPLICATE KEY UPDATE `next_val` = GREATEST(`next_val`, VALUES(`next_val`));
+
+INSERT INTO `id_sequences` (`sequence_name`, `next_val`)
+SELECT 's3_file_metadatas', COALESCE(MAX(`s3_file_metadata_id`), 0) + 200 + 1 FROM `s3_file_metadatas`
+ON DUPLICATE KEY UPDATE `next_val` = GREATEST(`next_val`, VALUES(`next_val`));
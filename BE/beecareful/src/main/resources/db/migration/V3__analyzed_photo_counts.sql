@@ -0,0 +1,44 @@
+-- One row of fixed count columns per analyzed photo instead of five analyzed_photo_diseases rows.
+-- Normal counts were never stored separately; they are derived from the analyzed_photos totals.
+-- One-shot migration: analyzed_photo_diseases is backfilled, renamed to analyzed_photo_diseases_legacy
+-- and replaced by a read-only view with the old layout.
+
+CREATE TABLE `analyzed_photo_counts`
+(
+    `analyzed_photo_id`      bigint NOT NULL PRIMARY KEY,
+    `diagnosis_id`           bigint NOT NULL,
+    `larva_varroa_count`     bigint NOT NULL DEFAULT 0,
+    `larva_foulbrood_count`  bigint NOT NULL DEFAULT 0,
+    `larva_chalkbrood_count` bigint NOT NULL DEFAULT 0,
+    `larva_normal_count`     bigint NOT NULL DEFAULT 0,
+    `imago_varroa_count`     bigint NOT NULL DEFAULT 0,
+    `imago_dwv_count`        bigint NOT NULL DEFAULT 0,
+    `imago_normal_count`     bigint NOT NULL DEFAULT 0
+);
+
+INSERT INTO `analyzed_photo_counts` (
+    `analyzed_photo_id`, `diagnosis_id`,
+    `larva_varroa_count`, `larva_foulbrood_count`, `larva_chalkbrood_count`, `larva_normal_count`,
+    `imago_varroa_count`, `imago_dwv_count`, `imago_normal_count`
+)
+SELECT
+    ap.`analyzed_photo_id`,
+    ap.`diagnosis_id`,
+    COALESCE(SUM(CASE WHEN d.`stage` = 'LARVA' AND d.`name` = 'VARROA' THEN apd.`count` END), 0),
+    COALESCE(SUM(CASE WHEN d.`stage` = 'LARVA' AND d.`name` = 'FOULBROOD' THEN apd.`count` END), 0),
+    COALESCE(SUM(CASE WHEN d.`stage` = 'LARVA' AND d.`name` = 'CHALKBROOD' THEN apd.`count` END), 0),
+    GREATEST(ap.`larva_count` - COALESCE(SUM(CASE WHEN d.`stage` = 'LARVA' THEN apd.`count` END), 0), 0),
+    COALESCE(SUM(CASE WHEN d.`stage` = 'IMAGO' AND d.`name` = 'VARROA' THEN apd.`count` END), 0),
+    COALESCE(SUM(CASE WHEN d.`stage` = 'IMAGO' AND d.`name` = 'DWV' THEN apd.`count` END), 0),
+    GREATEST(ap.`imago_count` - COALESCE(SUM(CASE WHEN d.`stage` = 'IMAGO' THEN apd.`count` END), 0), 0)
+FROM `analyzed_photos` ap
+LEFT JOIN `analyzed_photo_diseases` apd ON apd.`analyzed_photo_id` = ap.`analyzed_photo_id`
+LEFT JOIN `diseases` d ON d.`disease_id` = apd.`disease_id`
+GROUP BY ap.`analyzed_photo_id`, ap.`diagnosis_id`, ap.`larva_count`, ap.`imago_count`;
+
+RENAME TABLE `analyzed_photo_diseases` TO `analyzed_photo_diseases_legacy`;
+
+-- The analyzed_photo_diseases compatibility view is defined in R__analyzed_photo_diseases_view.sql
+
+-- analyzed_photo_diseases no longer has its own ids
+DELETE FROM `id_sequences` WHERE `sequence_name` = 'analyzed_photo_diseases';
@@ -0,0 +1,43 @@
+-- One running summary row per diagnosis, incremented with every batch of analyzed photos.
+-- Ratios are percentages rounded to three decimals, as shown in the beehive history.
+
+CREATE TABLE `diagnosis_summaries`
+(
+    `diagnosis_id`           bigint    NOT NULL PRIMARY KEY,
+    `beehive_id`             bigint    NOT NULL,
+    `created_at`             timestamp NOT NULL,
+    `photo_count`            bigint    NOT NULL DEFAULT 0,
+    `imago_count`            bigint    NOT NULL DEFAULT 0,
+    `larva_count`            bigint    NOT NULL DEFAULT 0,
+    `larva_varroa_count`     bigint    NOT NULL DEFAULT 0,
+    `larva_foulbrood_count`  bigint    NOT NULL DEFAULT 0,
+    `larva_chalkbrood_count` bigint    NOT NULL DEFAULT 0,
+    `imago_varroa_count`     bigint    NOT NULL DEFAULT 0,
+    `imago_dwv_count`        bigint    NOT NULL DEFAULT 0,
+    `larva_varroa_ratio`     double AS (IF(`larva_count` = 0, 0, ROUND(`larva_varroa_count` * 100 / `larva_count`, 3))) STORED NOT NULL,
+    `larva_foulbrood_ratio`  double AS (IF(`larva_count` = 0, 0, ROUND(`larva_foulbrood_count` * 100 / `larva_count`, 3))) STORED NOT NULL,
+    `larva_chalkbrood_ratio` double AS (IF(`larva_count` = 0, 0, ROUND(`larva_chalkbrood_count` * 100 / `larva_count`, 3))) STORED NOT NULL,
+    `imago_varroa_ratio`     double AS (IF(`imago_count` = 0, 0, ROUND(`imago_varroa_count` * 100 / `imago_count`, 3))) STORED NOT NULL,
+    `imago_dwv_ratio`        double AS (IF(`imago_count` = 0, 0, ROUND(`imago_dwv_count` * 100 / `imago_count`, 3))) STORED NOT NULL
+);
+
+-- Backfill every existing diagnosis from its per-photo counts
+INSERT INTO `diagnosis_summaries` (
+    `diagnosis_id`, `beehive_id`, `created_at`, `photo_count`, `imago_count`, `larva_count`,
+    `larva_varroa_count`, `larva_foulbrood_count`, `larva_chalkbrood_count`, `imago_varroa_count`, `imago_dwv_count`
+)
+SELECT
+    d.`diagnosis_id`,
+    d.`beehive_id`,
+    d.`created_at`,
+    COUNT(c.`analyzed_photo_id`),
+    COALESCE(SUM(c.`imago_normal_count` + c.`imago_varroa_count` + c.`imago_dwv_count`), 0),
+    COALESCE(SUM(c.`larva_normal_count` + c.`larva_varroa_count` + c.`larva_foulbrood_count` + c.`larva_chalkbrood_count`), 0),
+    COALESCE(SUM(c.`larva_varroa_count`), 0),
+    COALESCE(SUM(c.`larva_foulbrood_count`), 0),
+    COALESCE(SUM(c.`larva_chalkbrood_count`), 0),
+    COALESCE(SUM(c.`imago_varroa_count`), 0),
+    COALESCE(SUM(c.`imago_dwv_count`), 0)
+FROM `diagnoses` d
+LEFT JOIN `analyzed_photo_counts` c ON c.`diagnosis_id` = d.`diagnosis_id`
+GROUP BY d.`diagnosis_id`, d.`beehive_id`, d.`created_at`;
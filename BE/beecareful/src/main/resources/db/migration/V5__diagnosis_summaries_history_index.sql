@@ -0,0 +1,2 @@
+-- The beehive history reads the summaries of one beehive within a time window as a single range scan
+CREATE INDEX `idx_diagnosis_summaries_beehive_created` ON `diagnosis_summaries` (`beehive_id`, `created_at`);
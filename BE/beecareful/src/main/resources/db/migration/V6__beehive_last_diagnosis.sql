@@ -0,0 +1,17 @@
+-- Beehives point at their latest diagnosis so the apiary list no longer aggregates the whole diagnoses table
+
+ALTER TABLE `beehives`
+    ADD COLUMN `last_diagnosis_id` bigint    NULL,
+    ADD COLUMN `last_diagnosed_at` timestamp NULL;
+
+UPDATE `beehives` b
+JOIN (
+    SELECT d.`beehive_id`, d.`diagnosis_id`, d.`created_at`,
+           ROW_NUMBER() OVER (PARTITION BY d.`beehive_id` ORDER BY d.`created_at` DESC, d.`diagnosis_id` DESC) AS rn
+    FROM `diagnoses` d
+) latest ON latest.`beehive_id` = b.`beehive_id` AND latest.rn = 1
+SET b.`last_diagnosis_id` = latest.`diagnosis_id`,
+    b.`last_diagnosed_at` = latest.`created_at`;
+
+-- The apiary list is a scan of one apiary's live hives
+CREATE INDEX `idx_beehives_apiary_deleted` ON `beehives` (`apiary_id`, `deleted_at`);
@@ -0,0 +1,62 @@
+-- Secondary indexes for every lookup on the request and diagnosis paths.
+-- Unique where the code already keeps at most one row per key, after checking existing data against it.
+
+-- A token belongs to one device: MemberDeviceServiceImpl.updateFcmToken deletes the old row of a token before
+-- saving it for a new member, so only the newest row of a duplicated token is still in use.
+DELETE older FROM `member_device` older
+JOIN `member_device` newer ON newer.`fcm_token` = older.`fcm_token` AND newer.`member_device_id` > older.`member_device_id`;
+
+-- Duplicates of the other unique keys are referenced or owned by users and can't be merged here.
+-- Fail before any index is created (MySQL DDL is not transactional) and name the keys to clean up by hand.
+DROP PROCEDURE IF EXISTS `v7_check_unique_keys`;
+
+DELIMITER $$
+CREATE PROCEDURE `v7_check_unique_keys`()
+BEGIN
+    DECLARE duplicates VARCHAR(255) DEFAULT '';
+
+    IF EXISTS (SELECT 1 FROM `s3_file_metadatas` GROUP BY `s3_key` HAVING COUNT(*) > 1) THEN
+        SET duplicates = CONCAT(duplicates, ' s3_file_metadatas.s3_key');
+    END IF;
+    IF EXISTS (SELECT 1 FROM `original_photos` GROUP BY `s3_file_metadata_id` HAVING COUNT(*) > 1) THEN
+        SET duplicates = CONCAT(duplicates, ' original_photos.s3_file_metadata_id');
+    END IF;
+    IF EXISTS (SELECT 1 FROM `turrets` GROUP BY `serial` HAVING COUNT(*) > 1) THEN
+        SET duplicates = CONCAT(duplicates, ' turrets.serial');
+    END IF;
+    IF EXISTS (SELECT 1 FROM `turrets` GROUP BY `beehive_id` HAVING COUNT(*) > 1) THEN
+        SET duplicates = CONCAT(duplicates, ' turrets.beehive_id');
+    END IF;
+    IF EXISTS (SELECT 1 FROM `auth_members` GROUP BY `member_login_id` HAVING COUNT(*) > 1) THEN
+        SET duplicates = CONCAT(duplicates, ' auth_members.member_login_id');
+    END IF;
+
+    IF duplicates <> '' THEN
+        SET duplicates = CONCAT('V7 needs unique values, found duplicates in:', duplicates);
+        SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = duplicates;
+    END IF;
+END$$
+DELIMITER ;
+
+CALL `v7_check_unique_keys`();
+DROP PROCEDURE `v7_check_unique_keys`;
+
+-- S3 event handling resolves metadata by key
+CREATE UNIQUE INDEX `uk_s3_file_metadatas_s3_key` ON `s3_file_metadatas` (`s3_key`);
+
+-- Photos of a diagnosis, with status so status counts are answered from the index
+CREATE INDEX `idx_original_photos_diagnosis_status` ON `original_photos` (`diagnosis_id`, `status`);
+CREATE UNIQUE INDEX `uk_original_photos_s3_file_metadata` ON `original_photos` (`s3_file_metadata_id`);
+
+CREATE INDEX `idx_analyzed_photos_diagnosis` ON `analyzed_photos` (`diagnosis_id`);
+CREATE INDEX `idx_analyzed_photo_counts_diagnosis` ON `analyzed_photo_counts` (`diagnosis_id`);
+
+CREATE INDEX `idx_diagnoses_beehive_created` ON `diagnoses` (`beehive_id`, `created_at`);
+
+CREATE UNIQUE INDEX `uk_turrets_serial` ON `turrets` (`serial`);
+CREATE UNIQUE INDEX `uk_turrets_beehive` ON `turrets` (`beehive_id`);
+
+CREATE UNIQUE INDEX `uk_member_device_fcm_token` ON `member_device` (`fcm_token`);
+CREATE UNIQUE INDEX `uk_auth_members_member_login_id` ON `auth_members` (`member_login_id`);
+-- Plain index: a member owning several apiaries is a product decision, not something to lock into the schema
+CREATE INDEX `idx_apiaries_member` ON `apiaries` (`member_id`);
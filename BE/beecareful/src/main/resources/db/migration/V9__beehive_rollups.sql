@@ -0,0 +1,68 @@
+-- Per-beehive rollups of finalized diagnoses for the trend chart, one row per beehive, granularity and bucket.
+-- Buckets start on the day, on the Monday of the week and on the first day of the month (see RollupGranularity).
+
+ALTER TABLE `diagnosis_summaries` ADD COLUMN `rolled_up` boolean NOT NULL DEFAULT FALSE;
+
+CREATE TABLE `beehive_rollups`
+(
+    `beehive_id`             bigint                      NOT NULL,
+    `granularity`            enum('DAY', 'WEEK', 'MONTH') NOT NULL,
+    `bucket_start`           date                        NOT NULL,
+    `diagnosis_count`        bigint                      NOT NULL DEFAULT 0,
+    `photo_count`            bigint                      NOT NULL DEFAULT 0,
+    `imago_count`            bigint                      NOT NULL DEFAULT 0,
+    `larva_count`            bigint                      NOT NULL DEFAULT 0,
+    `larva_varroa_count`     bigint                      NOT NULL DEFAULT 0,
+    `larva_foulbrood_count`  bigint                      NOT NULL DEFAULT 0,
+    `larva_chalkbrood_count` bigint                      NOT NULL DEFAULT 0,
+    `imago_varroa_count`     bigint                      NOT NULL DEFAULT 0,
+    `imago_dwv_count`        bigint                      NOT NULL DEFAULT 0,
+    `larva_varroa_ratio`     double AS (IF(`larva_count` = 0, 0, ROUND(`larva_varroa_count` * 100 / `larva_count`, 3))) STORED NOT NULL,
+    `larva_foulbrood_ratio`  double AS (IF(`larva_count` = 0, 0, ROUND(`larva_foulbrood_count` * 100 / `larva_count`, 3))) STORED NOT NULL,
+    `larva_chalkbrood_ratio` double AS (IF(`larva_count` = 0, 0, ROUND(`larva_chalkbrood_count` * 100 / `larva_count`, 3))) STORED NOT NULL,
+    `imago_varroa_ratio`     double AS (IF(`imago_count` = 0, 0, ROUND(`imago_varroa_count` * 100 / `imago_count`, 3))) STORED NOT NULL,
+    `imago_dwv_ratio`        double AS (IF(`imago_count` = 0, 0, ROUND(`imago_dwv_count` * 100 / `imago_count`, 3))) STORED NOT NULL,
+    PRIMARY KEY (`beehive_id`, `granularity`, `bucket_start`)
+);
+
+-- Diagnoses that are done analyzing are rolled up now; the ones still running are added when they finalize
+UPDATE `diagnosis_summaries` s
+SET s.`rolled_up` = TRUE
+WHERE s.`photo_count` > 0
+  AND NOT EXISTS (
+    SELECT 1 FROM `original_photos` op
+    WHERE op.`diagnosis_id` = s.`diagnosis_id` AND op.`status` IN ('WAITING', 'ANALYZING')
+  );
+
+INSERT INTO `beehive_rollups` (
+    `beehive_id`, `granularity`, `bucket_start`, `diagnosis_count`, `photo_count`, `imago_count`, `larva_count`,
+    `larva_varroa_count`, `larva_foulbrood_count`, `larva_chalkbrood_count`, `imago_varroa_count`, `imago_dwv_count`
+)
+SELECT s.`beehive_id`, 'DAY', DATE(s.`created_at`), COUNT(*), SUM(s.`photo_count`), SUM(s.`imago_count`), SUM(s.`larva_count`),
+       SUM(s.`larva_varroa_count`), SUM(s.`larva_foulbrood_count`), SUM(s.`larva_chalkbrood_count`),
+       SUM(s.`imago_varroa_count`), SUM(s.`imago_dwv_count`)
+FROM `diagnosis_summaries` s
+WHERE s.`rolled_up` = TRUE
+GROUP BY s.`beehive_id`, DATE(s.`created_at`);
+
+INSERT INTO `beehive_rollups` (
+    `beehive_id`, `granularity`, `bucket_start`, `diagnosis_count`, `photo_count`, `imago_count`, `larva_count`,
+    `larva_varroa_count`, `larva_foulbrood_count`, `larva_chalkbrood_count`, `imago_varroa_count`, `imago_dwv_count`
+)
+SELECT s.`beehive_id`, 'WEEK', DATE_SUB(DATE(s.`created_at`), INTERVAL WEEKDAY(s.`created_at`) DAY), COUNT(*), SUM(s.`photo_count`), SUM(s.`imago_count`), SUM(s.`larva_count`),
+       SUM(s.`larva_varroa_count`), SUM(s.`larva_foulbrood_count`), SUM(s.`larva_chalkbrood_count`),
+       SUM(s.`imago_varroa_count`), SUM(s.`imago_dwv_count`)
+FROM `diagnosis_summaries` s
+WHERE s.`rolled_up` = TRUE
+GROUP BY s.`beehive_id`, DATE_SUB(DATE(s.`created_at`), INTERVAL WEEKDAY(s.`created_at`) DAY);
+
+INSERT INTO `beehive_rollups` (
+    `beehive_id`, `granularity`, `bucket_start`, `diagnosis_count`, `photo_count`, `imago_count`, `larva_count`,
+    `larva_varroa_count`, `larva_foulbrood_count`, `larva_chalkbrood_count`, `imago_varroa_count`, `imago_dwv_count`
+)
+SELECT s.`beehive_id`, 'MONTH', CAST(DATE_FORMAT(s.`created_at`, '%Y-%m-01') AS DATE), COUNT(*), SUM(s.`photo_count`), SUM(s.`imago_count`), SUM(s.`larva_count`),
+       SUM(s.`larva_varroa_count`), SUM(s.`larva_foulbrood_count`), SUM(s.`larva_chalkbrood_count`),
+       SUM(s.`imago_varroa_count`), SUM(s.`imago_dwv_count`)
+FROM `diagnosis_summaries` s
+WHERE s.`rolled_up` = TRUE
+GROUP BY s.`beehive_id`, CAST(DATE_FORMAT(s.`created_at`, '%Y-%m-01') AS DATE);
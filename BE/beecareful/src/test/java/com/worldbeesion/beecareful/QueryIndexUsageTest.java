@@ -0,0 +1,216 @@
+package com.worldbeesion.beecareful;
+
+import com.worldbeesion.beecareful.beehive.model.entity.Beehive;
+import com.worldbeesion.beecareful.beehive.repository.AnalyzedPhotoCountRepository;
+import com.worldbeesion.beecareful.beehive.repository.AnalyzedPhotoRepository;
+import com.worldbeesion.beecareful.beehive.repository.ApiaryRepository;
+import com.worldbeesion.beecareful.beehive.repository.BeehiveRepository;
+import com.worldbeesion.beecareful.beehive.repository.DiagnosisRepository;
+import com.worldbeesion.beecareful.beehive.repository.DiagnosisSummaryRepository;
+import com.worldbeesion.beecareful.beehive.repository.OriginalPhotoRepository;
+import com.worldbeesion.beecareful.beehive.repository.TurretRepository;
+import com.worldbeesion.beecareful.member.model.Member;
+import com.worldbeesion.beecareful.member.repository.AuthMembersRepository;
+import com.worldbeesion.beecareful.member.repository.MemberDeviceRepository;
+import com.worldbeesion.beecareful.s3.model.entity.S3FileMetadata;
+import com.worldbeesion.beecareful.s3.repository.S3FileMetadataRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Calls the hot repository methods, captures the SQL Hibernate generates for them and runs EXPLAIN on it
+ * against the migrated schema. Fails when one of them no longer uses its index.
+ */
+@SpringBootTest
+@Transactional
+class QueryIndexUsageTest {
+
+    // Reported instead of a key when a unique index lookup finds nothing in an empty table
+    private static final String CONST_TABLE_MISS = "no matching row in const table";
+
+    private static final LocalDateTime START_DATE = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private CapturedStatements capturedStatements;
+
+    @Autowired
+    private S3FileMetadataRepository s3FileMetadataRepository;
+    @Autowired
+    private OriginalPhotoRepository originalPhotoRepository;
+    @Autowired
+    private AnalyzedPhotoRepository analyzedPhotoRepository;
+    @Autowired
+    private AnalyzedPhotoCountRepository analyzedPhotoCountRepository;
+    @Autowired
+    private DiagnosisRepository diagnosisRepository;
+    @Autowired
+    private DiagnosisSummaryRepository diagnosisSummaryRepository;
+    @Autowired
+    private BeehiveRepository beehiveRepository;
+    @Autowired
+    private TurretRepository turretRepository;
+    @Autowired
+    private MemberDeviceRepository memberDeviceRepository;
+    @Autowired
+    private AuthMembersRepository authMembersRepository;
+    @Autowired
+    private ApiaryRepository apiaryRepository;
+
+    /**
+     * A repository call, the values it binds in order, and the index its SQL must use.
+     */
+    record HotQuery(String name, Consumer<QueryIndexUsageTest> call, List<Object> parameters, String expectedIndex) {
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    static Stream<HotQuery> hotQueries() {
+        return Stream.of(
+            new HotQuery("S3FileMetadataRepository.findByS3Key",
+                t -> t.s3FileMetadataRepository.findByS3Key("k"),
+                List.of("k"), "uk_s3_file_metadatas_s3_key"),
+            new HotQuery("OriginalPhotoRepository.findStatusesByDiagnosisIds",
+                t -> t.originalPhotoRepository.findStatusesByDiagnosisIds(List.of(1L, 2L)),
+                List.of(1L, 2L), "idx_original_photos_diagnosis_status"),
+            new HotQuery("OriginalPhotoRepository.findByS3FileMetadata",
+                t -> t.originalPhotoRepository.findByS3FileMetadata(t.reference(S3FileMetadata.class, 1L)),
+                List.of(1L), "uk_original_photos_s3_file_metadata"),
+            new HotQuery("AnalyzedPhotoRepository.getTotalCountByDiagnosis",
+                t -> t.analyzedPhotoRepository.getTotalCountByDiagnosis(1L),
+                List.of(1L), "idx_analyzed_photos_diagnosis"),
+            new HotQuery("AnalyzedPhotoCountRepository.getDiagnosisResultByDiagnosisIds",
+                t -> t.analyzedPhotoCountRepository.getDiagnosisResultByDiagnosisIds(List.of(1L, 2L)),
+                List.of(1L, 2L), "idx_analyzed_photo_counts_diagnosis"),
+            new HotQuery("DiagnosisRepository.findRecentDiagnosesByBeehiveId",
+                t -> t.diagnosisRepository.findRecentDiagnosesByBeehiveId(1L, START_DATE),
+                List.of(1L, START_DATE), "idx_diagnoses_beehive_created"),
+            new HotQuery("DiagnosisSummaryRepository.streamHistory",
+                t -> {
+                    try (Stream<?> history = t.diagnosisSummaryRepository.streamHistory(1L, START_DATE)) {
+                        history.count();
+                    }
+                },
+                List.of(1L, START_DATE), "idx_diagnosis_summaries_beehive_created"),
+            new HotQuery("BeehiveRepository.findAllBeehiveDto",
+                t -> t.beehiveRepository.findAllBeehiveDto(1L),
+                List.of(1L), "idx_beehives_apiary_deleted"),
+            new HotQuery("TurretRepository.findBySerial",
+                t -> t.turretRepository.findBySerial("s"),
+                List.of("s"), "uk_turrets_serial"),
+            new HotQuery("TurretRepository.findByBeehive",
+                t -> t.turretRepository.findByBeehive(t.reference(Beehive.class, 1L)),
+                List.of(1L), "uk_turrets_beehive"),
+            new HotQuery("MemberDeviceRepository.findByFcmToken",
+                t -> t.memberDeviceRepository.findByFcmToken("t"),
+                List.of("t"), "uk_member_device_fcm_token"),
+            new HotQuery("AuthMembersRepository.findByLoginId",
+                t -> t.authMembersRepository.findByLoginId("id"),
+                List.of("id"), "uk_auth_members_member_login_id"),
+            new HotQuery("ApiaryRepository.findByMember",
+                t -> t.apiaryRepository.findByMember(t.reference(Member.class, 1L)),
+                List.of(1L), "idx_apiaries_member")
+        );
+    }
+
+    @BeforeEach
+    void setUp() {
+        // nothing pending may be flushed into the captured statements
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("hotQueries")
+    void hotQueryUsesIndex(HotQuery hotQuery) {
+        capturedStatements.clear();
+        hotQuery.call().accept(this);
+
+        List<String> statements = capturedStatements.get();
+        assertThat(statements).as("SQL of %s", hotQuery.name()).hasSize(1);
+        String sql = statements.get(0);
+
+        List<Map<String, Object>> plan = jdbcTemplate.queryForList("EXPLAIN " + sql, hotQuery.parameters().toArray());
+
+        assertThat(plan).isNotEmpty();
+        boolean constTableMiss = false;
+        for (Map<String, Object> row : plan) {
+            String extra = String.valueOf(row.get("Extra"));
+            if (extra.contains(CONST_TABLE_MISS) && hotQuery.expectedIndex().startsWith("uk_")) {
+                constTableMiss = true;
+                continue;
+            }
+            assertThat(row.get("type")).as("access type of %s", sql).isNotEqualTo("ALL");
+        }
+        if (!constTableMiss) {
+            assertThat(plan).extracting(row -> row.get("key")).as("indexes used by %s", sql)
+                .contains(hotQuery.expectedIndex());
+        }
+    }
+
+    private <T> T reference(Class<T> entityClass, Long id) {
+        return entityManager.getReference(entityClass, id);
+    }
+
+    /**
+     * Records every statement Hibernate prepares.
+     */
+    static class CapturedStatements implements StatementInspector {
+
+        private final List<String> statements = new ArrayList<>();
+
+        @Override
+        public synchronized String inspect(String sql) {
+            statements.add(sql);
+            return sql;
+        }
+
+        synchronized List<String> get() {
+            return List.copyOf(statements);
+        }
+
+        synchronized void clear() {
+            statements.clear();
+        }
+    }
+
+    @TestConfiguration
+    static class StatementCaptureConfig {
+
+        @Bean
+        CapturedStatements capturedStatements() {
+            return new CapturedStatements();
+        }
+
+        @Bean
+        HibernatePropertiesCustomizer statementInspectorCustomizer(CapturedStatements capturedStatements) {
+            return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, capturedStatements);
+        }
+    }
+}
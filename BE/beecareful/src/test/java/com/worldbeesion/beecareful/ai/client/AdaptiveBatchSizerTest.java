@@ -0,0 +1,69 @@
+package com.worldbeesion.beecareful.ai.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdaptiveBatchSizerTest {
+
+    private static final Duration TARGET = Duration.ofSeconds(20);
+    private static final Duration FAST = Duration.ofSeconds(1);
+    private static final Duration SLOW = Duration.ofSeconds(30);
+
+    @Test
+    void initialSizeIsClampedToTheBounds() {
+        assertThat(new AdaptiveBatchSizer(2, 8, 32, TARGET).currentSize()).isEqualTo(8);
+        assertThat(new AdaptiveBatchSizer(2, 8, 0, TARGET).currentSize()).isEqualTo(2);
+    }
+
+    @Test
+    void rejectsInvalidBounds() {
+        assertThatThrownBy(() -> new AdaptiveBatchSizer(0, 8, 4, TARGET)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new AdaptiveBatchSizer(9, 8, 4, TARGET)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void growsByOneAfterAFastFullBatchUpToMaxSize() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(1, 6, 4, TARGET);
+
+        sizer.onSuccess(4, FAST);
+        assertThat(sizer.currentSize()).isEqualTo(5);
+
+        sizer.onSuccess(5, FAST);
+        sizer.onSuccess(6, FAST);
+        assertThat(sizer.currentSize()).isEqualTo(6);
+    }
+
+    @Test
+    void doesNotGrowAfterAPartialBatch() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(1, 16, 4, TARGET);
+
+        sizer.onSuccess(2, FAST);
+
+        assertThat(sizer.currentSize()).isEqualTo(4);
+    }
+
+    @Test
+    void halvesAfterASlowBatch() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(1, 16, 8, TARGET);
+
+        sizer.onSuccess(8, SLOW);
+
+        assertThat(sizer.currentSize()).isEqualTo(4);
+    }
+
+    @Test
+    void halvesAfterAFailureDownToMinSize() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(3, 16, 8, TARGET);
+
+        sizer.onFailure();
+        assertThat(sizer.currentSize()).isEqualTo(4);
+
+        sizer.onFailure();
+        sizer.onFailure();
+        assertThat(sizer.currentSize()).isEqualTo(3);
+    }
+}
@@ -0,0 +1,131 @@
+package com.worldbeesion.beecareful.ai.client;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AiCircuitBreakerTest {
+
+    private static final Duration LONG_OPEN = Duration.ofHours(1);
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void staysClosedUntilMinimumCalls() {
+        AiCircuitBreaker breaker = breaker(10, 5, 50, LONG_OPEN, 3);
+
+        repeat(4, breaker::onFailure);
+        assertThat(breaker.getState()).isEqualTo(AiCircuitBreaker.State.CLOSED);
+
+        breaker.onFailure();
+        assertThat(breaker.getState()).isEqualTo(AiCircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void opensAtTheFailureRateThreshold() {
+        AiCircuitBreaker below = breaker(10, 10, 50, LONG_OPEN, 3);
+        repeat(6, below::onSuccess);
+        repeat(4, below::onFailure);
+        assertThat(below.getState()).isEqualTo(AiCircuitBreaker.State.CLOSED);
+
+        AiCircuitBreaker at = breaker(10, 10, 50, LONG_OPEN, 3);
+        repeat(5, at::onSuccess);
+        repeat(5, at::onFailure);
+        assertThat(at.getState()).isEqualTo(AiCircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void onlyTheLastWindowSizeCallsCount() {
+        AiCircuitBreaker breaker = breaker(4, 4, 60, LONG_OPEN, 3);
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onSuccess();
+
+        // 3 of 5 calls failed, but only 2 of the last 4
+        breaker.onFailure();
+        assertThat(breaker.getState()).isEqualTo(AiCircuitBreaker.State.CLOSED);
+
+        breaker.onFailure();
+        breaker.onFailure();
+        assertThat(breaker.getState()).isEqualTo(AiCircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void openBreakerPermitsNoCalls() {
+        AiCircuitBreaker breaker = breaker(2, 1, 50, LONG_OPEN, 3);
+        breaker.onFailure();
+
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+        assertThat(breaker.remainingOpenDuration()).isPositive().isLessThanOrEqualTo(LONG_OPEN);
+    }
+
+    @Test
+    void halfOpenLetsTrialCallsThroughAndClosesWhenAllSucceed() {
+        AiCircuitBreaker breaker = breaker(2, 1, 50, Duration.ZERO, 2);
+        breaker.onFailure();
+
+        assertThat(breaker.getState()).isEqualTo(AiCircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.remainingOpenDuration()).isZero();
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+
+        breaker.onSuccess();
+        assertThat(breaker.getState()).isEqualTo(AiCircuitBreaker.State.HALF_OPEN);
+        breaker.onSuccess();
+        assertThat(breaker.getState()).isEqualTo(AiCircuitBreaker.State.CLOSED);
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+    }
+
+    @Test
+    void failedTrialCallOpensAgain() {
+        AiCircuitBreaker breaker = breaker(2, 1, 50, Duration.ZERO, 2);
+        breaker.onFailure();
+        breaker.tryAcquirePermission();
+
+        breaker.onFailure();
+
+        assertThat(transitionsTo(AiCircuitBreaker.State.OPEN)).isEqualTo(2);
+        assertThat(transitionsTo(AiCircuitBreaker.State.CLOSED)).isZero();
+    }
+
+    @Test
+    void releasedTrialPermitCanBeTakenAgain() {
+        AiCircuitBreaker breaker = breaker(2, 1, 50, Duration.ZERO, 1);
+        breaker.onFailure();
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+
+        breaker.releasePermission();
+
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+    }
+
+    @Test
+    void rejectsInvalidSettings() {
+        assertThatThrownBy(() -> breaker(10, 11, 50, LONG_OPEN, 3)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> breaker(10, 5, 50, LONG_OPEN, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private AiCircuitBreaker breaker(int windowSize, int minimumCalls, double failureRateThreshold,
+        Duration openDuration, int halfOpenCalls) {
+        return new AiCircuitBreaker(windowSize, minimumCalls, failureRateThreshold, openDuration, halfOpenCalls,
+            meterRegistry);
+    }
+
+    private double transitionsTo(AiCircuitBreaker.State state) {
+        return meterRegistry.counter("ai.circuit-breaker.transitions", "state", state.name()).count();
+    }
+
+    private static void repeat(int times, Runnable action) {
+        for (int i = 0; i < times; i++) {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.worldbeesion.beecareful.ai.client;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AiConcurrencyLimiterTest {
+
+    private static final Duration TARGET_LATENCY = Duration.ofSeconds(10);
+    private static final Duration MAX_QUEUE_WAIT = Duration.ofSeconds(60);
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AiCircuitBreaker closedBreaker = breaker(Duration.ofHours(1));
+
+    private final AtomicInteger started = new AtomicInteger();
+    private final List<Sinks.One<String>> calls = new ArrayList<>();
+
+    @Test
+    void callsOverTheLimitWaitForAPermit() {
+        AiConcurrencyLimiter limiter = limiter(2, 2, 10, MAX_QUEUE_WAIT, closedBreaker);
+
+        List<Disposable> subscriptions = List.of(
+            limiter.execute(this::call).subscribe(),
+            limiter.execute(this::call).subscribe(),
+            limiter.execute(this::call).subscribe());
+
+        assertThat(started).hasValue(2);
+        assertThat(limiter.getInFlight()).isEqualTo(2);
+        assertThat(limiter.getQueueSize()).isEqualTo(1);
+
+        calls.get(0).tryEmitValue("done");
+
+        assertThat(started).hasValue(3);
+        assertThat(limiter.getInFlight()).isEqualTo(2);
+        assertThat(limiter.getQueueSize()).isZero();
+        subscriptions.forEach(Disposable::dispose);
+    }
+
+    @Test
+    void rejectsCallsWhenTheQueueIsFull() {
+        AiConcurrencyLimiter limiter = limiter(1, 1, 1, MAX_QUEUE_WAIT, closedBreaker);
+        limiter.execute(this::call).subscribe();
+        limiter.execute(this::call).subscribe();
+
+        assertThatThrownBy(() -> limiter.execute(this::call).block())
+            .isInstanceOf(AiCallRejectedException.class)
+            .hasMessageContaining("full");
+        assertThat(started).hasValue(1);
+    }
+
+    @Test
+    void rejectsCallsThatWaitTooLong() {
+        AiConcurrencyLimiter limiter = limiter(1, 1, 10, Duration.ofMillis(50), closedBreaker);
+        limiter.execute(this::call).subscribe();
+
+        assertThatThrownBy(() -> limiter.execute(this::call).block(Duration.ofSeconds(5)))
+            .isInstanceOf(AiCallRejectedException.class)
+            .hasMessageContaining("waited longer");
+        assertThat(limiter.getQueueSize()).isZero();
+    }
+
+    @Test
+    void limitGrowsWhileFastCallsUseItFully() {
+        AiConcurrencyLimiter limiter = limiter(1, 4, 10, MAX_QUEUE_WAIT, closedBreaker);
+
+        limiter.execute(() -> Mono.just("fast")).block();
+
+        assertThat(limiter.getLimit()).isEqualTo(2);
+    }
+
+    @Test
+    void limitBacksOffOnServerFailures() {
+        AiConcurrencyLimiter limiter = limiter(8, 16, 10, MAX_QUEUE_WAIT, closedBreaker);
+
+        assertThatThrownBy(() -> limiter.execute(() -> Mono.error(new IllegalStateException("boom"))).block())
+            .hasMessage("boom");
+
+        // 8 * 0.9
+        assertThat(limiter.getLimit()).isEqualTo(7);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void openBreakerHoldsCallsInTheQueue() {
+        AiCircuitBreaker breaker = breaker(Duration.ofHours(1));
+        breaker.onFailure();
+        AiConcurrencyLimiter limiter = limiter(4, 4, 10, MAX_QUEUE_WAIT, breaker);
+
+        Disposable subscription = limiter.execute(this::call).subscribe();
+
+        assertThat(started).hasValue(0);
+        assertThat(limiter.getQueueSize()).isEqualTo(1);
+        subscription.dispose();
+        assertThat(limiter.getQueueSize()).isZero();
+    }
+
+    @Test
+    void cancelledCallReturnsItsPermit() {
+        AiConcurrencyLimiter limiter = limiter(1, 1, 10, MAX_QUEUE_WAIT, closedBreaker);
+        Disposable first = limiter.execute(this::call).subscribe();
+        limiter.execute(this::call).subscribe();
+
+        first.dispose();
+
+        assertThat(started).hasValue(2);
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+        assertThat(limiter.getLimit()).isEqualTo(1);
+    }
+
+    private Mono<String> call() {
+        started.incrementAndGet();
+        Sinks.One<String> sink = Sinks.one();
+        calls.add(sink);
+        return sink.asMono();
+    }
+
+    private AiConcurrencyLimiter limiter(int initialLimit, int maxLimit, int queueCapacity, Duration maxQueueWait,
+        AiCircuitBreaker breaker) {
+        return new AiConcurrencyLimiter(1, maxLimit, initialLimit, TARGET_LATENCY, 0.9, queueCapacity, maxQueueWait,
+            breaker, meterRegistry);
+    }
+
+    // opens on the first failure
+    private AiCircuitBreaker breaker(Duration openDuration) {
+        return new AiCircuitBreaker(1, 1, 50, openDuration, 1, meterRegistry);
+    }
+}
@@ -0,0 +1,97 @@
+package com.worldbeesion.beecareful.ai.client;
+
+import com.worldbeesion.beecareful.beehive.model.dto.DiagnosisApiResponse;
+import com.worldbeesion.beecareful.beehive.model.dto.DiagnosisBatchApiResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs the JSON/HTTP client against {@link StubAiDiagnosisServer}.
+ */
+class AiDiagnosisClientTest {
+
+    private StubAiDiagnosisServer server;
+    private AiDiagnosisClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new StubAiDiagnosisServer();
+        client = server.newHttpClient();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void analyzePhotoMapsTheDiagnosis() {
+        DiagnosisApiResponse response = client.analyzePhoto("photos/1.jpg").block();
+
+        assertThat(response).isEqualTo(StubAiDiagnosisServer.jsonResponse("photos/1.jpg"));
+    }
+
+    @Test
+    void notFoundIsNotRetried() {
+        assertThatThrownBy(() -> client.analyzePhoto("missing/1.jpg").block())
+            .isInstanceOf(RuntimeException.class);
+
+        assertThat(server.callsFor("missing/1.jpg")).isEqualTo(1);
+    }
+
+    @Test
+    void unavailableIsRetried() {
+        server.failFirst("photos/1.jpg", 1);
+
+        assertThat(client.analyzePhoto("photos/1.jpg").block())
+            .isEqualTo(StubAiDiagnosisServer.jsonResponse("photos/1.jpg"));
+        assertThat(server.callsFor("photos/1.jpg")).isEqualTo(2);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void analyzePhotosReturnsOneResultPerKeyInRequestOrder(boolean ndjson) {
+        server.useNdjson(ndjson);
+        List<String> s3Keys = List.of("photos/2.jpg", "missing/1.jpg", "partial/3.jpg", "photos/1.jpg");
+
+        List<DiagnosisBatchApiResponse.Result> results = client.analyzePhotos(s3Keys).block();
+
+        assertThat(results).extracting(DiagnosisBatchApiResponse.Result::s3Key).containsExactlyElementsOf(s3Keys);
+        assertThat(results.get(0).toDiagnosisApiResponse())
+            .isEqualTo(StubAiDiagnosisServer.jsonResponse("photos/2.jpg"));
+        assertThat(results.get(1).error()).isEqualTo("failed");
+        assertThat(results.get(1).diagnosis()).isNull();
+        assertThat(results.get(2).diagnosis().imago().dwvCount()).isNull();
+        assertThat(results.get(2).diagnosis().larva().normalCount()).isEqualTo(StubAiDiagnosisServer.LARVA_NORMAL);
+        assertThat(results.get(3).annotatedImageS3Key()).isEqualTo("photos/1.jpg_annotated.jpg");
+    }
+
+    @Test
+    void analyzePhotosRejectsDuplicateKeysWithoutCallingTheServer() {
+        assertThatThrownBy(() -> client.analyzePhotos(List.of("photos/1.jpg", "photos/1.jpg")).block())
+            .isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(server.callsFor("photos/1.jpg")).isZero();
+    }
+
+    @Test
+    void batchResultsMustMatchTheRequestedKeys() {
+        List<String> s3Keys = List.of("photos/1.jpg", "photos/2.jpg");
+        List<DiagnosisBatchApiResponse.Result> reordered = List.of(
+            new DiagnosisBatchApiResponse.Result("photos/2.jpg", null, null, "failed"),
+            new DiagnosisBatchApiResponse.Result("photos/1.jpg", null, null, "failed"));
+
+        assertThatThrownBy(() -> AiDiagnosisClient.validateBatchResults(s3Keys, reordered).block())
+            .hasMessageContaining("out of request order");
+        assertThatThrownBy(() -> AiDiagnosisClient.validateBatchResults(s3Keys, reordered.subList(0, 1)).block())
+            .hasMessageContaining("1 batch results for 2 S3 keys");
+    }
+}
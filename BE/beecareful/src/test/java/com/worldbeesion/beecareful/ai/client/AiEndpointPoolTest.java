@@ -0,0 +1,104 @@
+package com.worldbeesion.beecareful.ai.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AiEndpointPoolTest {
+
+    private static final Duration EJECTION = Duration.ofHours(1);
+
+    private List<URI> discovered = List.of(
+        URI.create("http://ai-1:8000"), URI.create("http://ai-2:8000"), URI.create("http://ai-3:8000"));
+
+    private final AiEndpointPool pool = new AiEndpointPool(() -> discovered, 3, Duration.ofSeconds(60),
+        Duration.ofSeconds(10), Duration.ofMinutes(5), new SimpleMeterRegistry());
+
+    @Test
+    void selectsTheEndpointWithTheFewestOutstandingRequests() {
+        endpoint(0).acquire();
+        endpoint(0).acquire();
+        endpoint(2).acquire();
+
+        assertThat(pool.select(null)).isSameAs(endpoint(1));
+    }
+
+    @Test
+    void breaksTiesAtRandom() {
+        Set<AiEndpoint> selected = new HashSet<>();
+        IntStream.range(0, 1_000).forEach(i -> selected.add(pool.select(null)));
+
+        assertThat(selected).containsExactlyInAnyOrderElementsOf(pool.getEndpoints());
+    }
+
+    @Test
+    void skipsEjectedEndpoints() {
+        eject(endpoint(1), EJECTION);
+        endpoint(0).acquire();
+        endpoint(2).acquire();
+
+        assertThat(pool.select(null)).isNotSameAs(endpoint(1));
+    }
+
+    @Test
+    void avoidsTheGivenEndpointWhileAnotherIsHealthy() {
+        endpoint(1).acquire();
+        endpoint(2).acquire();
+
+        assertThat(pool.select(endpoint(0))).isNotSameAs(endpoint(0));
+    }
+
+    @Test
+    void fallsBackToTheAvoidedEndpointWhenTheOthersAreEjected() {
+        eject(endpoint(1), EJECTION);
+        eject(endpoint(2), EJECTION);
+
+        assertThat(pool.select(endpoint(0))).isSameAs(endpoint(0));
+    }
+
+    @Test
+    void usesTheEndpointThatComesBackFirstWhenAllAreEjected() {
+        eject(endpoint(0), EJECTION);
+        eject(endpoint(1), EJECTION.dividedBy(2));
+        eject(endpoint(2), EJECTION);
+
+        assertThat(pool.select(null)).isSameAs(endpoint(1));
+    }
+
+    @Test
+    void refreshKeepsKnownEndpoints() {
+        AiEndpoint second = endpoint(1);
+        discovered = List.of(URI.create("http://ai-2:8000"), URI.create("http://ai-4:8000"));
+
+        pool.refresh();
+
+        assertThat(pool.getEndpoints()).extracting(AiEndpoint::getBaseUrl)
+            .containsExactly(URI.create("http://ai-2:8000"), URI.create("http://ai-4:8000"));
+        assertThat(endpoint(0)).isSameAs(second);
+    }
+
+    @Test
+    void failsWithoutEndpoints() {
+        AiEndpointPool empty = new AiEndpointPool(List::of, 3, Duration.ofSeconds(60),
+            Duration.ofSeconds(10), Duration.ofMinutes(5), new SimpleMeterRegistry());
+
+        assertThatThrownBy(() -> empty.select(null)).isInstanceOf(IllegalStateException.class);
+    }
+
+    private AiEndpoint endpoint(int index) {
+        return pool.getEndpoints().get(index);
+    }
+
+    private static void eject(AiEndpoint endpoint, Duration duration) {
+        endpoint.eject(duration, duration, System.nanoTime());
+    }
+}
@@ -0,0 +1,58 @@
+package com.worldbeesion.beecareful.ai.client;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AiLatencyTrackerTest {
+
+    @Test
+    void isEmptyUntilMinSamplesAreRecorded() {
+        AiLatencyTracker tracker = new AiLatencyTracker(10);
+        assertThat(tracker.percentile(0.9, 0)).isEmpty();
+
+        record(tracker, 1, 2);
+        assertThat(tracker.percentile(0.9, 3)).isEmpty();
+
+        record(tracker, 3);
+        assertThat(tracker.percentile(0.9, 3)).contains(Duration.ofMillis(3));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        "0.0, 1",
+        "0.5, 50",
+        "0.95, 95",
+        "0.999, 100",
+        "1.0, 100"
+    })
+    void returnsTheNearestRankPercentile(double percentile, long expectedMillis) {
+        AiLatencyTracker tracker = new AiLatencyTracker(100);
+        // recorded out of order
+        for (int i = 100; i >= 1; i--) {
+            record(tracker, i);
+        }
+
+        assertThat(tracker.percentile(percentile, 1)).contains(Duration.ofMillis(expectedMillis));
+    }
+
+    @Test
+    void keepsOnlyTheLastWindowSizeSamples() {
+        AiLatencyTracker tracker = new AiLatencyTracker(4);
+        record(tracker, 1, 2, 3, 4, 100, 100);
+
+        // [3, 4, 100, 100]
+        assertThat(tracker.percentile(0.5, 1)).contains(Duration.ofMillis(4));
+        assertThat(tracker.percentile(0.25, 1)).contains(Duration.ofMillis(3));
+    }
+
+    private static void record(AiLatencyTracker tracker, long... millis) {
+        for (long latency : millis) {
+            tracker.record(Duration.ofMillis(latency));
+        }
+    }
+}
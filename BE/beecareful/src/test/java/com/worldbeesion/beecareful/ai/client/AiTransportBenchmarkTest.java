@@ -0,0 +1,88 @@
+package com.worldbeesion.beecareful.ai.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.worldbeesion.beecareful.ai.grpc.DiagnoseRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the JSON/HTTP and protobuf/gRPC transports against {@link StubAiDiagnosisServer}: payload size,
+ * throughput and latency percentiles of single and batch calls. The stub answers instantly, so the numbers
+ * isolate the cost of the transport itself.
+ * <p>
+ * Opt-in, run with AI_BENCHMARK=true.
+ */
+@EnabledIfEnvironmentVariable(named = "AI_BENCHMARK", matches = "true")
+class AiTransportBenchmarkTest {
+
+    private static final int WARMUP_CALLS = 1_000;
+    private static final int CALLS = 5_000;
+    private static final int CONCURRENCY = 64;
+    private static final int BATCH_SIZE = 16;
+
+    @Test
+    void compareTransports() throws Exception {
+        String s3Key = "diagnoses/1/original/photo.jpg";
+        ObjectMapper objectMapper = new ObjectMapper();
+        byte[] json = objectMapper.writeValueAsBytes(StubAiDiagnosisServer.jsonResponse(s3Key));
+        byte[] jsonRequest = objectMapper.writeValueAsBytes(Map.of("s3Key", s3Key));
+        System.out.printf("response payload: json=%dB protobuf=%dB%n",
+            json.length, StubAiDiagnosisServer.grpcResponse(s3Key).getSerializedSize());
+        System.out.printf("request payload: json=%dB protobuf=%dB%n",
+            jsonRequest.length, DiagnoseRequest.newBuilder().setS3Key(s3Key).build().getSerializedSize());
+
+        try (StubAiDiagnosisServer server = new StubAiDiagnosisServer()) {
+            AiDiagnosisClient httpClient = server.newHttpClient();
+            GrpcAiDiagnosisClient grpcClient = server.newGrpcClient();
+            try {
+                run("http single", CALLS, key -> httpClient.analyzePhoto(key).then());
+                run("grpc single", CALLS, key -> grpcClient.analyzePhoto(key).then());
+                run("http batch", CALLS / BATCH_SIZE, key -> httpClient.analyzePhotos(batchOf(key)).then());
+                run("grpc batch", CALLS / BATCH_SIZE, key -> grpcClient.analyzePhotos(batchOf(key)).then());
+            } finally {
+                grpcClient.shutdown();
+            }
+        }
+    }
+
+    private static void run(String name, int calls, Function<String, Mono<Void>> call) {
+        measure(WARMUP_CALLS, call);
+        long startedAt = System.nanoTime();
+        long[] latencies = measure(calls, call);
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+
+        assertThat(latencies).hasSize(calls);
+        Arrays.sort(latencies);
+        System.out.printf("%-12s %8.0f calls/s  p50=%.2fms  p99=%.2fms%n", name, calls / seconds,
+            latencies[(int)(calls * 0.50)] / 1e6, latencies[(int)(calls * 0.99)] / 1e6);
+    }
+
+    private static long[] measure(int calls, Function<String, Mono<Void>> call) {
+        List<Long> latencies = Flux.range(0, calls)
+            .flatMap(i -> Mono.defer(() -> {
+                long startedAt = System.nanoTime();
+                return call.apply("photos/" + i + ".jpg")
+                    .then(Mono.fromCallable(() -> System.nanoTime() - startedAt));
+            }), CONCURRENCY)
+            .collectList()
+            .block();
+        return latencies.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static List<String> batchOf(String s3Key) {
+        List<String> s3Keys = new ArrayList<>(BATCH_SIZE);
+        IntStream.range(0, BATCH_SIZE).forEach(i -> s3Keys.add(s3Key + "-" + i));
+        return s3Keys;
+    }
+}
@@ -0,0 +1,100 @@
+package com.worldbeesion.beecareful.ai.client;
+
+import com.worldbeesion.beecareful.beehive.model.dto.DiagnosisApiResponse;
+import com.worldbeesion.beecareful.beehive.model.dto.DiagnosisBatchApiResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs the gRPC client against {@link StubAiDiagnosisServer} and checks it reports the same results
+ * the HTTP client does.
+ */
+class GrpcAiDiagnosisClientTest {
+
+    private StubAiDiagnosisServer server;
+    private GrpcAiDiagnosisClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new StubAiDiagnosisServer();
+        client = server.newGrpcClient();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        client.shutdown();
+        server.close();
+    }
+
+    @Test
+    void analyzePhotoMapsTheDiagnosis() {
+        DiagnosisApiResponse response = client.analyzePhoto("photos/1.jpg").block();
+
+        assertThat(response).isEqualTo(StubAiDiagnosisServer.jsonResponse("photos/1.jpg"));
+        assertThat(response.annotatedImageS3Key()).isEqualTo("photos/1.jpg_annotated.jpg");
+    }
+
+    @Test
+    void analyzePhotoMatchesTheHttpClient() {
+        AiDiagnosisClient httpClient = server.newHttpClient();
+
+        assertThat(client.analyzePhoto("photos/1.jpg").block())
+            .isEqualTo(httpClient.analyzePhoto("photos/1.jpg").block());
+    }
+
+    @Test
+    void missingCountStaysNull() {
+        DiagnosisApiResponse response = client.analyzePhoto("partial/1.jpg").block();
+
+        assertThat(response.diagnosis().imago().dwvCount()).isNull();
+        assertThat(response.diagnosis().imago().normalCount()).isEqualTo(StubAiDiagnosisServer.IMAGO_NORMAL);
+    }
+
+    @Test
+    void notFoundIsNotRetried() {
+        assertThatThrownBy(() -> client.analyzePhoto("missing/1.jpg").block())
+            .isInstanceOf(RuntimeException.class);
+
+        assertThat(server.callsFor("missing/1.jpg")).isEqualTo(1);
+    }
+
+    @Test
+    void unavailableIsRetried() {
+        server.failFirst("photos/1.jpg", 1);
+
+        DiagnosisApiResponse response = client.analyzePhoto("photos/1.jpg").block();
+
+        assertThat(response).isEqualTo(StubAiDiagnosisServer.jsonResponse("photos/1.jpg"));
+        assertThat(server.callsFor("photos/1.jpg")).isEqualTo(2);
+    }
+
+    @Test
+    void analyzePhotosStreamsOneResultPerKey() {
+        List<String> s3Keys = List.of("photos/1.jpg", "missing/2.jpg", "partial/3.jpg");
+
+        List<DiagnosisBatchApiResponse.Result> results = client.analyzePhotos(s3Keys).block();
+
+        assertThat(results).extracting(DiagnosisBatchApiResponse.Result::s3Key).containsExactlyElementsOf(s3Keys);
+        assertThat(results.get(0).error()).isNull();
+        assertThat(results.get(0).diagnosis())
+            .isEqualTo(StubAiDiagnosisServer.jsonResponse("photos/1.jpg").diagnosis());
+        assertThat(results.get(1).error()).isEqualTo("failed");
+        assertThat(results.get(1).diagnosis()).isNull();
+        assertThat(results.get(1).annotatedImageS3Key()).isNull();
+        assertThat(results.get(2).diagnosis().imago().dwvCount()).isNull();
+    }
+
+    @Test
+    void analyzePhotosMatchesTheHttpClient() {
+        AiDiagnosisClient httpClient = server.newHttpClient();
+        List<String> s3Keys = List.of("photos/1.jpg", "missing/2.jpg", "partial/3.jpg");
+
+        assertThat(client.analyzePhotos(s3Keys).block()).isEqualTo(httpClient.analyzePhotos(s3Keys).block());
+    }
+}
@@ -0,0 +1,269 @@
+package com.worldbeesion.beecareful.ai.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.worldbeesion.beecareful.ai.config.AiWebClientConfig;
+import com.worldbeesion.beecareful.ai.grpc.AiDiagnosisGrpc;
+import com.worldbeesion.beecareful.ai.grpc.DiagnoseRequest;
+import com.worldbeesion.beecareful.ai.grpc.DiagnoseResponse;
+import com.worldbeesion.beecareful.ai.grpc.Diagnosis;
+import com.worldbeesion.beecareful.ai.grpc.ImagoCounts;
+import com.worldbeesion.beecareful.ai.grpc.LarvaCounts;
+import com.worldbeesion.beecareful.beehive.model.dto.DiagnosisApiResponse;
+import com.worldbeesion.beecareful.beehive.model.dto.DiagnosisBatchApiResponse;
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for the AI server, answering the same canned diagnosis over JSON/HTTP and over gRPC.
+ * <p>
+ * Keys starting with "missing/" fail as not found, keys starting with "partial/" come back without a DWV count,
+ * and a key registered with {@link #failFirst(String, int)} fails as unavailable that many times.
+ */
+class StubAiDiagnosisServer implements AutoCloseable {
+
+    static final long LARVA_NORMAL = 10;
+    static final long LARVA_VARROA = 1;
+    static final long IMAGO_NORMAL = 20;
+    static final long IMAGO_VARROA = 2;
+    static final long IMAGO_DWV = 3;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> pendingFailures = new ConcurrentHashMap<>();
+    private final Server grpcServer;
+    private final HttpServer httpServer;
+    private final ExecutorService httpExecutor = Executors.newFixedThreadPool(16);
+    private volatile boolean ndjson = true;
+
+    StubAiDiagnosisServer() throws IOException {
+        grpcServer = ServerBuilder.forPort(0).addService(new GrpcService()).build().start();
+        httpServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        httpServer.createContext("/beehives/diagnosis", this::handleHttp);
+        httpServer.setExecutor(httpExecutor);
+        httpServer.start();
+    }
+
+    @Override
+    public void close() {
+        grpcServer.shutdownNow();
+        httpServer.stop(0);
+        httpExecutor.shutdownNow();
+    }
+
+    URI baseUrl() {
+        return URI.create("http://localhost:" + httpServer.getAddress().getPort());
+    }
+
+    int grpcPort() {
+        return grpcServer.getPort();
+    }
+
+    void failFirst(String s3Key, int times) {
+        pendingFailures.put(s3Key, new AtomicInteger(times));
+    }
+
+    /**
+     * Whether an HTTP batch request accepting NDJSON is answered with NDJSON (the default) or one JSON document.
+     */
+    void useNdjson(boolean ndjson) {
+        this.ndjson = ndjson;
+    }
+
+    int callsFor(String s3Key) {
+        return calls.getOrDefault(s3Key, new AtomicInteger()).get();
+    }
+
+    AiDiagnosisClient newHttpClient() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AiWebClientConfig config = new AiWebClientConfig();
+        ConnectionProvider connectionProvider = config.aiConnectionProvider(64, 128, Duration.ofSeconds(5),
+            Duration.ofSeconds(60), Duration.ofMinutes(10), Duration.ofSeconds(30));
+        WebClient webClient = config.aiWebClient(WebClient.builder(), connectionProvider,
+            new HttpProtocol[] {HttpProtocol.HTTP11}, Duration.ofSeconds(3), Duration.ofSeconds(60),
+            Duration.ofSeconds(10), DataSize.ofKilobytes(256));
+        return new AiDiagnosisClient("/beehives/diagnosis", "/beehives/diagnosis/batch", Duration.ofSeconds(20),
+            newBatchSizer(), webClient, newHedger(meterRegistry), newRetryPolicy(meterRegistry));
+    }
+
+    GrpcAiDiagnosisClient newGrpcClient() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        return new GrpcAiDiagnosisClient(grpcPort(), Duration.ofSeconds(60), Duration.ofSeconds(30),
+            DataSize.ofKilobytes(256), Duration.ofSeconds(20),
+            newBatchSizer(), newHedger(meterRegistry), newRetryPolicy(meterRegistry));
+    }
+
+    private AdaptiveBatchSizer newBatchSizer() {
+        return new AdaptiveBatchSizer(1, 16, 16, Duration.ofSeconds(20));
+    }
+
+    private AiRequestHedger newHedger(MeterRegistry meterRegistry) {
+        AiCircuitBreaker circuitBreaker = new AiCircuitBreaker(20, 10, 50, Duration.ofSeconds(30), 3, meterRegistry);
+        AiConcurrencyLimiter limiter = new AiConcurrencyLimiter(1, 64, 64, Duration.ofSeconds(10), 0.9, 10_000,
+            Duration.ofSeconds(60), circuitBreaker, meterRegistry);
+        AiEndpointPool pool = new AiEndpointPool(() -> List.of(baseUrl()), 3, Duration.ofSeconds(60),
+            Duration.ofSeconds(10), Duration.ofMinutes(5), meterRegistry);
+        return new AiRequestHedger(false, 0.95, 50, 500, Duration.ofSeconds(1), limiter, pool, meterRegistry);
+    }
+
+    private AiRetryPolicy newRetryPolicy(MeterRegistry meterRegistry) {
+        return new AiRetryPolicy(2, Duration.ofMillis(10), Duration.ofMillis(50), 0.5, meterRegistry);
+    }
+
+    private Outcome diagnose(String s3Key) {
+        calls.computeIfAbsent(s3Key, key -> new AtomicInteger()).incrementAndGet();
+        AtomicInteger failures = pendingFailures.get(s3Key);
+        if (failures != null && failures.getAndDecrement() > 0) {
+            return Outcome.UNAVAILABLE;
+        }
+        return s3Key.startsWith("missing/") ? Outcome.NOT_FOUND : Outcome.OK;
+    }
+
+    static DiagnosisApiResponse jsonResponse(String s3Key) {
+        return new DiagnosisApiResponse(
+            new DiagnosisApiResponse.DiagnosisResult(
+                new DiagnosisApiResponse.LarvaResult(LARVA_NORMAL, LARVA_VARROA, 0L, 0L),
+                new DiagnosisApiResponse.ImagoResult(IMAGO_NORMAL, IMAGO_VARROA,
+                    s3Key.startsWith("partial/") ? null : IMAGO_DWV)
+            ),
+            s3Key + "_annotated.jpg"
+        );
+    }
+
+    static DiagnoseResponse grpcResponse(String s3Key) {
+        ImagoCounts.Builder imago = ImagoCounts.newBuilder().setNormalCount(IMAGO_NORMAL).setVarroaCount(IMAGO_VARROA);
+        if (!s3Key.startsWith("partial/")) {
+            imago.setDwvCount(IMAGO_DWV);
+        }
+        return DiagnoseResponse.newBuilder()
+            .setS3Key(s3Key)
+            .setDiagnosis(Diagnosis.newBuilder()
+                .setLarva(LarvaCounts.newBuilder()
+                    .setNormalCount(LARVA_NORMAL)
+                    .setVarroaCount(LARVA_VARROA)
+                    .setFoulBroodCount(0)
+                    .setChalkBroodCount(0))
+                .setImago(imago))
+            .setAnnotatedImageS3Key(s3Key + "_annotated.jpg")
+            .build();
+    }
+
+    private void handleHttp(HttpExchange exchange) throws IOException {
+        try {
+            Map<?, ?> body = objectMapper.readValue(exchange.getRequestBody(), Map.class);
+            if (exchange.getRequestURI().getPath().endsWith("/batch")) {
+                handleHttpBatch(exchange, (List<?>)body.get("s3Keys"));
+                return;
+            }
+            String s3Key = (String)body.get("s3Key");
+            switch (diagnose(s3Key)) {
+                case OK -> send(exchange, 200, "application/json", objectMapper.writeValueAsBytes(jsonResponse(s3Key)));
+                case NOT_FOUND -> send(exchange, 404, "application/json", detail("not found"));
+                case UNAVAILABLE -> send(exchange, 503, "application/json", detail("unavailable"));
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleHttpBatch(HttpExchange exchange, List<?> s3Keys) throws IOException {
+        List<DiagnosisBatchApiResponse.Result> results = new ArrayList<>();
+        for (Object key : s3Keys) {
+            String s3Key = (String)key;
+            if (diagnose(s3Key) == Outcome.OK) {
+                DiagnosisApiResponse response = jsonResponse(s3Key);
+                results.add(new DiagnosisBatchApiResponse.Result(
+                    s3Key, response.diagnosis(), response.annotatedImageS3Key(), null));
+            } else {
+                results.add(new DiagnosisBatchApiResponse.Result(s3Key, null, null, "failed"));
+            }
+        }
+
+        String accept = exchange.getRequestHeaders().getFirst("Accept");
+        if (ndjson && accept != null && accept.contains("application/x-ndjson")) {
+            StringBuilder lines = new StringBuilder();
+            for (DiagnosisBatchApiResponse.Result result : results) {
+                lines.append(objectMapper.writeValueAsString(result)).append('\n');
+            }
+            send(exchange, 200, "application/x-ndjson", lines.toString().getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        send(exchange, 200, "application/json", objectMapper.writeValueAsBytes(new DiagnosisBatchApiResponse(results)));
+    }
+
+    private static byte[] detail(String message) {
+        return ("{\"detail\":\"" + message + "\"}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private enum Outcome {
+        OK, NOT_FOUND, UNAVAILABLE
+    }
+
+    private class GrpcService extends AiDiagnosisGrpc.AiDiagnosisImplBase {
+
+        @Override
+        public void diagnose(DiagnoseRequest request, StreamObserver<DiagnoseResponse> responseObserver) {
+            switch (StubAiDiagnosisServer.this.diagnose(request.getS3Key())) {
+                case OK -> {
+                    responseObserver.onNext(grpcResponse(request.getS3Key()));
+                    responseObserver.onCompleted();
+                }
+                case NOT_FOUND -> responseObserver.onError(Status.NOT_FOUND.asRuntimeException());
+                case UNAVAILABLE -> responseObserver.onError(Status.UNAVAILABLE.asRuntimeException());
+            }
+        }
+
+        @Override
+        public StreamObserver<DiagnoseRequest> diagnoseStream(StreamObserver<DiagnoseResponse> responseObserver) {
+            return new StreamObserver<>() {
+                @Override
+                public void onNext(DiagnoseRequest request) {
+                    String s3Key = request.getS3Key();
+                    responseObserver.onNext(StubAiDiagnosisServer.this.diagnose(s3Key) == Outcome.OK
+                        ? grpcResponse(s3Key)
+                        : DiagnoseResponse.newBuilder().setS3Key(s3Key).setError("failed").build());
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                }
+
+                @Override
+                public void onCompleted() {
+                    responseObserver.onCompleted();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.worldbeesion.beecareful.beehive.constant;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RollupGranularityTest {
+
+    // a Wednesday
+    private static final LocalDate DATE = LocalDate.of(2025, 3, 12);
+
+    @Test
+    void dayBucketIsTheDateItself() {
+        assertThat(RollupGranularity.DAY.bucketStart(DATE)).isEqualTo(DATE);
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        "2025-03-10, 2025-03-10",
+        "2025-03-12, 2025-03-10",
+        "2025-03-16, 2025-03-10",
+        // the week crosses the month and year boundary
+        "2025-01-01, 2024-12-30"
+    })
+    void weekBucketStartsOnMonday(LocalDate date, LocalDate monday) {
+        assertThat(RollupGranularity.WEEK.bucketStart(date)).isEqualTo(monday);
+    }
+
+    @Test
+    void monthBucketStartsOnTheFirst() {
+        assertThat(RollupGranularity.MONTH.bucketStart(DATE)).isEqualTo(LocalDate.of(2025, 3, 1));
+        assertThat(RollupGranularity.MONTH.bucketStart(LocalDate.of(2024, 2, 29))).isEqualTo(LocalDate.of(2024, 2, 1));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        "0, DAY",
+        "1, DAY",
+        "2, WEEK",
+        "6, WEEK",
+        "7, MONTH",
+        "24, MONTH"
+    })
+    void forSpanPicksTheCoarsestUsefulGranularity(int months, RollupGranularity granularity) {
+        assertThat(RollupGranularity.forSpan(months)).isEqualTo(granularity);
+    }
+}
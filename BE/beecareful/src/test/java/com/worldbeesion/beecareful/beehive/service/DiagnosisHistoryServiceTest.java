@@ -0,0 +1,77 @@
+package com.worldbeesion.beecareful.beehive.service;
+
+import com.worldbeesion.beecareful.beehive.model.dto.BeehiveDiagnosisInfoDto;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+class DiagnosisHistoryServiceTest {
+
+    private static final long BEEHIVE_ID = 990_000_001L;
+    private static final long FIRST_DIAGNOSIS_ID = 990_000_000_001L;
+
+    @Autowired
+    private DiagnosisHistoryService diagnosisHistoryService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void historyIsReadWithOneQueryRegardlessOfDiagnosisCount() {
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 30; i++) {
+            insertSummary(FIRST_DIAGNOSIS_ID + i, now.minusDays(30 - i), 4, 100, 10);
+        }
+        // Not analyzed yet and outside the window: both must be skipped
+        insertSummary(FIRST_DIAGNOSIS_ID + 30, now.minusDays(1), 0, 0, 0);
+        insertSummary(FIRST_DIAGNOSIS_ID + 31, now.minusMonths(13), 4, 100, 10);
+
+        statistics.clear();
+        List<BeehiveDiagnosisInfoDto> history = diagnosisHistoryService.getHistory(BEEHIVE_ID, now.minusMonths(12));
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(history).hasSize(30);
+        assertThat(history).extracting(BeehiveDiagnosisInfoDto::diagnosisId).isSorted();
+        assertThat(history.get(0).larvaCount()).isEqualTo(100L);
+        assertThat(history.get(0).diagnosisResultDto().larva().varroaRatio()).isEqualTo(10.0);
+    }
+
+    @Test
+    void emptyHistoryIsStillOneQuery() {
+        statistics.clear();
+        List<BeehiveDiagnosisInfoDto> history = diagnosisHistoryService.getHistory(BEEHIVE_ID, LocalDateTime.now().minusMonths(12));
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(history).isEmpty();
+    }
+
+    private void insertSummary(long diagnosisId, LocalDateTime createdAt, long photoCount, long larvaCount, long larvaVarroaCount) {
+        jdbcTemplate.update("""
+            INSERT INTO diagnosis_summaries (diagnosis_id, beehive_id, created_at, photo_count, larva_count, larva_varroa_count)
+            VALUES (?, ?, ?, ?, ?, ?)
+            """, diagnosisId, BEEHIVE_ID, createdAt, photoCount, larvaCount, larvaVarroaCount);
+    }
+}
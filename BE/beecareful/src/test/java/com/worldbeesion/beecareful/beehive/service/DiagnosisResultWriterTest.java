@@ -0,0 +1,179 @@
+package com.worldbeesion.beecareful.beehive.service;
+
+import com.worldbeesion.beecareful.beehive.constant.DiagnosisStatus;
+import com.worldbeesion.beecareful.beehive.model.dto.AnalyzedPhotoResult;
+import com.worldbeesion.beecareful.beehive.repository.AnalysisResultBulkRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DiagnosisResultWriterTest {
+
+    private static final long DIAGNOSIS_ID = 10L;
+    private static final long BAD_PHOTO_ID = 2L;
+    private static final Duration MAX_DELAY = Duration.ofMillis(200);
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private final RecordingBulkRepository repository = new RecordingBulkRepository();
+    private final DiagnosisResultWriter writer = new DiagnosisResultWriter(
+        repository, new RecordingTransactionManager(repository), 3, MAX_DELAY, 100, new SimpleMeterRegistry());
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        writer.stop();
+    }
+
+    @Test
+    void writesQueuedResultsInOneTransaction() throws Exception {
+        CompletableFuture<Void> first = writer.write(result(1L));
+        CompletableFuture<Void> second = writer.write(result(3L));
+        CompletableFuture<Void> failed = writer.markFailed(4L);
+        writer.start();
+        CompletableFuture.allOf(first, second, failed).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        assertThat(repository.commits).isEqualTo(1);
+        assertThat(repository.committedResults).containsExactlyInAnyOrder(1L, 3L);
+        assertThat(repository.committedStatuses)
+            .containsEntry(1L, DiagnosisStatus.SUCCESS)
+            .containsEntry(3L, DiagnosisStatus.SUCCESS)
+            .containsEntry(4L, DiagnosisStatus.FAIL);
+    }
+
+    @Test
+    void futureCompletesOnlyOnceItsBatchIsCommitted() throws Exception {
+        writer.start();
+
+        DiagnosisStatus statusOnCompletion = writer.write(result(1L))
+            .thenApply(ignored -> repository.committedStatuses.get(1L))
+            .get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        assertThat(statusOnCompletion).isEqualTo(DiagnosisStatus.SUCCESS);
+    }
+
+    @Test
+    void failedRowDoesNotFailTheOtherRowsOfItsBatch() throws Exception {
+        // queued before the writer starts, so all three end up in one batch
+        CompletableFuture<Void> before = writer.write(result(1L));
+        CompletableFuture<Void> bad = writer.write(result(BAD_PHOTO_ID));
+        CompletableFuture<Void> after = writer.write(result(3L));
+        writer.start();
+
+        before.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        after.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertThatThrownBy(() -> bad.get(TIMEOUT_SECONDS, TimeUnit.SECONDS))
+            .isInstanceOf(ExecutionException.class)
+            .hasCauseInstanceOf(DataIntegrityViolationException.class);
+
+        // the whole batch was rolled back once, then every row was written on its own
+        assertThat(repository.rollbacks).isEqualTo(2);
+        assertThat(repository.commits).isEqualTo(2);
+        assertThat(repository.committedResults).containsExactlyInAnyOrder(1L, 3L);
+        assertThat(repository.committedStatuses)
+            .containsEntry(1L, DiagnosisStatus.SUCCESS)
+            .containsEntry(3L, DiagnosisStatus.SUCCESS)
+            .doesNotContainKey(BAD_PHOTO_ID);
+    }
+
+    @Test
+    void stopDrainsWhatIsStillQueued() throws Exception {
+        CompletableFuture<Void> queued = writer.write(result(1L));
+        writer.start();
+        writer.stop();
+
+        assertThat(queued).isCompleted();
+        assertThat(repository.committedResults).containsExactly(1L);
+    }
+
+    private static AnalyzedPhotoResult result(long originalPhotoId) {
+        return new AnalyzedPhotoResult(originalPhotoId, DIAGNOSIS_ID, "analyzed/" + originalPhotoId + ".jpg",
+            1, 0, 0, 2, 1, 0, 3);
+    }
+
+    /**
+     * Keeps the writes of the open transaction apart from the committed ones and fails any batch
+     * containing BAD_PHOTO_ID, like a constraint violation would.
+     */
+    static class RecordingBulkRepository extends AnalysisResultBulkRepository {
+
+        private final List<Long> stagedResults = new ArrayList<>();
+        private final Map<Long, DiagnosisStatus> stagedStatuses = new HashMap<>();
+
+        final List<Long> committedResults = new ArrayList<>();
+        final Map<Long, DiagnosisStatus> committedStatuses = new HashMap<>();
+        int commits;
+        int rollbacks;
+
+        RecordingBulkRepository() {
+            super(null, null);
+        }
+
+        @Override
+        public synchronized void insertAll(List<AnalyzedPhotoResult> results) {
+            for (AnalyzedPhotoResult result : results) {
+                stagedResults.add(result.originalPhotoId());
+            }
+            if (stagedResults.contains(BAD_PHOTO_ID)) {
+                throw new DataIntegrityViolationException("Duplicate entry for original photo " + BAD_PHOTO_ID);
+            }
+        }
+
+        @Override
+        public synchronized int updateOriginalPhotoStatuses(Collection<Long> originalPhotoIds, DiagnosisStatus status) {
+            originalPhotoIds.forEach(id -> stagedStatuses.put(id, status));
+            return originalPhotoIds.size();
+        }
+
+        synchronized void commit() {
+            committedResults.addAll(stagedResults);
+            committedStatuses.putAll(stagedStatuses);
+            commits++;
+            discardStaged();
+        }
+
+        synchronized void rollback() {
+            rollbacks++;
+            discardStaged();
+        }
+
+        private void discardStaged() {
+            stagedResults.clear();
+            stagedStatuses.clear();
+        }
+    }
+
+    record RecordingTransactionManager(RecordingBulkRepository repository) implements PlatformTransactionManager {
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+            repository.commit();
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+            repository.rollback();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.worldbeesion.beecareful.common.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LttbDownsamplerTest {
+
+    private static final int LENGTH = 100;
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 2, LENGTH, LENGTH + 1})
+    void keepsEveryPointOutsideTheUsefulThresholds(int threshold) {
+        int[] kept = LttbDownsampler.downsample(xs(LENGTH), new double[LENGTH], threshold);
+
+        assertThat(kept).containsExactly(IntStream.range(0, LENGTH).toArray());
+    }
+
+    @Test
+    void rejectsSeriesOfDifferentLength() {
+        assertThatThrownBy(() -> LttbDownsampler.downsample(xs(3), new double[2], 2))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void keepsThresholdAscendingPointsWithBothEnds() {
+        double[] y = IntStream.range(0, LENGTH).mapToDouble(i -> Math.sin(i / 5.0)).toArray();
+
+        int[] kept = LttbDownsampler.downsample(xs(LENGTH), y, 10);
+
+        assertThat(kept).hasSize(10).startsWith(0).endsWith(LENGTH - 1);
+        assertThat(kept).isSorted().doesNotHaveDuplicates();
+    }
+
+    @Test
+    void keepsPeaksAndDips() {
+        double[] y = new double[LENGTH];
+        y[37] = 50;
+        y[71] = -50;
+
+        int[] kept = LttbDownsampler.downsample(xs(LENGTH), y, 10);
+
+        assertThat(kept).contains(37, 71);
+    }
+
+    @Test
+    void keepsOnePointPerBucket() {
+        double[] y = IntStream.range(0, LENGTH).mapToDouble(i -> i % 7).toArray();
+        int threshold = 12;
+        double bucketSize = (double)(LENGTH - 2) / (threshold - 2);
+
+        int[] kept = LttbDownsampler.downsample(xs(LENGTH), y, threshold);
+
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            assertThat(kept[bucket + 1])
+                .isGreaterThanOrEqualTo((int)Math.floor(bucket * bucketSize) + 1)
+                .isLessThan((int)Math.floor((bucket + 1) * bucketSize) + 1);
+        }
+    }
+
+    private static long[] xs(int length) {
+        return LongStream.range(0, length).map(i -> 1_000 * i).toArray();
+    }
+}
@@ -0,0 +1,67 @@
+package com.worldbeesion.beecareful.s3.service;
+
+import com.worldbeesion.beecareful.s3.service.OriginPhotoUploadCounter.Publication;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the counter scripts against the configured Redis.
+ */
+@SpringBootTest
+class OriginPhotoUploadCounterTest {
+
+    private static final long DIAGNOSIS_ID = 990_000_000_101L;
+
+    @Autowired
+    private OriginPhotoUploadCounter originPhotoUploadCounter;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @AfterEach
+    void tearDown() {
+        stringRedisTemplate.delete(List.of(
+            "diagnosis:upload:remaining:" + DIAGNOSIS_ID,
+            "diagnosis:upload:started:" + DIAGNOSIS_ID));
+    }
+
+    @Test
+    void countsEveryPhotoOnce() {
+        originPhotoUploadCounter.initialize(DIAGNOSIS_ID, List.of("a.jpg", "b.jpg", "c.jpg"));
+
+        assertThat(originPhotoUploadCounter.decrement(DIAGNOSIS_ID, List.of("a.jpg"))).isEqualTo(2L);
+        // a redelivered event for the same photo
+        assertThat(originPhotoUploadCounter.decrement(DIAGNOSIS_ID, List.of("a.jpg"))).isEqualTo(2L);
+        assertThat(originPhotoUploadCounter.decrement(DIAGNOSIS_ID, List.of("a.jpg", "b.jpg"))).isEqualTo(1L);
+        assertThat(originPhotoUploadCounter.decrement(DIAGNOSIS_ID, List.of("c.jpg"))).isZero();
+    }
+
+    @Test
+    void missingCounterIsReportedAsNull() {
+        assertThat(originPhotoUploadCounter.decrement(DIAGNOSIS_ID, List.of("a.jpg"))).isNull();
+
+        // Redis deletes the set with its last member, so the counter is gone once every photo was counted
+        originPhotoUploadCounter.initialize(DIAGNOSIS_ID, List.of("a.jpg"));
+        assertThat(originPhotoUploadCounter.decrement(DIAGNOSIS_ID, List.of("a.jpg"))).isZero();
+        assertThat(originPhotoUploadCounter.decrement(DIAGNOSIS_ID, List.of("a.jpg"))).isNull();
+    }
+
+    @Test
+    void publicationIsClaimedByOneEventUntilReleasedOrConfirmed() {
+        assertThat(originPhotoUploadCounter.claimPublication(DIAGNOSIS_ID)).isEqualTo(Publication.CLAIMED);
+        assertThat(originPhotoUploadCounter.claimPublication(DIAGNOSIS_ID)).isEqualTo(Publication.IN_PROGRESS);
+
+        originPhotoUploadCounter.releasePublication(DIAGNOSIS_ID);
+        assertThat(originPhotoUploadCounter.claimPublication(DIAGNOSIS_ID)).isEqualTo(Publication.CLAIMED);
+
+        originPhotoUploadCounter.confirmPublication(DIAGNOSIS_ID);
+        assertThat(originPhotoUploadCounter.claimPublication(DIAGNOSIS_ID)).isEqualTo(Publication.PUBLISHED);
+    }
+}
@@ -0,0 +1,168 @@
+package com.worldbeesion.beecareful.s3.service;
+
+import com.worldbeesion.beecareful.beehive.service.DiagnosisJobPublisher;
+import com.worldbeesion.beecareful.s3.exception.S3EventProcessingException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Upload counting and the single publication of the diagnosis job, against the configured Redis and MySQL.
+ * Jobs are recorded instead of published.
+ */
+@SpringBootTest
+@Transactional
+class S3OriginPhotoUploadProcessingServiceTest {
+
+    private static final long DIAGNOSIS_ID = 990_000_000_201L;
+    private static final long FIRST_ID = 990_000_000_301L;
+
+    @Autowired
+    private S3OriginPhotoUploadProcessingService processingService;
+
+    @Autowired
+    private OriginPhotoUploadCounter originPhotoUploadCounter;
+
+    @Autowired
+    private RecordingDiagnosisJobPublisher diagnosisJobPublisher;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        diagnosisJobPublisher.reset();
+    }
+
+    @AfterEach
+    void tearDown() {
+        stringRedisTemplate.delete(List.of(
+            "diagnosis:upload:remaining:" + DIAGNOSIS_ID,
+            "diagnosis:upload:started:" + DIAGNOSIS_ID));
+    }
+
+    @Test
+    void lastPhotoPublishesTheJobOnce() {
+        originPhotoUploadCounter.initialize(DIAGNOSIS_ID, List.of("a.jpg", "b.jpg"));
+
+        processingService.checkUploadStatusAndRunDiagnosis(DIAGNOSIS_ID, List.of("a.jpg"));
+        // a redelivered event must not count its photo twice
+        processingService.checkUploadStatusAndRunDiagnosis(DIAGNOSIS_ID, List.of("a.jpg"));
+        assertThat(diagnosisJobPublisher.published).isEmpty();
+
+        processingService.checkUploadStatusAndRunDiagnosis(DIAGNOSIS_ID, List.of("b.jpg"));
+        assertThat(diagnosisJobPublisher.published).containsExactly(DIAGNOSIS_ID);
+
+        // the emptied counter is gone, the redelivery falls back to the photo statuses and finds the job published
+        processingService.checkUploadStatusAndRunDiagnosis(DIAGNOSIS_ID, List.of("b.jpg"));
+        assertThat(diagnosisJobPublisher.published).containsExactly(DIAGNOSIS_ID);
+    }
+
+    @Test
+    void missingCounterFallsBackToThePhotoStatuses() {
+        insertPhoto(FIRST_ID, "STORED");
+        insertPhoto(FIRST_ID + 1, "PENDING");
+
+        processingService.checkUploadStatusAndRunDiagnosis(DIAGNOSIS_ID, List.of(s3Key(FIRST_ID)));
+        assertThat(diagnosisJobPublisher.published).isEmpty();
+
+        jdbcTemplate.update("UPDATE s3_file_metadatas SET status = 'STORED' WHERE s3_file_metadata_id = ?", FIRST_ID + 1);
+        processingService.checkUploadStatusAndRunDiagnosis(DIAGNOSIS_ID, List.of(s3Key(FIRST_ID + 1)));
+        assertThat(diagnosisJobPublisher.published).containsExactly(DIAGNOSIS_ID);
+    }
+
+    @Test
+    void failedPublicationIsReleasedForTheRetry() {
+        originPhotoUploadCounter.initialize(DIAGNOSIS_ID, List.of("a.jpg"));
+        diagnosisJobPublisher.failNext = true;
+
+        assertThatThrownBy(() -> processingService.checkUploadStatusAndRunDiagnosis(DIAGNOSIS_ID, List.of("a.jpg")))
+            .isInstanceOf(IllegalStateException.class);
+        assertThat(diagnosisJobPublisher.published).isEmpty();
+
+        processingService.checkUploadStatusAndRunDiagnosis(DIAGNOSIS_ID, List.of("a.jpg"));
+        assertThat(diagnosisJobPublisher.published).containsExactly(DIAGNOSIS_ID);
+        assertThat(originPhotoUploadCounter.claimPublication(DIAGNOSIS_ID))
+            .isEqualTo(OriginPhotoUploadCounter.Publication.PUBLISHED);
+    }
+
+    @Test
+    void publicationClaimedByAnotherEventIsRetried() {
+        originPhotoUploadCounter.initialize(DIAGNOSIS_ID, List.of("a.jpg"));
+        assertThat(originPhotoUploadCounter.claimPublication(DIAGNOSIS_ID))
+            .isEqualTo(OriginPhotoUploadCounter.Publication.CLAIMED);
+
+        assertThatThrownBy(() -> processingService.checkUploadStatusAndRunDiagnosis(DIAGNOSIS_ID, List.of("a.jpg")))
+            .isInstanceOf(S3EventProcessingException.class);
+        assertThat(diagnosisJobPublisher.published).isEmpty();
+    }
+
+    private void insertPhoto(long id, String s3FileStatus) {
+        jdbcTemplate.update("""
+            INSERT INTO s3_file_metadatas (s3_file_metadata_id, original_filename, s3_key, status, created_at)
+            VALUES (?, ?, ?, ?, NOW())
+            """, id, id + ".jpg", s3Key(id), s3FileStatus);
+        jdbcTemplate.update("""
+            INSERT INTO original_photos (original_photo_id, diagnosis_id, s3_file_metadata_id, status)
+            VALUES (?, ?, ?, 'WAITING')
+            """, id, DIAGNOSIS_ID, id);
+    }
+
+    private static String s3Key(long id) {
+        return "test/origin/" + id + ".jpg";
+    }
+
+    /**
+     * Records the published jobs; fails the next one when failNext is set.
+     */
+    static class RecordingDiagnosisJobPublisher extends DiagnosisJobPublisher {
+
+        final List<Long> published = new ArrayList<>();
+        boolean failNext;
+
+        RecordingDiagnosisJobPublisher() {
+            super(false, "unused", null, null);
+        }
+
+        @Override
+        public void publish(Long diagnosisId) {
+            if (failNext) {
+                failNext = false;
+                throw new IllegalStateException("Publishing failed");
+            }
+            published.add(diagnosisId);
+        }
+
+        void reset() {
+            published.clear();
+            failNext = false;
+        }
+    }
+
+    @TestConfiguration
+    static class RecordingPublisherConfig {
+
+        @Bean
+        @Primary
+        RecordingDiagnosisJobPublisher recordingDiagnosisJobPublisher() {
+            return new RecordingDiagnosisJobPublisher();
+        }
+    }
+}